@@ -0,0 +1,239 @@
+package com.notebridge.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * Thin HTTP client for the NoteBridge API. One instance (and one connection pool) is shared by
+ * all virtual users; each user's login lives in its {@link Session} cookie, together with the
+ * CSRF token that goes back on every request like a browser's form would send it.
+ */
+public class ApiClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final LatencyStats stats;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ApiClient(String baseUrl, LatencyStats stats) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.stats = stats;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static class Session {
+        private final String username;
+        private final boolean teacher;
+        private volatile CsrfToken csrfToken;
+        private volatile long userId;
+
+        Session(String username, boolean teacher) {
+            this.username = username;
+            this.teacher = teacher;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isTeacher() {
+            return teacher;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        void setUserId(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    // A session cookie and the CSRF token stored in that session
+    private record CsrfToken(String cookie, String headerName, String token) {
+    }
+
+    public record Response(int status, String body, HttpHeaders headers) {
+
+        public boolean isSuccess() {
+            return status >= 200 && status < 400;
+        }
+    }
+
+    /**
+     * Register the account, or reuse it if a previous run already created it
+     */
+    public void register(String username, String password, boolean teacher) throws IOException, InterruptedException {
+        String json = objectMapper.writeValueAsString(Map.of(
+                "username", username,
+                "email", username + "@loadtest.notebridge.local",
+                "password", password,
+                "role", teacher ? "TEACHER" : "STUDENT",
+                "firstName", "Load",
+                "lastName", "Test"));
+
+        while (true) {
+            CsrfToken csrfToken = fetchCsrfToken(null);
+            Response response = send(null, "users.register", withCsrfToken(json(post("/api/users/register", json)), csrfToken));
+            if (response.status() == 201 || response.body().contains("already exists")) {
+                return;
+            }
+            if (response.status() != 503) {
+                throw new IOException("Registering " + username + " failed: " + response.status() + " " + response.body());
+            }
+            // Password hashing is saturated; back off as the Retry-After header asks
+            Thread.sleep(1000);
+        }
+    }
+
+    public Session login(String username, String password, boolean teacher) throws IOException, InterruptedException {
+        Session session = new Session(username, teacher);
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpRequest.Builder request = request("/login")
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+
+        Response response = send(null, "login", withCsrfToken(request, fetchCsrfToken(null)));
+        String location = response.headers().firstValue("Location").orElse("");
+        String cookie = sessionCookie(response.headers());
+        if (response.status() != 302 || location.contains("error") || cookie == null) {
+            throw new IOException("Login failed for " + username + " (status " + response.status() + ")");
+        }
+        // Login starts a new session, which gets a token of its own
+        session.csrfToken = fetchCsrfToken(cookie);
+        return session;
+    }
+
+    public Response get(Session session, String endpoint, String path) throws IOException, InterruptedException {
+        return send(session, endpoint, request(path).GET());
+    }
+
+    /**
+     * Download a file, discarding the content, optionally revalidating with an ETag
+     *
+     * @return the response headers, with an empty body
+     */
+    public Response download(Session session, String endpoint, String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = request(path).GET();
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        HttpResponse<Void> response = send(session, endpoint, request, HttpResponse.BodyHandlers.discarding());
+        return new Response(response.statusCode(), "", response.headers());
+    }
+
+    public Response postJson(Session session, String endpoint, String path, Object body) throws IOException, InterruptedException {
+        return send(session, endpoint, json(post(path, objectMapper.writeValueAsString(body))));
+    }
+
+    public Response put(Session session, String endpoint, String path) throws IOException, InterruptedException {
+        return send(session, endpoint, request(path).PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    public Response uploadFile(Session session, String endpoint, String path, String fileName,
+                               String contentType, byte[] content) throws IOException, InterruptedException {
+        String boundary = "----notebridge-loadtest-" + UUID.randomUUID();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        byte[] body = new byte[head.length + content.length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(content, 0, body, head.length, content.length);
+        System.arraycopy(tail, 0, body, head.length + content.length, tail.length);
+
+        HttpRequest.Builder request = request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        return send(session, endpoint, request);
+    }
+
+    public JsonNode parse(Response response) throws IOException {
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * @param cookie the session to read the token from, or null to start a new one
+     */
+    private CsrfToken fetchCsrfToken(String cookie) throws IOException, InterruptedException {
+        HttpRequest.Builder request = json(request("/api/csrf").GET());
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        Response response = send(null, "csrf", request);
+        String sessionCookie = cookie != null ? cookie : sessionCookie(response.headers());
+        if (response.status() != 200 || sessionCookie == null) {
+            throw new IOException("Fetching a CSRF token failed: " + response.status() + " " + response.body());
+        }
+        JsonNode token = parse(response);
+        return new CsrfToken(sessionCookie, token.get("headerName").asText(), token.get("token").asText());
+    }
+
+    private static HttpRequest.Builder withCsrfToken(HttpRequest.Builder request, CsrfToken csrfToken) {
+        return request.header("Cookie", csrfToken.cookie()).header(csrfToken.headerName(), csrfToken.token());
+    }
+
+    private static String sessionCookie(HttpHeaders headers) {
+        return headers.allValues("Set-Cookie").stream()
+                .filter(value -> value.startsWith("JSESSIONID="))
+                .map(value -> value.split(";", 2)[0])
+                .findFirst().orElse(null);
+    }
+
+    private Response send(Session session, String endpoint, HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(session, endpoint, request, HttpResponse.BodyHandlers.ofString());
+        return new Response(response.statusCode(), response.body(), response.headers());
+    }
+
+    private <T> HttpResponse<T> send(Session session, String endpoint, HttpRequest.Builder request,
+                                     HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        if (session != null) {
+            withCsrfToken(request, session.csrfToken);
+        }
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = httpClient.send(request.build(), bodyHandler);
+            // Redirects to the login page mean the session was lost, which counts as an error too
+            boolean error = response.statusCode() >= 400 || (session != null && response.statusCode() == 302);
+            stats.record(endpoint, System.nanoTime() - start, error);
+            return response;
+        } catch (IOException e) {
+            stats.record(endpoint, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return request(path).POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static HttpRequest.Builder json(HttpRequest.Builder request) {
+        return request.header("Content-Type", "application/json").header("Accept", "application/json");
+    }
+}
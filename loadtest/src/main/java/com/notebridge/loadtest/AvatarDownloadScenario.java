@@ -0,0 +1,55 @@
+package com.notebridge.loadtest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rendering a page of teacher cards: a burst of thumbnail downloads, occasionally a full-size
+ * picture. Like a browser, ETags from earlier downloads are sent back for revalidation.
+ */
+public class AvatarDownloadScenario implements Scenario {
+
+    private static final int THUMBNAILS_PER_PAGE = 8;
+
+    private final ApiClient client;
+    private final SeedData seedData;
+
+    // Per-user browser cache: "username|url" -> ETag
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    public AvatarDownloadScenario(ApiClient client, SeedData seedData) {
+        this.client = client;
+        this.seedData = seedData;
+    }
+
+    @Override
+    public String getName() {
+        return "avatar-download";
+    }
+
+    @Override
+    public boolean appliesTo(ApiClient.Session session) {
+        return !seedData.getAvatarFileIds().isEmpty();
+    }
+
+    @Override
+    public void run(ApiClient.Session session) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> fileIds = seedData.getAvatarFileIds();
+
+        for (int i = 0; i < THUMBNAILS_PER_PAGE; i++) {
+            download(session, "/api/files/download/" + fileIds.get(random.nextInt(fileIds.size())) + "?size=thumbnail");
+        }
+        if (random.nextInt(4) == 0) {
+            download(session, "/api/files/download/" + fileIds.get(random.nextInt(fileIds.size())) + "?size=full");
+        }
+    }
+
+    private void download(ApiClient.Session session, String path) throws Exception {
+        String cacheKey = session.getUsername() + "|" + path;
+        ApiClient.Response response = client.download(session, "files.download", path, etags.get(cacheKey));
+        response.headers().firstValue("ETag").ifPresent(etag -> etags.put(cacheKey, etag));
+    }
+}
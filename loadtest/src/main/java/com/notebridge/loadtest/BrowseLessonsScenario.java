@@ -0,0 +1,52 @@
+package com.notebridge.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A student looking through the lesson catalogue and opening a few lessons
+ */
+public class BrowseLessonsScenario implements Scenario {
+
+    private final ApiClient client;
+    private final ThinkTime thinkTime;
+
+    public BrowseLessonsScenario(ApiClient client, ThinkTime thinkTime) {
+        this.client = client;
+        this.thinkTime = thinkTime;
+    }
+
+    @Override
+    public String getName() {
+        return "browse-lessons";
+    }
+
+    @Override
+    public boolean appliesTo(ApiClient.Session session) {
+        return true;
+    }
+
+    @Override
+    public void run(ApiClient.Session session) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        ApiClient.Response list = random.nextInt(3) == 0
+                ? client.get(session, "lessons.upcoming", "/api/lessons/upcoming")
+                : client.get(session, "lessons.list", "/api/lessons");
+        if (!list.isSuccess()) {
+            return;
+        }
+        JsonNode lessons = client.parse(list);
+        if (lessons.isEmpty()) {
+            return;
+        }
+
+        int opened = random.nextInt(1, 4);
+        for (int i = 0; i < opened; i++) {
+            thinkTime.pause(0.5);
+            long lessonId = lessons.get(random.nextInt(lessons.size())).path("id").asLong();
+            client.get(session, "lessons.get", "/api/lessons/" + lessonId);
+        }
+    }
+}
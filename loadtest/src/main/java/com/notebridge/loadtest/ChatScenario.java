@@ -0,0 +1,62 @@
+package com.notebridge.loadtest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opening the inbox and going back and forth in one conversation: poll for new messages,
+ * sometimes reply, mark as read
+ */
+public class ChatScenario implements Scenario {
+
+    private static final String[] REPLIES = {
+            "Could we move Thursday's lesson to 5pm?",
+            "Thanks! I practised the scales every day this week.",
+            "Please bring the sheet music for the Chopin nocturne.",
+            "Sure, see you then.",
+            "I uploaded the recording from yesterday, let me know what you think."
+    };
+
+    private final ApiClient client;
+    private final SeedData seedData;
+    private final ThinkTime thinkTime;
+
+    public ChatScenario(ApiClient client, SeedData seedData, ThinkTime thinkTime) {
+        this.client = client;
+        this.seedData = seedData;
+        this.thinkTime = thinkTime;
+    }
+
+    @Override
+    public String getName() {
+        return "chat";
+    }
+
+    @Override
+    public boolean appliesTo(ApiClient.Session session) {
+        return !seedData.getChatIds(session).isEmpty();
+    }
+
+    @Override
+    public void run(ApiClient.Session session) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> chatIds = seedData.getChatIds(session);
+        long chatId = chatIds.get(random.nextInt(chatIds.size()));
+
+        client.get(session, "chats.unread", "/api/chats/unread-count");
+        client.get(session, "chats.list", "/api/chats");
+
+        int exchanges = random.nextInt(1, 6);
+        for (int i = 0; i < exchanges; i++) {
+            thinkTime.pause(0.3);
+            client.get(session, "chats.messages.poll", "/api/chats/" + chatId + "/messages?page=0&size=20");
+            if (random.nextBoolean()) {
+                thinkTime.pause(0.5);
+                client.postJson(session, "chats.messages.send", "/api/chats/" + chatId + "/messages",
+                        Map.of("content", REPLIES[random.nextInt(REPLIES.length)]));
+            }
+        }
+        client.put(session, "chats.read", "/api/chats/" + chatId + "/read");
+    }
+}
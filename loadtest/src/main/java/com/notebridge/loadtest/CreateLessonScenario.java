@@ -0,0 +1,34 @@
+package com.notebridge.loadtest;
+
+/**
+ * A teacher publishing a new lesson and checking their schedule
+ */
+public class CreateLessonScenario implements Scenario {
+
+    private final ApiClient client;
+    private final ThinkTime thinkTime;
+
+    public CreateLessonScenario(ApiClient client, ThinkTime thinkTime) {
+        this.client = client;
+        this.thinkTime = thinkTime;
+    }
+
+    @Override
+    public String getName() {
+        return "create-lesson";
+    }
+
+    @Override
+    public boolean appliesTo(ApiClient.Session session) {
+        return session.isTeacher();
+    }
+
+    @Override
+    public void run(ApiClient.Session session) throws Exception {
+        client.get(session, "lessons.mine", "/api/lessons/my-lessons");
+        // Filling in the form
+        thinkTime.pause(2.0);
+        client.postJson(session, "lessons.create", "/api/lessons", SeedData.newLesson(session));
+        client.get(session, "lessons.mine", "/api/lessons/my-lessons");
+    }
+}
@@ -0,0 +1,84 @@
+package com.notebridge.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and error counts, read out in intervals
+ * (one per ramp stage, or one for the measured part of a steady run).
+ */
+public class LatencyStats {
+
+    // Microsecond resolution up to a minute, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile long intervalStartNanos = System.nanoTime();
+
+    private static class Endpoint {
+        final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+        Histogram reusable;
+    }
+
+    public record Snapshot(String endpoint, long requests, long errors, double throughput,
+                           double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+
+        public double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    public void record(String endpoint, long latencyNanos, boolean error) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+        stats.recorder.recordValue(micros);
+        if (error) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * Start a new interval, discarding everything recorded so far
+     */
+    public void reset() {
+        snapshot();
+    }
+
+    /**
+     * Close the current interval and summarize it per endpoint, sorted by endpoint name
+     */
+    public synchronized List<Snapshot> snapshot() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - intervalStartNanos) / 1e9);
+        intervalStartNanos = now;
+
+        Map<String, Snapshot> result = new TreeMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint stats = entry.getValue();
+            Histogram histogram = stats.recorder.getIntervalHistogram(stats.reusable);
+            stats.reusable = histogram;
+            long errors = stats.errors.sumThenReset();
+            long requests = histogram.getTotalCount();
+            if (requests == 0) {
+                continue;
+            }
+            result.put(entry.getKey(), new Snapshot(entry.getKey(), requests, errors, requests / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue())));
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,238 @@
+package com.notebridge.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives realistic NoteBridge traffic against a locally running instance.
+ *
+ * Modes:
+ * <ul>
+ *     <li>{@code steady} (default): a fixed number of users for a fixed time, then a per-endpoint
+ *     report; exits with status 1 if any SLO in loadtest.properties is missed.</li>
+ *     <li>{@code ramp}: adds users stage by stage and reports throughput and latency per stage
+ *     until throughput stops scaling or an SLO breaks, i.e. the saturation point.</li>
+ * </ul>
+ * This is a closed model: each virtual user waits for a response, then thinks, so offered load
+ * is roughly users / (think time + response time).
+ */
+public class LoadTest {
+
+    private final LoadTestConfig config;
+    private final LatencyStats stats = new LatencyStats();
+    private final ApiClient client;
+    private final ThinkTime thinkTime;
+    private final List<Thread> users = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private SeedData seedData;
+    private List<Scenario> scenarios;
+
+    LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.client = new ApiClient(config.getString("loadtest.base-url"), stats);
+        this.thinkTime = new ThinkTime(config.getLong("loadtest.think-time.mean-ms"), config.getLong("loadtest.think-time.max-ms"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "steady";
+        LoadTest loadTest = new LoadTest(new LoadTestConfig());
+        loadTest.prepare();
+
+        boolean passed = switch (mode) {
+            case "steady" -> loadTest.runSteady();
+            case "ramp" -> loadTest.runRamp();
+            default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected steady or ramp");
+        };
+        System.exit(passed ? 0 : 1);
+    }
+
+    void prepare() throws Exception {
+        seedData = SeedData.create(client, config);
+        scenarios = List.of(
+                new BrowseLessonsScenario(client, thinkTime),
+                new ChatScenario(client, seedData, thinkTime),
+                new CreateLessonScenario(client, thinkTime),
+                new AvatarDownloadScenario(client, seedData));
+    }
+
+    boolean runSteady() throws Exception {
+        int userCount = config.getInt("loadtest.users");
+        long warmupSeconds = config.getLong("loadtest.warmup-seconds");
+        long durationSeconds = config.getLong("loadtest.duration-seconds");
+
+        System.out.println("Steady run: " + userCount + " users, " + warmupSeconds + "s warmup, " + durationSeconds + "s measured");
+        addUsers(userCount);
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        stats.reset();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        List<LatencyStats.Snapshot> snapshots = stats.snapshot();
+        stopUsers();
+
+        printTable(snapshots);
+        writeCsv("loadtest-steady.csv", List.of(new Stage(userCount, snapshots)));
+
+        List<String> violations = sloViolations(snapshots);
+        violations.forEach(violation -> System.out.println("SLO MISSED: " + violation));
+        System.out.println(violations.isEmpty() ? "All SLOs met" : violations.size() + " SLO(s) missed");
+        return violations.isEmpty();
+    }
+
+    boolean runRamp() throws Exception {
+        int userCount = config.getInt("loadtest.ramp.start-users");
+        int step = config.getInt("loadtest.ramp.step-users");
+        int maxUsers = config.getInt("loadtest.ramp.max-users");
+        long stageSeconds = config.getLong("loadtest.ramp.stage-seconds");
+        long settleSeconds = config.getLong("loadtest.ramp.settle-seconds");
+        double minEfficiency = config.getDouble("loadtest.ramp.min-scaling-efficiency");
+        int minSaturationUsers = config.getInt("loadtest.slo.min-saturation-users");
+
+        List<Stage> stages = new ArrayList<>();
+        Stage lastGood = null;
+        String saturationReason = null;
+
+        while (userCount <= maxUsers) {
+            addUsers(userCount - users.size());
+            TimeUnit.SECONDS.sleep(settleSeconds);
+            stats.reset();
+            TimeUnit.SECONDS.sleep(stageSeconds - settleSeconds);
+            Stage stage = new Stage(userCount, stats.snapshot());
+            stages.add(stage);
+
+            System.out.printf(Locale.ROOT, "%5d users: %8.1f req/s, worst p99 %8.1f ms, errors %.2f%%%n",
+                    userCount, stage.throughput(), stage.worstP99(), stage.errorRate() * 100);
+
+            List<String> violations = sloViolations(stage.snapshots());
+            if (!violations.isEmpty()) {
+                saturationReason = violations.get(0);
+            } else if (lastGood != null) {
+                // Throughput the added users would contribute if the system scaled linearly
+                double linearGain = lastGood.throughput() * (userCount - lastGood.users()) / lastGood.users();
+                double actualGain = stage.throughput() - lastGood.throughput();
+                if (actualGain < linearGain * minEfficiency) {
+                    saturationReason = String.format(Locale.ROOT, "throughput grew by %.1f req/s, linear scaling predicts %.1f",
+                            actualGain, linearGain);
+                }
+            }
+            if (saturationReason != null) {
+                break;
+            }
+            lastGood = stage;
+            userCount += step;
+        }
+        stopUsers();
+        writeCsv("loadtest-ramp.csv", stages);
+
+        if (saturationReason == null) {
+            System.out.println("No saturation up to " + maxUsers + " users");
+            return true;
+        }
+        System.out.println("Saturated at " + userCount + " users: " + saturationReason);
+        if (lastGood != null) {
+            System.out.printf(Locale.ROOT, "Last healthy stage: %d users, %.1f req/s%n", lastGood.users(), lastGood.throughput());
+            printTable(lastGood.snapshots());
+        }
+        int healthyUsers = lastGood != null ? lastGood.users() : 0;
+        if (healthyUsers < minSaturationUsers) {
+            System.out.println("SLO MISSED: saturation below " + minSaturationUsers + " users");
+            return false;
+        }
+        return true;
+    }
+
+    private void addUsers(int count) {
+        List<ApiClient.Session> students = seedData.getStudents();
+        List<ApiClient.Session> teachers = seedData.getTeachers();
+        double teacherRatio = config.getDouble("loadtest.teacher-ratio");
+
+        for (int i = 0; i < count; i++) {
+            int index = users.size();
+            // Spreads teachers evenly through the user list, so every stage keeps the same mix
+            boolean teacher = Math.floor((index + 1) * teacherRatio) > Math.floor(index * teacherRatio);
+            ApiClient.Session session = teacher
+                    ? teachers.get(index % teachers.size())
+                    : students.get(index % students.size());
+            VirtualUser user = new VirtualUser(session, scenarios, config, thinkTime, () -> running);
+            users.add(Thread.ofVirtual().name("virtual-user-" + index).start(user));
+        }
+    }
+
+    private void stopUsers() throws InterruptedException {
+        running = false;
+        for (Thread user : users) {
+            user.interrupt();
+        }
+        for (Thread user : users) {
+            user.join();
+        }
+    }
+
+    private List<String> sloViolations(List<LatencyStats.Snapshot> snapshots) {
+        List<String> violations = new ArrayList<>();
+        long requests = 0;
+        long errors = 0;
+        for (LatencyStats.Snapshot snapshot : snapshots) {
+            requests += snapshot.requests();
+            errors += snapshot.errors();
+            long slo = config.getLatencySlo(snapshot.endpoint());
+            if (slo > 0 && snapshot.p99Millis() > slo) {
+                violations.add(String.format(Locale.ROOT, "%s p99 %.1f ms > %d ms", snapshot.endpoint(), snapshot.p99Millis(), slo));
+            }
+        }
+        double maxErrorRate = config.getDouble("loadtest.slo.error-rate");
+        double errorRate = requests == 0 ? 0 : (double) errors / requests;
+        if (errorRate > maxErrorRate) {
+            violations.add(String.format(Locale.ROOT, "error rate %.2f%% > %.2f%%", errorRate * 100, maxErrorRate * 100));
+        }
+        return violations;
+    }
+
+    private void printTable(List<LatencyStats.Snapshot> snapshots) {
+        System.out.printf(Locale.ROOT, "%-24s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "err%", "p50 ms", "p95 ms", "p99 ms", "max ms", "slo ms");
+        for (LatencyStats.Snapshot s : snapshots) {
+            long slo = config.getLatencySlo(s.endpoint());
+            System.out.printf(Locale.ROOT, "%-24s %9d %9.1f %7.2f %9.1f %9.1f %9.1f %9.1f %9s%n",
+                    s.endpoint(), s.requests(), s.throughput(), s.errorRate() * 100,
+                    s.p50Millis(), s.p95Millis(), s.p99Millis(), s.maxMillis(), slo > 0 ? Long.toString(slo) : "-");
+        }
+    }
+
+    private void writeCsv(String fileName, List<Stage> stages) throws IOException {
+        Path file = Files.createDirectories(Paths.get("target")).resolve(fileName);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("users,endpoint,requests,errors,throughput,p50_ms,p95_ms,p99_ms,max_ms");
+            for (Stage stage : stages) {
+                for (LatencyStats.Snapshot s : stage.snapshots()) {
+                    out.printf(Locale.ROOT, "%d,%s,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f%n", stage.users(), s.endpoint(),
+                            s.requests(), s.errors(), s.throughput(), s.p50Millis(), s.p95Millis(), s.p99Millis(), s.maxMillis());
+                }
+            }
+        }
+        System.out.println("Results written to " + file.toAbsolutePath());
+    }
+
+    private record Stage(int users, List<LatencyStats.Snapshot> snapshots) {
+
+        double throughput() {
+            return snapshots.stream().mapToDouble(s -> s.throughput() * (1 - s.errorRate())).sum();
+        }
+
+        double worstP99() {
+            return snapshots.stream().mapToDouble(LatencyStats.Snapshot::p99Millis).max().orElse(0);
+        }
+
+        double errorRate() {
+            long requests = snapshots.stream().mapToLong(LatencyStats.Snapshot::requests).sum();
+            long errors = snapshots.stream().mapToLong(LatencyStats.Snapshot::errors).sum();
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.notebridge.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Settings from loadtest.properties on the classpath, overridable with system properties
+ */
+public class LoadTestConfig {
+
+    private final Properties properties = new Properties();
+
+    public LoadTestConfig() throws IOException {
+        try (InputStream in = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+    }
+
+    public String getString(String key) {
+        String value = System.getProperty(key, properties.getProperty(key));
+        if (value == null) {
+            throw new IllegalArgumentException("Missing load test setting: " + key);
+        }
+        return value.trim();
+    }
+
+    public int getInt(String key) {
+        return Integer.parseInt(getString(key));
+    }
+
+    public long getLong(String key) {
+        return Long.parseLong(getString(key));
+    }
+
+    public double getDouble(String key) {
+        return Double.parseDouble(getString(key));
+    }
+
+    /**
+     * @return the p99 latency SLO for an endpoint in milliseconds, or -1 if none is configured
+     */
+    public long getLatencySlo(String endpoint) {
+        String key = "loadtest.slo." + endpoint + ".p99-ms";
+        String value = System.getProperty(key, properties.getProperty(key));
+        return value != null ? Long.parseLong(value.trim()) : -1;
+    }
+}
@@ -0,0 +1,14 @@
+package com.notebridge.loadtest;
+
+/**
+ * One thing a user comes to do, e.g. browse lessons or have a chat. Runs a few requests with
+ * think time in between; the caller adds the pause before the next scenario.
+ */
+public interface Scenario {
+
+    String getName();
+
+    boolean appliesTo(ApiClient.Session session);
+
+    void run(ApiClient.Session session) throws Exception;
+}
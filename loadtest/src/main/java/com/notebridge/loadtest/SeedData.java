@@ -0,0 +1,203 @@
+package com.notebridge.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Accounts, chats, lessons and avatars the scenarios work with. Seeding is idempotent, so
+ * repeated runs against the same database reuse what earlier runs created.
+ */
+public class SeedData {
+
+    private static final int SEED_CONCURRENCY = 16;
+    private static final int LESSONS_PER_TEACHER = 5;
+
+    private final List<ApiClient.Session> students = new ArrayList<>();
+    private final List<ApiClient.Session> teachers = new ArrayList<>();
+    private final Map<String, List<Long>> chatIdsByUser = new ConcurrentHashMap<>();
+    private final List<String> avatarFileIds = new CopyOnWriteArrayList<>();
+
+    public static SeedData create(ApiClient client, LoadTestConfig config) throws Exception {
+        SeedData data = new SeedData();
+        String password = config.getString("loadtest.seed.password");
+        int studentCount = config.getInt("loadtest.seed.students");
+        int teacherCount = config.getInt("loadtest.seed.teachers");
+
+        System.out.println("Seeding " + teacherCount + " teachers and " + studentCount + " students...");
+        List<String> studentNames = new ArrayList<>();
+        List<String> teacherNames = new ArrayList<>();
+        for (int i = 0; i < studentCount; i++) {
+            studentNames.add("lt-student-" + i);
+        }
+        for (int i = 0; i < teacherCount; i++) {
+            teacherNames.add("lt-teacher-" + i);
+        }
+
+        data.students.addAll(parallel(studentNames, name -> {
+            client.register(name, password, false);
+            return client.login(name, password, false);
+        }));
+        data.teachers.addAll(parallel(teacherNames, name -> {
+            client.register(name, password, true);
+            return client.login(name, password, true);
+        }));
+
+        data.resolveUserIds(client);
+        data.createChats(client);
+        data.createLessons(client);
+        data.uploadAvatars(client, config.getInt("loadtest.seed.avatar-teachers"));
+
+        System.out.println("Seeded " + data.chatIdsByUser.size() + " chat participants and "
+                + data.avatarFileIds.size() + " avatars");
+        return data;
+    }
+
+    public List<ApiClient.Session> getStudents() {
+        return students;
+    }
+
+    public List<ApiClient.Session> getTeachers() {
+        return teachers;
+    }
+
+    public List<Long> getChatIds(ApiClient.Session session) {
+        return chatIdsByUser.getOrDefault(session.getUsername(), List.of());
+    }
+
+    public List<String> getAvatarFileIds() {
+        return avatarFileIds;
+    }
+
+    private void resolveUserIds(ApiClient client) throws Exception {
+        ApiClient.Response response = client.get(teachers.get(0), "users.list", "/api/users");
+        Map<String, Long> ids = new HashMap<>();
+        for (JsonNode user : client.parse(response)) {
+            ids.put(user.path("username").asText(), user.path("id").asLong());
+        }
+        for (ApiClient.Session session : students) {
+            session.setUserId(ids.get(session.getUsername()));
+        }
+        for (ApiClient.Session session : teachers) {
+            session.setUserId(ids.get(session.getUsername()));
+        }
+    }
+
+    private void createChats(ApiClient client) throws Exception {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < students.size(); i++) {
+            indexes.add(i);
+        }
+        parallel(indexes, i -> {
+            ApiClient.Session student = students.get(i);
+            ApiClient.Session teacher = teachers.get(i % teachers.size());
+            ApiClient.Response response = client.postJson(student, "chats.create", "/api/chats", Map.of(
+                    "teacherId", teacher.getUserId(),
+                    "studentId", student.getUserId(),
+                    "subject", "Lessons with " + teacher.getUsername()));
+            if (!response.isSuccess()) {
+                throw new IOException("Creating chat failed: " + response.status() + " " + response.body());
+            }
+            long chatId = client.parse(response).path("id").asLong();
+            chatIdsByUser.computeIfAbsent(student.getUsername(), key -> new CopyOnWriteArrayList<>()).add(chatId);
+            chatIdsByUser.computeIfAbsent(teacher.getUsername(), key -> new CopyOnWriteArrayList<>()).add(chatId);
+            return chatId;
+        });
+    }
+
+    private void createLessons(ApiClient client) throws Exception {
+        parallel(teachers, teacher -> {
+            JsonNode existing = client.parse(client.get(teacher, "lessons.mine", "/api/lessons/my-lessons"));
+            for (int i = existing.size(); i < LESSONS_PER_TEACHER; i++) {
+                client.postJson(teacher, "lessons.create", "/api/lessons", newLesson(teacher));
+            }
+            return teacher;
+        });
+    }
+
+    private void uploadAvatars(ApiClient client, int count) throws Exception {
+        byte[] avatar = generateAvatar();
+        parallel(teachers.subList(0, Math.min(count, teachers.size())), teacher -> {
+            ApiClient.Response response = client.uploadFile(teacher, "files.upload.profile",
+                    "/api/files/upload/profile/" + teacher.getUserId(), teacher.getUsername() + ".png", "image/png", avatar);
+            if (!response.isSuccess()) {
+                throw new IOException("Avatar upload failed: " + response.status() + " " + response.body());
+            }
+            avatarFileIds.add(response.body());
+            return response.body();
+        });
+    }
+
+    static Map<String, Object> newLesson(ApiClient.Session teacher) {
+        // On the hour, like real bookings
+        LocalDateTime start = LocalDateTime.now().plusDays(ThreadLocalRandom.current().nextInt(1, 60))
+                .truncatedTo(ChronoUnit.HOURS);
+        return Map.of(
+                "description", "Load test lesson by " + teacher.getUsername() + ": scales, sight reading and repertoire",
+                "location", "ONLINE",
+                "meetingLink", "https://meet.example.com/" + teacher.getUsername(),
+                "startTime", start.toString(),
+                "endTime", start.plusHours(1).toString());
+    }
+
+    // A large photo-like image so variant generation and downloads have realistic sizes
+    private static byte[] generateAvatar() throws IOException {
+        BufferedImage image = new BufferedImage(1200, 1200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, 1200, 1200, Color.BLUE));
+            graphics.fillRect(0, 0, 1200, 1200);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface SeedTask<T, R> {
+        R run(T item) throws Exception;
+    }
+
+    private static <T, R> List<R> parallel(List<T> items, SeedTask<T, R> task) throws Exception {
+        Semaphore permits = new Semaphore(SEED_CONCURRENCY);
+        List<Future<R>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return task.run(item);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<R> results = new ArrayList<>();
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.notebridge.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pauses between user actions. Exponentially distributed pauses make the combined arrivals
+ * from many users look like real (Poisson) traffic instead of lock-step bursts.
+ */
+public class ThinkTime {
+
+    private final long meanMillis;
+    private final long maxMillis;
+
+    public ThinkTime(long meanMillis, long maxMillis) {
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * A full think time, e.g. between scenarios
+     */
+    public void pause() throws InterruptedException {
+        pause(1.0);
+    }
+
+    /**
+     * A think time scaled by {@code factor}, e.g. 0.3 for a quick glance between two requests of one page
+     */
+    public void pause(double factor) throws InterruptedException {
+        double sample = -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanMillis * factor;
+        Thread.sleep(Math.min((long) sample, maxMillis));
+    }
+}
@@ -0,0 +1,74 @@
+package com.notebridge.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One simulated user: picks a scenario by weight, runs it, thinks, repeats
+ */
+public class VirtualUser implements Runnable {
+
+    private static final AtomicLong loggedFailures = new AtomicLong();
+    private static final int MAX_LOGGED_FAILURES = 20;
+
+    private final ApiClient.Session session;
+    private final ThinkTime thinkTime;
+    private final BooleanSupplier running;
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    public VirtualUser(ApiClient.Session session, List<Scenario> allScenarios, LoadTestConfig config,
+                       ThinkTime thinkTime, BooleanSupplier running) {
+        this.session = session;
+        this.thinkTime = thinkTime;
+        this.running = running;
+
+        for (Scenario scenario : allScenarios) {
+            int weight = config.getInt("loadtest.mix." + scenario.getName());
+            if (weight > 0 && scenario.appliesTo(session)) {
+                totalWeight += weight;
+                scenarios.add(scenario);
+                cumulativeWeights.add(totalWeight);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Stagger arrivals so a new stage doesn't start with a synchronized burst
+            thinkTime.pause();
+            while (running.getAsBoolean() && totalWeight > 0) {
+                Scenario scenario = pick();
+                try {
+                    scenario.run(session);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // Already counted as an error by the client; just keep a few for diagnosis
+                    if (loggedFailures.incrementAndGet() <= MAX_LOGGED_FAILURES) {
+                        System.err.println("Scenario " + scenario.getName() + " failed for "
+                                + session.getUsername() + ": " + e);
+                    }
+                }
+                thinkTime.pause();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Scenario pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < scenarios.size(); i++) {
+            if (roll < cumulativeWeights.get(i)) {
+                return scenarios.get(i);
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+}
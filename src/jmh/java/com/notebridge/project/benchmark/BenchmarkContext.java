@@ -0,0 +1,161 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.SbNotebridgeApplication;
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.repository.ChatRepository;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.repository.MessageRepository;
+import com.notebridge.project.repository.UserRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application without a web server against in-memory H2 (MySQL mode) and the local
+ * storage backend, then seeds a realistic data set: a few hundred users, one busy chat with
+ * thousands of messages and a lesson catalogue. Redis is never contacted, since nothing on
+ * these paths is cached.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    static final int TEACHERS = 50;
+    static final int STUDENTS = 500;
+    static final int MESSAGES_IN_BUSY_CHAT = 5_000;
+    static final int LESSONS_PER_TEACHER = 20;
+
+    ConfigurableApplicationContext context;
+    User teacher;
+    User student;
+    Chat busyChat;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        // Command-line arguments, so they win over application.properties (builder properties don't)
+        context = new SpringApplicationBuilder(SbNotebridgeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:notebridge-bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        // The bloom filter rebuild streams with a MySQL-only fetch size
+                        "--notebridge.registration.bloom.enabled=false",
+                        "--notebridge.storage.backend=local",
+                        "--notebridge.storage.local.root=" + Files.createTempDirectory("notebridge-bench-storage"),
+                        "--notebridge.blob-cache.enabled=false");
+
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed() {
+        UserRepository userRepository = bean(UserRepository.class);
+        ChatRepository chatRepository = bean(ChatRepository.class);
+        MessageRepository messageRepository = bean(MessageRepository.class);
+        LessonRepository lessonRepository = bean(LessonRepository.class);
+
+        List<User> teachers = new ArrayList<>();
+        for (int i = 0; i < TEACHERS; i++) {
+            teachers.add(userRepository.save(newUser("teacher" + i, User.Role.TEACHER)));
+        }
+        List<User> students = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            students.add(userRepository.save(newUser("student" + i, User.Role.STUDENT)));
+        }
+        teacher = teachers.get(0);
+        student = students.get(0);
+
+        // One chat per student with a handful of messages, plus one very long conversation
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            Chat chat = newChat(teachers.get(i % TEACHERS), students.get(i));
+            chatRepository.save(chat);
+            for (int m = 0; m < 5; m++) {
+                messages.add(newMessage(chat, m % 2 == 0 ? chat.getStudent() : chat.getTeacher(), m));
+            }
+            if (i == 0) {
+                busyChat = chat;
+            }
+        }
+        for (int m = 0; m < MESSAGES_IN_BUSY_CHAT; m++) {
+            messages.add(newMessage(busyChat, m % 2 == 0 ? student : teacher, m));
+        }
+        messageRepository.saveAll(messages);
+
+        List<Lesson> lessons = new ArrayList<>();
+        for (User lessonTeacher : teachers) {
+            for (int l = 0; l < LESSONS_PER_TEACHER; l++) {
+                lessons.add(newLesson(lessonTeacher, l));
+            }
+        }
+        lessonRepository.saveAll(lessons);
+    }
+
+    static User newUser(String username, User.Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@notebridge.test");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5L7jMHxNGM3BpBx1FLQ4hC2");
+        user.setRole(role);
+        user.setFirstName("First " + username);
+        user.setLastName("Last " + username);
+        user.setInstrument("Piano");
+        user.setBio("Plays and teaches piano. ".repeat(10));
+        return user;
+    }
+
+    static Chat newChat(User teacher, User student) {
+        Chat chat = new Chat();
+        chat.setTeacher(teacher);
+        chat.setStudent(student);
+        chat.setSubject("Lessons with " + student.getUsername());
+        return chat;
+    }
+
+    static Message newMessage(Chat chat, User sender, int index) {
+        Message message = new Message();
+        message.setChat(chat);
+        message.setSender(sender);
+        message.setContent("Message " + index + ": could we move Thursday's lesson to 5pm?");
+        message.setSentAt(LocalDateTime.now().minusMinutes(MESSAGES_IN_BUSY_CHAT - index));
+        message.setRead(index % 3 == 0);
+        return message;
+    }
+
+    static Lesson newLesson(User teacher, int index) {
+        Lesson lesson = new Lesson();
+        lesson.setTeacher(teacher);
+        lesson.setDescription("Beginner piano lesson #" + index + ". Scales, sight reading and repertoire.");
+        lesson.setLocation(index % 2 == 0 ? Lesson.LocationType.ONLINE : Lesson.LocationType.IN_PERSON);
+        lesson.setStartTime(LocalDateTime.now().plusDays(index - LESSONS_PER_TEACHER / 2));
+        lesson.setEndTime(lesson.getStartTime().plusHours(1));
+        lesson.setMeetingLink("https://meet.notebridge.test/" + teacher.getUsername() + "/" + index);
+        lesson.setCancelled(index % 10 == 0);
+        return lesson;
+    }
+}
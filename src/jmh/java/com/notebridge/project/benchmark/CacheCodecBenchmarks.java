@@ -0,0 +1,97 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.cache.CacheValueCodecs;
+import com.notebridge.project.cache.VersionedRedisSerializer;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.User;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.response.UserView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis cache value encode/decode time and stored size: "json" is the previous
+ * GenericJackson2JsonRedisSerializer, the others go through VersionedRedisSerializer.
+ * Stored sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheCodecBenchmarks {
+
+    @Param({"json", "versioned-json", "smile", "smile-lz4"})
+    String codec;
+
+    @Param({"user", "lessons"})
+    String value;
+
+    private RedisSerializer<Object> serializer;
+    private Object payload;
+    private byte[] stored;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        serializer = switch (codec) {
+            case "json" -> new GenericJackson2JsonRedisSerializer();
+            case "versioned-json" -> new VersionedRedisSerializer("bench", CacheValueCodecs.JSON, -1, 0, meterRegistry);
+            case "smile" -> new VersionedRedisSerializer("bench", CacheValueCodecs.SMILE, -1, 0, meterRegistry);
+            case "smile-lz4" -> new VersionedRedisSerializer("bench", CacheValueCodecs.SMILE, 1024, 0, meterRegistry);
+            default -> throw new IllegalArgumentException(codec);
+        };
+        payload = switch (value) {
+            case "user" -> UserView.from(user("teacher", 1L));
+            case "lessons" -> lessonCatalogue();
+            default -> throw new IllegalArgumentException(value);
+        };
+
+        stored = serializer.serialize(payload);
+        System.out.println(value + " as " + codec + ": " + stored.length + " bytes stored");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(payload);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(stored);
+    }
+
+    // What a cached catalogue page would hold
+    private static List<LessonView> lessonCatalogue() {
+        List<LessonView> lessons = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Lesson lesson = BenchmarkContext.newLesson(user("teacher" + i % 10, (long) i % 10), i);
+            lesson.setId((long) i);
+            lessons.add(LessonView.from(lesson));
+        }
+        return lessons;
+    }
+
+    private static User user(String username, long id) {
+        User user = BenchmarkContext.newUser(username, User.Role.TEACHER);
+        user.setId(id);
+        return user;
+    }
+}
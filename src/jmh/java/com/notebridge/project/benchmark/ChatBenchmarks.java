@@ -0,0 +1,62 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.model.Message;
+import com.notebridge.project.repository.MessageRepository;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.service.ChatService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatBenchmarks {
+
+    // Page depth into the busy chat's history (20 messages per page)
+    @Param({"0", "10", "100"})
+    int page;
+
+    private ChatService chatService;
+    private MessageRepository messageRepository;
+
+    @Setup
+    public void setUp(BenchmarkContext context) {
+        chatService = context.bean(ChatService.class);
+        messageRepository = context.bean(MessageRepository.class);
+    }
+
+    @Benchmark
+    public Message sendMessage(BenchmarkContext context) {
+        return chatService.sendMessage(context.busyChat.getId(), context.student, "See you on Thursday!");
+    }
+
+    @Benchmark
+    public Page<MessageView> getChatMessages(BenchmarkContext context) {
+        return chatService.getChatMessages(context.busyChat.getId(), context.teacher, page, 20);
+    }
+
+    @Benchmark
+    public long countTotalUnreadMessages(BenchmarkContext context) {
+        return chatService.getUnreadMessageCount(context.teacher);
+    }
+
+    @Benchmark
+    public long countUnreadMessagesInChat(BenchmarkContext context) {
+        return messageRepository.countUnreadMessages(context.busyChat, context.teacher);
+    }
+}
@@ -0,0 +1,96 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.model.FileMetaData;
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.response.FileDownload;
+import com.notebridge.project.service.FileStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File id lookups on a scaled-down files table; production is heading for 10M rows. "indexed"
+ * is what every download location cache miss pays, a probe of uk_files_unique_id plus the
+ * variant join, for a random file: compare it across sizes, a B-tree probe should grow with
+ * log(rows) rather than rows. "cached" is a hot avatar served by FileStorageService from its
+ * download location cache. The fork gets a 3 GB heap, since H2 keeps the whole table in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FileLookupBenchmarks {
+
+    private static final int HOT_FILES = 100;
+    private static final int INSERT_BATCH = 10_000;
+
+    @Param({"100000", "1000000"})
+    int files;
+
+    private FileMetaDataRepository repository;
+    private FileStorageService fileStorageService;
+    private JdbcTemplate jdbcTemplate;
+    private int nextHot;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        repository = context.bean(FileMetaDataRepository.class);
+        fileStorageService = context.bean(FileStorageService.class);
+        jdbcTemplate = new JdbcTemplate(context.bean(DataSource.class));
+
+        // Plain JDBC batches: going through JPA would take minutes at these sizes
+        Timestamp uploaded = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < files; i++) {
+            String hash = String.format("%064x", i);
+            batch.add(new Object[]{fileId(i), "sha256/" + hash, uploaded, hash, "avatar" + i + ".png", "image/png", 48_000L});
+            if (batch.size() == INSERT_BATCH || i == files - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO files (unique_id, object_name, upload_date, content_hash, "
+                        + "original_filename, content_type, size) VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM files");
+    }
+
+    @Benchmark
+    public FileMetaData indexed() {
+        return repository.findWithVariantsByUniqueId(fileId(ThreadLocalRandom.current().nextInt(files)));
+    }
+
+    @Benchmark
+    public FileDownload cached() throws IOException {
+        return fileStorageService.prepareDownload(fileId(nextHot++ % HOT_FILES), null);
+    }
+
+    private static String fileId(int index) {
+        return new UUID(0, index).toString();
+    }
+}
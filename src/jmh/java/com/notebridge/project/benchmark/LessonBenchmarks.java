@@ -0,0 +1,55 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.response.LessonView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+// Each result is mapped to LessonView like the endpoints do, so the teacher fetch is part of the cost
+public class LessonBenchmarks {
+
+    private LessonRepository lessonRepository;
+
+    @Setup
+    public void setUp(BenchmarkContext context) {
+        lessonRepository = context.bean(LessonRepository.class);
+    }
+
+    @Benchmark
+    public List<LessonView> allActiveLessons() {
+        return toViews(lessonRepository.findByIsCancelledFalse());
+    }
+
+    @Benchmark
+    public List<LessonView> upcomingLessons() {
+        return toViews(lessonRepository.findByStartTimeAfterAndIsCancelledFalse(LocalDateTime.now()));
+    }
+
+    @Benchmark
+    public List<LessonView> lessonsByTeacher(BenchmarkContext context) {
+        return toViews(lessonRepository.findByTeacherAndIsCancelledFalse(context.teacher));
+    }
+
+    private static List<LessonView> toViews(List<Lesson> lessons) {
+        return lessons.stream().map(LessonView::from).toList();
+    }
+}
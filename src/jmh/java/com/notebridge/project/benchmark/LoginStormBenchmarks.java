@@ -0,0 +1,120 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.service.ChatService;
+import com.notebridge.project.service.PasswordHashingRejectedException;
+import com.notebridge.project.service.UserDetailsServiceImpl;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A login storm next to ordinary traffic, on the seeded BenchmarkContext application: 96 threads
+ * log in with a wrong password through DaoAuthenticationProvider while 4 others read the busy
+ * chat's latest page and the lesson catalogue through the same services the endpoints use.
+ * "bounded" is the application's own provider, hashing on the BoundedPasswordEncoder pool with
+ * the default thread count and queue, so part of the storm is turned away and, like a client
+ * honouring Retry-After, waits before trying again. "direct" is the same provider with a plain
+ * BCryptPasswordEncoder, hashing on the request threads. Compare the chatHistory and
+ * lessonCatalogue latency percentiles between the two; the "rejected" counter shows how many
+ * logins got the fast 503 instead, and "failed" how many gave up waiting for a database
+ * connection while the cores were busy hashing.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoginStormBenchmarks {
+
+    // Shorter than the 1s Retry-After so the storm keeps up its pressure
+    private static final long RETRY_AFTER_MILLIS = 100;
+
+    @Param({"direct", "bounded"})
+    String mode;
+
+    private DaoAuthenticationProvider authenticationProvider;
+    private ChatService chatService;
+    private LessonRepository lessonRepository;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Logins {
+        public long rejected;
+        public long failed;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        if (mode.equals("bounded")) {
+            authenticationProvider = context.bean(DaoAuthenticationProvider.class);
+        } else {
+            authenticationProvider = new DaoAuthenticationProvider();
+            authenticationProvider.setUserDetailsService(context.bean(UserDetailsServiceImpl.class));
+            authenticationProvider.setPasswordEncoder(new BCryptPasswordEncoder());
+        }
+        chatService = context.bean(ChatService.class);
+        lessonRepository = context.bean(LessonRepository.class);
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(96)
+    public boolean login(BenchmarkContext context, Logins logins) throws InterruptedException {
+        try {
+            authenticationProvider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(
+                    context.student.getUsername(), "wrong password"));
+            return true;
+        } catch (BadCredentialsException e) {
+            return false;
+        } catch (InternalAuthenticationServiceException e) {
+            // The user lookup timed out waiting for a pooled connection, a 500 for the client
+            logins.failed++;
+            return false;
+        } catch (PasswordHashingRejectedException e) {
+            logins.rejected++;
+            Thread.sleep(RETRY_AFTER_MILLIS);
+            return false;
+        }
+    }
+
+    // GET /api/chats/{chatId}/messages
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(2)
+    public Page<MessageView> chatHistory(BenchmarkContext context) {
+        return chatService.getChatMessages(context.busyChat.getId(), context.teacher, 0, 20);
+    }
+
+    // GET /api/lessons on a cache miss
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(2)
+    public List<LessonView> lessonCatalogue() {
+        return lessonRepository.findByIsCancelledFalse().stream().map(LessonView::from).toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.repository.LessonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the instrumentation on hot paths: recording into a histogram timer (what every
+ * HTTP request and repository call pays) and a query with Hibernate statistics on and off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmarks {
+
+    @Param({"true", "false"})
+    boolean hibernateStatistics;
+
+    private Timer histogramTimer;
+    private Timer plainTimer;
+    private LessonRepository lessonRepository;
+
+    @Setup
+    public void setUp(BenchmarkContext context) {
+        MeterRegistry meterRegistry = context.bean(MeterRegistry.class);
+        histogramTimer = Timer.builder("benchmark.histogram").publishPercentileHistogram().register(meterRegistry);
+        plainTimer = Timer.builder("benchmark.plain").register(meterRegistry);
+        lessonRepository = context.bean(LessonRepository.class);
+
+        context.bean(EntityManagerFactory.class).unwrap(SessionFactory.class)
+                .getStatistics().setStatisticsEnabled(hibernateStatistics);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordHistogramTimer() {
+        histogramTimer.record(1_234_567, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordPlainTimer() {
+        plainTimer.record(1_234_567, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public List<Lesson> lessonsByTeacher(BenchmarkContext context) {
+        return lessonRepository.findByTeacherAndIsCancelledFalse(context.teacher);
+    }
+}
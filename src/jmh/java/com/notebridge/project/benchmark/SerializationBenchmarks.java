@@ -0,0 +1,107 @@
+package com.notebridge.project.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.response.ChatView;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.response.MessageView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API response serialization and Redis cache value (de)serialization, without any I/O
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmarks {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final GenericJackson2JsonRedisSerializer redisSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private List<Message> messagePage;
+    private List<Chat> chats;
+    private ArrayList<Lesson> lessons;
+    private byte[] cachedLessons;
+
+    // What the endpoints actually serialize
+    private List<MessageView> messagePageViews;
+    private List<ChatView> chatViews;
+    private List<LessonView> lessonViews;
+
+    @Setup
+    public void setUp() {
+        User teacher = BenchmarkContext.newUser("teacher", User.Role.TEACHER);
+        teacher.setId(1L);
+        User student = BenchmarkContext.newUser("student", User.Role.STUDENT);
+        student.setId(2L);
+
+        chats = new ArrayList<>();
+        messagePage = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Chat chat = BenchmarkContext.newChat(teacher, student);
+            chat.setId((long) i);
+            chats.add(chat);
+            Message message = BenchmarkContext.newMessage(chats.get(0), i % 2 == 0 ? student : teacher, i);
+            message.setId((long) i);
+            messagePage.add(message);
+        }
+
+        lessons = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Lesson lesson = BenchmarkContext.newLesson(teacher, i);
+            lesson.setId((long) i);
+            lessons.add(lesson);
+        }
+        cachedLessons = redisSerializer.serialize(lessons);
+
+        messagePageViews = messagePage.stream().map(MessageView::from).toList();
+        chatViews = chats.stream().map(ChatView::from).toList();
+        lessonViews = lessons.stream().map(LessonView::from).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeMessagePage() throws Exception {
+        return objectMapper.writeValueAsBytes(messagePageViews);
+    }
+
+    @Benchmark
+    public byte[] serializeChatList() throws Exception {
+        return objectMapper.writeValueAsBytes(chatViews);
+    }
+
+    @Benchmark
+    public byte[] serializeLessonList() throws Exception {
+        return objectMapper.writeValueAsBytes(lessonViews);
+    }
+
+    @Benchmark
+    public byte[] redisSerializeLessons() {
+        return redisSerializer.serialize(lessons);
+    }
+
+    @Benchmark
+    public Object redisDeserializeLessons() {
+        return redisSerializer.deserialize(cachedLessons);
+    }
+}
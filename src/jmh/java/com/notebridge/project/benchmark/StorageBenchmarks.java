@@ -0,0 +1,74 @@
+package com.notebridge.project.benchmark;
+
+import com.notebridge.project.storage.LocalFileSystemStorageBackend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local storage backend throughput: one op writes or reads a whole object, so MB/s is the
+ * score times the object size. Writes go through the temp file and rename, reads through
+ * FileChannel.transferTo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmarks {
+
+    private static final int OBJECTS = 32;
+
+    @Param({"65536", "4194304"})
+    int objectBytes;
+
+    private Path root;
+    private LocalFileSystemStorageBackend backend;
+    private byte[] content;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("notebridge-storage-bench");
+        backend = new LocalFileSystemStorageBackend(root.toString());
+        content = new byte[objectBytes];
+        new Random(1).nextBytes(content);
+        for (int i = 0; i < OBJECTS; i++) {
+            backend.write("bench/" + i, null, new ByteArrayInputStream(content));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        backend.write("bench/" + (next++ % OBJECTS), null, new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public void read() throws IOException {
+        backend.read("bench/" + (next++ % OBJECTS), 0, objectBytes, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,97 @@
+package com.notebridge.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serve a burst of concurrent requests that each block on a remote call (storage,
+ * Redis), on a 200-thread platform pool like Tomcat's default versus a virtual thread per task.
+ * "virtual-pinned" blocks inside a monitor, which holds the carrier thread just like the old
+ * synchronized upload sessions did. No Spring context: this isolates the scheduling model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThreadingModeBenchmarks {
+
+    private static final int PLATFORM_POOL_SIZE = 200;
+    private static final long REMOTE_CALL_MILLIS = 20;
+
+    @Param({"platform", "virtual", "virtual-pinned"})
+    String mode;
+
+    @Param({"200", "2000"})
+    int concurrentRequests;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = mode.equals("platform")
+                ? Executors.newFixedThreadPool(PLATFORM_POOL_SIZE)
+                : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long burst() throws Exception {
+        boolean pinned = mode.equals("virtual-pinned");
+        List<Future<Long>> results = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            long seed = i;
+            results.add(executor.submit(() -> handleRequest(seed, pinned)));
+        }
+        long sum = 0;
+        for (Future<Long> result : results) {
+            sum += result.get();
+        }
+        return sum;
+    }
+
+    private static long handleRequest(long seed, boolean pinned) throws InterruptedException {
+        long value = work(seed);
+        if (pinned) {
+            Object monitor = new Object();
+            synchronized (monitor) {
+                Thread.sleep(REMOTE_CALL_MILLIS);
+            }
+        } else {
+            Thread.sleep(REMOTE_CALL_MILLIS);
+        }
+        return value + work(value);
+    }
+
+    // A little CPU on either side of the call, standing in for parsing and serialization
+    private static long work(long seed) {
+        long x = seed;
+        for (int i = 0; i < 2_000; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        return x;
+    }
+}
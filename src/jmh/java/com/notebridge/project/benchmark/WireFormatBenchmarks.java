@@ -0,0 +1,142 @@
+package com.notebridge.project.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.response.ChatView;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.response.MessageView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization CPU and payload size of the three list endpoints per wire format: "json" is
+ * the previous mapper (reflection, nulls written), "json-tuned" the JacksonConfig setup, then
+ * Smile and CBOR with the same tuning. Sizes, raw and gzipped, are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmarks {
+
+    @Param({"json", "json-tuned", "smile", "cbor"})
+    String format;
+
+    @Param({"messages", "chats", "lessons"})
+    String endpoint;
+
+    private ObjectMapper objectMapper;
+    private Object payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "json" -> new ObjectMapper().registerModule(new JavaTimeModule())
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+            case "json-tuned" -> tuned(new JsonFactory());
+            case "smile" -> tuned(new SmileFactory());
+            case "cbor" -> tuned(new CBORFactory());
+            default -> throw new IllegalArgumentException(format);
+        };
+        payload = switch (endpoint) {
+            case "messages" -> messagePage();
+            case "chats" -> chatList();
+            case "lessons" -> lessonList();
+            default -> throw new IllegalArgumentException(endpoint);
+        };
+
+        byte[] body = objectMapper.writeValueAsBytes(payload);
+        System.out.println(endpoint + " as " + format + ": " + body.length + " bytes, " + gzippedSize(body) + " gzipped");
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    private static ObjectMapper tuned(JsonFactory factory) {
+        return new ObjectMapper(factory)
+                .registerModule(new JavaTimeModule())
+                .registerModule(new BlackbirdModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    // A page of the chat history endpoint
+    private static List<MessageView> messagePage() {
+        User teacher = user("teacher", User.Role.TEACHER, 1L);
+        User student = user("student", User.Role.STUDENT, 2L);
+        Chat chat = BenchmarkContext.newChat(teacher, student);
+        chat.setId(1L);
+        List<MessageView> page = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Message message = BenchmarkContext.newMessage(chat, i % 2 == 0 ? student : teacher, i);
+            message.setId((long) i);
+            page.add(MessageView.from(message));
+        }
+        return page;
+    }
+
+    private static List<ChatView> chatList() {
+        User student = user("student", User.Role.STUDENT, 1L);
+        List<ChatView> chats = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Chat chat = BenchmarkContext.newChat(user("teacher" + i, User.Role.TEACHER, 100L + i), student);
+            chat.setId((long) i);
+            chats.add(ChatView.from(chat));
+        }
+        return chats;
+    }
+
+    private static List<LessonView> lessonList() {
+        List<LessonView> lessons = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Lesson lesson = BenchmarkContext.newLesson(user("teacher" + i % 10, User.Role.TEACHER, (long) i % 10), i);
+            lesson.setId((long) i);
+            lessons.add(LessonView.from(lesson));
+        }
+        return lessons;
+    }
+
+    private static User user(String username, User.Role role, long id) {
+        User user = BenchmarkContext.newUser(username, role);
+        user.setId(id);
+        return user;
+    }
+
+    private static int gzippedSize(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,104 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker for the Redis cache, shared by all caches since they share one server.
+ *
+ * Closed: every call goes to Redis; a run of consecutive failures opens the circuit. Open: no
+ * call goes to Redis until the open period has passed. Then one call is let through as a probe
+ * (half-open): success closes the circuit, failure opens it for another period. A probe that
+ * never reports back is replaced after one open period.
+ */
+public class CacheCircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+    private volatile long probeStartedAt;
+
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+    private final Counter rejected;
+
+    public CacheCircuitBreaker(int failureThreshold, long openMillis, MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+
+        for (State target : State.values()) {
+            transitions.put(target, Counter.builder("notebridge.cache.circuit.transitions")
+                    .tag("to", target.name().toLowerCase()).register(meterRegistry));
+        }
+        this.rejected = Counter.builder("notebridge.cache.circuit.rejected").register(meterRegistry);
+        // 0 closed, 1 half-open, 2 open
+        Gauge.builder("notebridge.cache.circuit.state", state, s -> s.get().ordinal()).register(meterRegistry);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return whether this call may go to Redis
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        if (current == State.OPEN && now - openedAt >= openMillis && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            probeStartedAt = now;
+            transitions.get(State.HALF_OPEN).increment();
+            return true;
+        }
+        if (current == State.HALF_OPEN && now - probeStartedAt >= openMillis) {
+            // The probe got lost (e.g. its thread was interrupted); let another call try
+            probeStartedAt = now;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        State current = state.get();
+        if (current != State.CLOSED && state.compareAndSet(current, State.CLOSED)) {
+            transitions.get(State.CLOSED).increment();
+            System.out.println("Redis cache circuit closed");
+        }
+    }
+
+    public void onFailure(Exception e) {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN, e);
+        } else if (current == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED, e);
+        }
+    }
+
+    private void open(State from, Exception e) {
+        openedAt = System.currentTimeMillis();
+        if (state.compareAndSet(from, State.OPEN)) {
+            consecutiveFailures.set(0);
+            transitions.get(State.OPEN).increment();
+            System.err.println("Redis cache circuit opened for " + openMillis + " ms: " + e.getMessage());
+        }
+    }
+}
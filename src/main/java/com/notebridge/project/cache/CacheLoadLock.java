@@ -0,0 +1,16 @@
+package com.notebridge.project.cache;
+
+import java.time.Duration;
+
+/**
+ * Lets one instance at a time compute a missing cache entry
+ */
+public interface CacheLoadLock {
+
+    /**
+     * @return a token to pass to {@link #unlock}, or null if another holder has the lock
+     */
+    String tryLock(String lockKey, Duration ttl);
+
+    void unlock(String lockKey, String token);
+}
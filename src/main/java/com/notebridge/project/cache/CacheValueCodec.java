@@ -0,0 +1,18 @@
+package com.notebridge.project.cache;
+
+import java.io.IOException;
+
+/**
+ * Turns cached values into bytes and back. The id is written into every stored value, so it
+ * must never change or be reused once a codec has been deployed.
+ */
+public interface CacheValueCodec {
+
+    byte getId();
+
+    String getName();
+
+    byte[] encode(Object value) throws IOException;
+
+    Object decode(byte[] bytes) throws IOException;
+}
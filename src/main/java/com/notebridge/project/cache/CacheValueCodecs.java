@@ -0,0 +1,145 @@
+package com.notebridge.project.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The codecs every instance can read, whichever one it writes with.
+ *
+ * "json" is the GenericJackson2JsonRedisSerializer format the caches used before, kept so it can
+ * still be selected and so entries written without a header stay readable. "smile" is binary
+ * JSON: property names and repeated strings (including the type ids) are written once per value
+ * and back-referenced after that, numbers and dates are binary, nulls are left out, and unknown
+ * properties are ignored, so adding or removing a field doesn't need a schema version bump.
+ */
+public final class CacheValueCodecs {
+
+    public static final CacheValueCodec JSON = new JsonCodec();
+    public static final CacheValueCodec SMILE = new SmileCodec();
+
+    private static final List<CacheValueCodec> ALL = List.of(JSON, SMILE);
+
+    private CacheValueCodecs() {
+    }
+
+    public static List<CacheValueCodec> all() {
+        return ALL;
+    }
+
+    public static CacheValueCodec byName(String name) {
+        for (CacheValueCodec codec : ALL) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cache codec: " + name);
+    }
+
+    /**
+     * @return the codec, or null if this build doesn't know the id (written by a newer version)
+     */
+    public static CacheValueCodec byId(byte id) {
+        for (CacheValueCodec codec : ALL) {
+            if (codec.getId() == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private static final class JsonCodec implements CacheValueCodec {
+        private final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+
+        @Override
+        public byte getId() {
+            return 1;
+        }
+
+        @Override
+        public String getName() {
+            return "json";
+        }
+
+        @Override
+        public byte[] encode(Object value) {
+            return serializer.serialize(value);
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            return serializer.deserialize(bytes);
+        }
+    }
+
+    private static final class SmileCodec implements CacheValueCodec {
+        private final ObjectMapper objectMapper;
+
+        SmileCodec() {
+            SmileFactory factory = new SmileFactory();
+            factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+
+            // Type ids are needed because a cache can hold any return type, but only our own
+            // classes and the JDK's may be instantiated from what's in Redis
+            BasicPolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+                    .allowIfSubType("com.notebridge.project.")
+                    .allowIfSubType("java.")
+                    .build();
+
+            this.objectMapper = new ObjectMapper(factory)
+                    .registerModule(new JavaTimeModule())
+                    .registerModule(new BlackbirdModule())
+                    .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .setDefaultTyping(new EverythingTypeResolverBuilder(typeValidator)
+                            .init(JsonTypeInfo.Id.CLASS, null)
+                            .inclusion(JsonTypeInfo.As.PROPERTY));
+        }
+
+        @Override
+        public byte getId() {
+            return 2;
+        }
+
+        @Override
+        public String getName() {
+            return "smile";
+        }
+
+        @Override
+        public byte[] encode(Object value) throws IOException {
+            return objectMapper.writeValueAsBytes(value);
+        }
+
+        @Override
+        public Object decode(byte[] bytes) throws IOException {
+            return objectMapper.readValue(bytes, Object.class);
+        }
+    }
+
+    // What the deprecated DefaultTyping.EVERYTHING did: type ids on every non-primitive value,
+    // records and other final classes included, so they read back as themselves
+    private static final class EverythingTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        EverythingTypeResolverBuilder(PolymorphicTypeValidator typeValidator) {
+            super(ObjectMapper.DefaultTyping.NON_FINAL, typeValidator);
+        }
+
+        @Override
+        public boolean useForType(JavaType type) {
+            return !type.isPrimitive();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.notebridge.project.cache;
+
+/**
+ * What {@link CoalescingCache} stores: the value plus what early refresh needs to know, namely
+ * when the entry expires and how long it took to compute.
+ */
+public record CachedValue(Object value, long expiresAtMillis, long computeMillis) {
+}
@@ -0,0 +1,262 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.dao.DataAccessException;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a Redis-backed cache from failing requests when Redis is down or slow.
+ *
+ * Redis errors (Spring's DataAccessException, which includes command and connect timeouts) are
+ * reported to the shared {@link CacheCircuitBreaker}. The failing call and every call while the
+ * circuit is open are served from a bounded local LRU instead, loading from the database on a
+ * local miss. Evictions that can't reach Redis are remembered and replayed once it's back, so an
+ * outage doesn't leave stale entries behind; past a limit the whole cache is cleared instead.
+ * The local entries are dropped when Redis recovers.
+ */
+public class CircuitBreakingCache implements Cache {
+
+    private static final int MAX_PENDING_EVICTIONS = 10_000;
+
+    private final Cache delegate;
+    private final CacheCircuitBreaker circuitBreaker;
+    private final LocalLruCache local;
+
+    private final Set<Object> pendingEvictions = ConcurrentHashMap.newKeySet();
+    private volatile boolean pendingClear;
+    private volatile boolean localInUse;
+
+    private final Counter redisFailures;
+    private final Counter localHits;
+    private final Counter localMisses;
+
+    public CircuitBreakingCache(Cache delegate, CacheCircuitBreaker circuitBreaker, int localMaxEntries,
+                                long localTtlMillis, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.local = new LocalLruCache(localMaxEntries, localTtlMillis);
+
+        String cacheName = delegate.getName();
+        this.redisFailures = Counter.builder("notebridge.cache.redis.failures").tag("cache", cacheName).register(meterRegistry);
+        this.localHits = Counter.builder("notebridge.cache.fallback.requests")
+                .tag("cache", cacheName).tag("result", "hit").register(meterRegistry);
+        this.localMisses = Counter.builder("notebridge.cache.fallback.requests")
+                .tag("cache", cacheName).tag("result", "miss").register(meterRegistry);
+        Gauge.builder("notebridge.cache.fallback.size", local, LocalLruCache::size)
+                .tag("cache", cacheName).register(meterRegistry);
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (circuitBreaker.allowRequest()) {
+            try {
+                syncPendingEvictions();
+                ValueWrapper wrapper = delegate.get(key);
+                succeeded();
+                return wrapper;
+            } catch (DataAccessException e) {
+                failed(e);
+            }
+        }
+        Object value = localGet(key);
+        return value != null ? new SimpleValueWrapper(value) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (type != null && value != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (circuitBreaker.allowRequest()) {
+            try {
+                syncPendingEvictions();
+                T value = delegate.get(key, valueLoader);
+                succeeded();
+                return value;
+            } catch (ValueRetrievalException e) {
+                // The loader failed, not Redis
+                succeeded();
+                throw e;
+            } catch (DataAccessException e) {
+                failed(e);
+            }
+        }
+
+        Object cached = localGet(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        local.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (circuitBreaker.allowRequest()) {
+            try {
+                syncPendingEvictions();
+                delegate.put(key, value);
+                succeeded();
+                return;
+            } catch (DataAccessException e) {
+                failed(e);
+            }
+        }
+        local.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (circuitBreaker.allowRequest()) {
+            try {
+                syncPendingEvictions();
+                ValueWrapper existing = delegate.putIfAbsent(key, value);
+                succeeded();
+                return existing;
+            } catch (DataAccessException e) {
+                failed(e);
+            }
+        }
+        Object existing = localGet(key);
+        if (existing != null) {
+            return new SimpleValueWrapper(existing);
+        }
+        local.put(key, value);
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictIfPresent(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        local.evict(key);
+        if (circuitBreaker.allowRequest()) {
+            try {
+                syncPendingEvictions();
+                boolean evicted = delegate.evictIfPresent(key);
+                succeeded();
+                return evicted;
+            } catch (DataAccessException e) {
+                failed(e);
+            }
+        }
+        rememberEviction(key);
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        invalidate();
+    }
+
+    @Override
+    public boolean invalidate() {
+        local.clear();
+        if (circuitBreaker.allowRequest()) {
+            try {
+                boolean invalidated = delegate.invalidate();
+                pendingClear = false;
+                pendingEvictions.clear();
+                succeeded();
+                return invalidated;
+            } catch (DataAccessException e) {
+                failed(e);
+            }
+        }
+        pendingClear = true;
+        return false;
+    }
+
+    private Object localGet(Object key) {
+        localInUse = true;
+        Object value = local.get(key);
+        if (value != null) {
+            localHits.increment();
+        } else {
+            localMisses.increment();
+        }
+        return value;
+    }
+
+    private void rememberEviction(Object key) {
+        if (pendingClear) {
+            return;
+        }
+        pendingEvictions.add(key);
+        if (pendingEvictions.size() > MAX_PENDING_EVICTIONS) {
+            // Too many to replay one by one; start the cache over once Redis is back
+            pendingClear = true;
+            pendingEvictions.clear();
+        }
+    }
+
+    // Runs before each Redis call, so nothing is read from Redis that was evicted during the outage
+    private void syncPendingEvictions() {
+        if (pendingClear) {
+            delegate.clear();
+            pendingClear = false;
+            pendingEvictions.clear();
+        }
+        if (!pendingEvictions.isEmpty()) {
+            for (Object key : pendingEvictions) {
+                delegate.evict(key);
+                pendingEvictions.remove(key);
+            }
+        }
+    }
+
+    private void succeeded() {
+        circuitBreaker.onSuccess();
+        if (localInUse) {
+            localInUse = false;
+            local.clear();
+        }
+    }
+
+    private void failed(DataAccessException e) {
+        redisFailures.increment();
+        circuitBreaker.onFailure(e);
+    }
+}
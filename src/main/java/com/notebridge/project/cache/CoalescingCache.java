@@ -0,0 +1,336 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a cache so a popular key expiring costs one load instead of one per waiting request.
+ *
+ * - Single flight: concurrent misses for a key on this instance share one load, and across
+ *   instances a short {@link CacheLoadLock} lets one of them compute while the others poll the
+ *   cache for its result (or give up waiting and load themselves).
+ * - Early refresh: each hit may, with a probability that grows towards expiry and with how long
+ *   the value took to compute (the XFetch rule), reload the entry in the background while the
+ *   current value is still served.
+ * - Jitter: each entry gets its own expiry from {@link JitteredTtl}.
+ *
+ * Only lookups that come with a loader are coalesced, i.e. @Cacheable(sync = true).
+ */
+public class CoalescingCache implements Cache {
+
+    private static final long POLL_INTERVAL_MILLIS = 25;
+    // Stands in for a lock token when the lock store is unreachable
+    private static final String NOT_LOCKED = "";
+
+    private final Cache delegate;
+    private final JitteredTtl ttl;
+    private final CacheLoadLock loadLock;
+    private final Executor refreshExecutor;
+    private final double earlyRefreshBeta;
+    private final Duration lockTtl;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Timer loads;
+    private final Counter coalescedLocal;
+    private final Counter coalescedRemote;
+    private final Counter refreshesScheduled;
+    private final Counter refreshesDropped;
+
+    /**
+     * @param earlyRefreshBeta XFetch beta; 0 turns early refresh off, above 1 favours refreshing earlier
+     * @param lockTtl how long another instance's load is waited for before loading anyway
+     * @param clock what entry expiries are set and checked against
+     */
+    public CoalescingCache(Cache delegate, JitteredTtl ttl, CacheLoadLock loadLock, Executor refreshExecutor,
+                           double earlyRefreshBeta, Duration lockTtl, Clock clock, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ttl = ttl;
+        this.loadLock = loadLock;
+        this.refreshExecutor = refreshExecutor;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.lockTtl = lockTtl;
+        this.clock = clock;
+
+        String cacheName = delegate.getName();
+        this.loads = Timer.builder("notebridge.cache.loads").tag("cache", cacheName).register(meterRegistry);
+        this.coalescedLocal = Counter.builder("notebridge.cache.coalesced")
+                .tag("cache", cacheName).tag("scope", "local").register(meterRegistry);
+        this.coalescedRemote = Counter.builder("notebridge.cache.coalesced")
+                .tag("cache", cacheName).tag("scope", "remote").register(meterRegistry);
+        this.refreshesScheduled = Counter.builder("notebridge.cache.early.refreshes")
+                .tag("cache", cacheName).tag("result", "scheduled").register(meterRegistry);
+        this.refreshesDropped = Counter.builder("notebridge.cache.early.refreshes")
+                .tag("cache", cacheName).tag("result", "dropped").register(meterRegistry);
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CachedValue cached = lookup(key);
+        return cached != null ? new SimpleValueWrapper(cached.value()) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        CachedValue cached = lookup(key);
+        if (cached == null) {
+            return null;
+        }
+        if (type != null && !type.isInstance(cached.value())) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + cached.value());
+        }
+        return (T) cached.value();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CachedValue cached = lookup(key);
+        if (cached != null) {
+            if (shouldRefreshEarly(cached)) {
+                refreshInBackground(key, valueLoader);
+            }
+            return (T) cached.value();
+        }
+
+        CompletableFuture<Object> fill = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, fill);
+        if (existing != null) {
+            coalescedLocal.increment();
+            return (T) await(existing, key, valueLoader);
+        }
+
+        try {
+            Object value = loadOnce(key, valueLoader);
+            fill.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            fill.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, fill);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            delegate.put(key, null);
+            return;
+        }
+        delegate.put(key, wrap(value, 0));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, value != null ? wrap(value, 0) : null);
+        if (existing != null && existing.get() instanceof CachedValue cached) {
+            return new SimpleValueWrapper(cached.value());
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    private Object loadOnce(Object key, Callable<?> valueLoader) {
+        // Another thread may have filled the entry between the lookup and claiming the slot
+        CachedValue cached = lookup(key);
+        if (cached != null) {
+            return cached.value();
+        }
+
+        String lockKey = lockKey(key);
+        String token = tryLock(lockKey);
+        if (token == null) {
+            cached = awaitOtherInstance(key);
+            if (cached != null) {
+                coalescedRemote.increment();
+                return cached.value();
+            }
+        }
+        try {
+            // The previous holder may have stored the value just before we got the lock
+            if (token != null && (cached = lookup(key)) != null) {
+                return cached.value();
+            }
+            return loadAndStore(key, valueLoader);
+        } finally {
+            unlock(lockKey, token);
+        }
+    }
+
+    private Object loadAndStore(Object key, Callable<?> valueLoader) {
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        long computeNanos = System.nanoTime() - start;
+        loads.record(computeNanos, TimeUnit.NANOSECONDS);
+
+        if (value != null) {
+            delegate.put(key, wrap(value, TimeUnit.NANOSECONDS.toMillis(computeNanos)));
+        }
+        return value;
+    }
+
+    // XFetch: refresh when now - delta * beta * ln(random) reaches the expiry
+    private boolean shouldRefreshEarly(CachedValue cached) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        long delta = Math.max(1, cached.computeMillis());
+        return clock.millis() - delta * earlyRefreshBeta * Math.log(random) >= cached.expiresAtMillis();
+    }
+
+    private void refreshInBackground(Object key, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                String lockKey = lockKey(key);
+                String token = tryLock(lockKey);
+                try {
+                    // Another instance is already refreshing this key
+                    if (token != null) {
+                        loadAndStore(key, valueLoader);
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Early refresh of " + getName() + " entry " + key + " failed: " + e.getMessage());
+                } finally {
+                    unlock(lockKey, token);
+                    refreshing.remove(key);
+                }
+            });
+            refreshesScheduled.increment();
+        } catch (RejectedExecutionException e) {
+            // The entry is still valid, and a miss after expiry is coalesced anyway
+            refreshing.remove(key);
+            refreshesDropped.increment();
+        }
+    }
+
+    // Another instance holds the lock: wait for its value rather than hitting the database too
+    private CachedValue awaitOtherInstance(Object key) {
+        long deadline = System.nanoTime() + lockTtl.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CachedValue cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private String tryLock(String lockKey) {
+        try {
+            return loadLock.tryLock(lockKey, lockTtl);
+        } catch (RuntimeException e) {
+            // Without the lock we only lose cross-instance coalescing
+            return NOT_LOCKED;
+        }
+    }
+
+    private void unlock(String lockKey, String token) {
+        if (token == null || token == NOT_LOCKED) {
+            return;
+        }
+        try {
+            loadLock.unlock(lockKey, token);
+        } catch (RuntimeException e) {
+            // Expires on its own
+        }
+    }
+
+    private CachedValue lookup(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object stored = wrapper.get();
+        // Written before values were wrapped: serve it, it expires on its old TTL
+        return stored instanceof CachedValue cached ? cached : new CachedValue(stored, Long.MAX_VALUE, 0);
+    }
+
+    private CachedValue wrap(Object value, long computeMillis) {
+        return new CachedValue(value, clock.millis() + ttl.next().toMillis(), computeMillis);
+    }
+
+    private String lockKey(Object key) {
+        return "lock::" + getName() + "::" + key;
+    }
+
+    private Object await(CompletableFuture<Object> fill, Object key, Callable<?> valueLoader) {
+        try {
+            return fill.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.notebridge.project.cache;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads expiry by up to ±jitter of the base TTL, so entries filled together (after a deploy or
+ * a flush) don't all expire together. A {@link CachedValue} already carries its jittered expiry,
+ * and the Redis TTL follows it.
+ */
+public class JitteredTtl implements RedisCacheWriter.TtlFunction {
+
+    private final Duration base;
+    private final double jitter;
+
+    public JitteredTtl(Duration base, double jitter) {
+        this.base = base;
+        this.jitter = jitter;
+    }
+
+    public Duration getBase() {
+        return base;
+    }
+
+    @Override
+    public Duration getTimeToLive(Object key, Object value) {
+        if (value instanceof CachedValue cached) {
+            return Duration.ofMillis(Math.max(1, cached.expiresAtMillis() - System.currentTimeMillis()));
+        }
+        return next();
+    }
+
+    public Duration next() {
+        if (jitter <= 0) {
+            return base;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Duration.ofMillis(Math.max(1, (long) (base.toMillis() * factor)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.notebridge.project.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small in-process LRU with a fixed time to live, used while Redis is unreachable. Entries
+ * expire quickly since nothing invalidates them across instances.
+ */
+class LocalLruCache {
+
+    private record Entry(Object value, long expiresAtMillis) {
+    }
+
+    private final long ttlMillis;
+    private final LinkedHashMap<Object, Entry> entries;
+
+    LocalLruCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        // Access-ordered, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the value, or null if absent or expired
+     */
+    synchronized Object get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    synchronized void put(Object key, Object value) {
+        if (value != null) {
+            entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    synchronized void evict(Object key) {
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
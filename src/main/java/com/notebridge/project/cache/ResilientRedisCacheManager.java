@@ -0,0 +1,74 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redis cache manager whose caches are wrapped twice: in {@link CoalescingCache} against
+ * stampedes, and outside that in {@link CircuitBreakingCache}, so Redis failures fall back to a
+ * local cache. Early refreshes run on a small pool owned by the manager; when it's full,
+ * refreshes are skipped.
+ */
+public class ResilientRedisCacheManager extends RedisCacheManager implements DisposableBean {
+
+    private final CacheLoadLock loadLock;
+    private final double earlyRefreshBeta;
+    private final Duration lockTtl;
+    private final CacheCircuitBreaker circuitBreaker;
+    private final int fallbackMaxEntries;
+    private final long fallbackTtlMillis;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public ResilientRedisCacheManager(RedisCacheWriter cacheWriter, RedisCacheConfiguration defaultCacheConfiguration,
+                                      Map<String, RedisCacheConfiguration> initialCacheConfigurations,
+                                      CacheLoadLock loadLock, double earlyRefreshBeta, Duration lockTtl,
+                                      int refreshWorkers, int refreshQueueCapacity,
+                                      CacheCircuitBreaker circuitBreaker, int fallbackMaxEntries, long fallbackTtlMillis,
+                                      MeterRegistry meterRegistry) {
+        super(cacheWriter, defaultCacheConfiguration, true, initialCacheConfigurations);
+        this.loadLock = loadLock;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.lockTtl = lockTtl;
+        this.circuitBreaker = circuitBreaker;
+        this.fallbackMaxEntries = fallbackMaxEntries;
+        this.fallbackTtlMillis = fallbackTtlMillis;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(refreshWorkers, refreshWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    protected Cache decorateCache(Cache cache) {
+        if (cache instanceof RedisCache redisCache && redisCache.getCacheConfiguration().getTtlFunction() instanceof JitteredTtl ttl) {
+            cache = new CoalescingCache(redisCache, ttl, loadLock, refreshExecutor, earlyRefreshBeta, lockTtl,
+                    Clock.systemUTC(), meterRegistry);
+        }
+        cache = new CircuitBreakingCache(cache, circuitBreaker, fallbackMaxEntries, fallbackTtlMillis, meterRegistry);
+        return super.decorateCache(cache);
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdown();
+    }
+}
@@ -0,0 +1,186 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis value serializer for one cache: encodes with the cache's codec, LZ4-compresses values
+ * above a threshold, and prefixes a small header so any instance can tell how a value was
+ * written.
+ *
+ * Layout: magic byte, codec id, flags, then for compressed values the uncompressed length as
+ * an int, then the payload. Values without the magic byte are from before the header existed
+ * and are read as JSON. A value this instance can't read (a codec id from a newer build, or a
+ * payload that no longer matches the classes) is reported as a miss, so it gets recomputed and
+ * overwritten instead of failing the request. Incompatible class changes are handled by the
+ * schema version in the key prefix (see RedisCacheConfig), which keeps old and new instances
+ * from reading each other's entries at all during a rolling deploy.
+ */
+public class VersionedRedisSerializer implements RedisSerializer<Object> {
+
+    // Never the first byte of a JSON document
+    static final byte MAGIC = (byte) 0xC5;
+    static final int FLAG_LZ4 = 1;
+    private static final int HEADER_LENGTH = 3;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final CacheValueCodec codec;
+    private final LZ4Compressor compressor;
+    private final int compressionThreshold;
+    private final double comparisonSampleRate;
+
+    private final Map<String, Timer> encodeTimers = new HashMap<>();
+    private final Map<String, Timer> decodeTimers = new HashMap<>();
+    private final Map<String, DistributionSummary> encodedSizes = new HashMap<>();
+    private final DistributionSummary storedSize;
+    private final Counter unknownCodec;
+    private final Counter decodeFailures;
+
+    /**
+     * @param compressionThreshold encoded size in bytes from which values are compressed; negative disables compression
+     * @param comparisonSampleRate fraction of writes also encoded as JSON, only to record its size and time
+     */
+    public VersionedRedisSerializer(String cacheName, CacheValueCodec codec, int compressionThreshold,
+                                    double comparisonSampleRate, MeterRegistry meterRegistry) {
+        this.codec = codec;
+        this.compressor = compressionThreshold >= 0 ? LZ4.fastCompressor() : null;
+        this.compressionThreshold = compressionThreshold;
+        this.comparisonSampleRate = codec == CacheValueCodecs.JSON ? 0 : comparisonSampleRate;
+
+        for (CacheValueCodec known : CacheValueCodecs.all()) {
+            String codecName = known.getName();
+            encodeTimers.put(codecName, Timer.builder("notebridge.cache.codec.encode")
+                    .tag("cache", cacheName).tag("codec", codecName).register(meterRegistry));
+            decodeTimers.put(codecName, Timer.builder("notebridge.cache.codec.decode")
+                    .tag("cache", cacheName).tag("codec", codecName).register(meterRegistry));
+            encodedSizes.put(codecName, DistributionSummary.builder("notebridge.cache.value.encoded")
+                    .tag("cache", cacheName).tag("codec", codecName).baseUnit("bytes").register(meterRegistry));
+        }
+        this.storedSize = DistributionSummary.builder("notebridge.cache.value.stored")
+                .tag("cache", cacheName).tag("codec", codec.getName()).baseUnit("bytes").register(meterRegistry);
+        this.unknownCodec = Counter.builder("notebridge.cache.value.discarded")
+                .tag("cache", cacheName).tag("reason", "unknown-codec").register(meterRegistry);
+        this.decodeFailures = Counter.builder("notebridge.cache.value.discarded")
+                .tag("cache", cacheName).tag("reason", "decode-failure").register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] encoded = encode(codec, value);
+        if (comparisonSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < comparisonSampleRate) {
+            encode(CacheValueCodecs.JSON, value);
+        }
+
+        byte[] stored = null;
+        if (compressor != null && encoded.length >= compressionThreshold) {
+            stored = compress(encoded);
+        }
+        if (stored == null) {
+            stored = new byte[HEADER_LENGTH + encoded.length];
+            stored[0] = MAGIC;
+            stored[1] = codec.getId();
+            System.arraycopy(encoded, 0, stored, HEADER_LENGTH, encoded.length);
+        }
+        storedSize.record(stored.length);
+        return stored;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return decode(CacheValueCodecs.JSON, bytes);
+        }
+        if (bytes.length < HEADER_LENGTH) {
+            decodeFailures.increment();
+            return null;
+        }
+
+        CacheValueCodec writtenWith = CacheValueCodecs.byId(bytes[1]);
+        if (writtenWith == null) {
+            unknownCodec.increment();
+            return null;
+        }
+        try {
+            byte[] payload = (bytes[2] & FLAG_LZ4) != 0
+                    ? decompress(bytes)
+                    : Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+            return decode(writtenWith, payload);
+        } catch (RuntimeException e) {
+            decodeFailures.increment();
+            return null;
+        }
+    }
+
+    private byte[] encode(CacheValueCodec encoder, Object value) {
+        long start = System.nanoTime();
+        try {
+            byte[] encoded = encoder.encode(value);
+            encodeTimers.get(encoder.getName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            encodedSizes.get(encoder.getName()).record(encoded.length);
+            return encoded;
+        } catch (Exception e) {
+            throw new SerializationException("Could not encode cache value with " + encoder.getName(), e);
+        }
+    }
+
+    private Object decode(CacheValueCodec decoder, byte[] payload) {
+        long start = System.nanoTime();
+        try {
+            Object value = decoder.decode(payload);
+            decodeTimers.get(decoder.getName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return value;
+        } catch (Exception e) {
+            // Most likely written by a build with different classes; treat it as a miss
+            decodeFailures.increment();
+            return null;
+        }
+    }
+
+    // Null when compressing doesn't pay off, so the value is stored as is
+    private byte[] compress(byte[] encoded) {
+        int headerLength = HEADER_LENGTH + Integer.BYTES;
+        byte[] buffer = new byte[headerLength + compressor.maxCompressedLength(encoded.length)];
+        int compressedLength = compressor.compress(encoded, 0, encoded.length, buffer, headerLength);
+        if (headerLength + compressedLength >= HEADER_LENGTH + encoded.length) {
+            return null;
+        }
+        buffer[0] = MAGIC;
+        buffer[1] = codec.getId();
+        buffer[2] = FLAG_LZ4;
+        ByteBuffer.wrap(buffer, HEADER_LENGTH, Integer.BYTES).putInt(encoded.length);
+        return Arrays.copyOf(buffer, headerLength + compressedLength);
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        int length = ByteBuffer.wrap(bytes, HEADER_LENGTH, Integer.BYTES).getInt();
+        int offset = HEADER_LENGTH + Integer.BYTES;
+        // The bounds-checked decompressor, since the bytes come from outside the process
+        byte[] payload = new byte[length];
+        int decompressed = LZ4.safeDecompressor().decompress(bytes, offset, bytes.length - offset, payload, 0, length);
+        if (decompressed != length) {
+            throw new IllegalStateException("Expected " + length + " bytes after decompression, got " + decompressed);
+        }
+        return payload;
+    }
+}
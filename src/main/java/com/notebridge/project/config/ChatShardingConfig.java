@@ -0,0 +1,93 @@
+package com.notebridge.project.config;
+
+import com.notebridge.project.shard.ChatShardSchema;
+import com.notebridge.project.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Chats and messages are spread over the databases in notebridge.sharding.chats.urls (see
+ * ChatShardRouter). Shard pools copy the primary pool's settings. The shards can be schemas on
+ * one local MySQL server, e.g. jdbc:mysql://localhost:3306/notebridge_chats_0.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notebridge.sharding.chats.enabled", havingValue = "true")
+public class ChatShardingConfig {
+
+    // Static so it's registered before the DataSource bean. Applied right after replica routing,
+    // so the primary keeps its replicas and query counting still wraps the outside
+    @Bean
+    public static BeanPostProcessor shardRoutingDataSource(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new HighestPrecedenceBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource primary) || bean instanceof ShardRoutingDataSource) {
+                    return bean;
+                }
+                HikariDataSource primaryPool = primaryPool(primary);
+                if (primaryPool == null) {
+                    return bean;
+                }
+                List<DataSource> shards = createShardPools(primaryPool, environment, meterRegistry.getObject());
+                if (environment.getProperty("notebridge.sharding.chats.initialize-schema", Boolean.class, true)) {
+                    for (int i = 0; i < shards.size(); i++) {
+                        try {
+                            ChatShardSchema.apply(shards.get(i), i);
+                        } catch (Exception e) {
+                            throw new BeanInitializationException("Failed to create the chat tables on shard " + i, e);
+                        }
+                    }
+                }
+                return new ShardRoutingDataSource(primary, shards);
+            }
+
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE + 1;
+            }
+        };
+    }
+
+    // The primary pool, possibly already wrapped in replica routing
+    private static HikariDataSource primaryPool(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource pool) {
+            return pool;
+        }
+        if (dataSource instanceof DelegatingDataSource delegating) {
+            return primaryPool(delegating.getTargetDataSource());
+        }
+        return null;
+    }
+
+    private static List<DataSource> createShardPools(HikariDataSource primary, Environment environment,
+                                                     MeterRegistry meterRegistry) {
+        String[] urls = environment.getProperty("notebridge.sharding.chats.urls", String[].class, new String[0]);
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setPoolName("chat-shard-" + i);
+            config.setJdbcUrl(urls[i].trim());
+            config.setUsername(environment.getProperty("notebridge.sharding.chats.username", primary.getUsername()));
+            config.setPassword(environment.getProperty("notebridge.sharding.chats.password", primary.getPassword()));
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(new HikariDataSource(config));
+        }
+        return shards;
+    }
+}
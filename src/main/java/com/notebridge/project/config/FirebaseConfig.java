@@ -1,17 +1,23 @@
 package com.notebridge.project.config;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import com.google.common.collect.Lists;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ResourceLoader;
 
 import java.io.IOException;
 import java.io.InputStream;
 
+// Only loaded for the Firebase storage backend, so local/CI runs need no service account key
 @Configuration
+@ConditionalOnProperty(name = "notebridge.storage.backend", havingValue = "firebase", matchIfMissing = true)
 public class FirebaseConfig {
 
     @Value("${firebase.project-id}")
@@ -24,16 +30,25 @@ public class FirebaseConfig {
     private String credentialsPath;
 
     @Bean
-    FirebaseApp firebaseApp() throws IOException {
-        ClassPathResource resource = new ClassPathResource("serviceAccountKey.json");
-        InputStream serviceAccount = resource.getInputStream();
+    FirebaseApp firebaseApp(ResourceLoader resourceLoader) throws IOException {
+        try (InputStream serviceAccount = resourceLoader.getResource(credentialsPath).getInputStream()) {
+            FirebaseOptions options = FirebaseOptions.builder()
+                    .setProjectId(projectId)
+                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                    .setStorageBucket(storageBucket)
+                    .build();
+
+            return FirebaseApp.initializeApp(options);
+        }
+    }
 
-        FirebaseOptions options = FirebaseOptions.builder()
-                .setProjectId(projectId)
-                .setCredentials(GoogleCredentials.fromStream(serviceAccount))
-                .setStorageBucket(storageBucket)
-                .build();
+    @Bean
+    Storage storage(ResourceLoader resourceLoader) throws IOException {
+        try (InputStream serviceAccount = resourceLoader.getResource(credentialsPath).getInputStream()) {
+            GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount)
+                    .createScoped(Lists.newArrayList("https://www.googleapis.com/auth/cloud-platform"));
 
-        return FirebaseApp.initializeApp(options);
+            return StorageOptions.newBuilder().setCredentials(credentials).build().getService();
+        }
     }
-}
\ No newline at end of file
+}
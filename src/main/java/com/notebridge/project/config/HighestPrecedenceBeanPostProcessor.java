@@ -0,0 +1,16 @@
+package com.notebridge.project.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+/**
+ * For decorators that must be applied before the unordered ones (metrics, query counting),
+ * so those end up wrapping the outside of the chain
+ */
+interface HighestPrecedenceBeanPostProcessor extends BeanPostProcessor, Ordered {
+
+    @Override
+    default int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,40 @@
+package com.notebridge.project.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/*
+ * One Jackson setup for every wire format. Boot registers Module beans with its shared
+ * ObjectMapper builder, and the binary converters below are built from that same builder, so
+ * JSON, Smile and CBOR all get the same modules and spring.jackson.* settings.
+ *
+ * JSON stays the default: these converters replace the stock Smile/CBOR ones at their place
+ * after the JSON converter, so only clients sending Accept: application/x-jackson-smile or
+ * application/cbor get a binary body.
+ */
+@Configuration
+public class JacksonConfig {
+
+    // Generated accessors instead of reflection for every property read and write
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
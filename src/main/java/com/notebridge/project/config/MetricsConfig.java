@@ -0,0 +1,38 @@
+package com.notebridge.project.config;
+
+import com.notebridge.project.storage.MeteredStorageBackend;
+import com.notebridge.project.storage.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/*
+ * Most meters come from Boot auto-configuration once the Prometheus registry is on the classpath:
+ * - http.server.requests: per controller endpoint (uri tag), with histogram buckets
+ * - spring.data.repository.invocations: per repository method
+ * - hibernate.*: query executions, entity loads/fetches, second-level cache (hibernate-micrometer)
+ * - cache.gets / cache.puts: per Redis cache, once statistics are enabled in RedisCacheConfig
+ * - hikaricp.connections.*: active, idle, pending threads and acquire time
+ * This class adds what Boot can't know about.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Static so it's registered before the storage backend beans are created
+    @Bean
+    public static BeanPostProcessor storageBackendMetrics(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof StorageBackend backend && !(bean instanceof MeteredStorageBackend)) {
+                    String backendName = environment.getProperty("notebridge.storage.backend", "firebase");
+                    return new MeteredStorageBackend(backend, backendName, meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
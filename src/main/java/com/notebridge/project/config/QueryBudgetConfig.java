@@ -0,0 +1,45 @@
+package com.notebridge.project.config;
+
+import com.notebridge.project.sql.QueryBudgetFilter;
+import com.notebridge.project.sql.QueryCountingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "notebridge.query-budget.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryBudgetConfig {
+
+    // Static so it's registered before the DataSource bean is created
+    @Bean
+    public static BeanPostProcessor queryCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? QueryCountingDataSource.wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(
+            MeterRegistry meterRegistry,
+            @Value("${notebridge.query-budget.default:10}") int defaultBudget,
+            @Value("${notebridge.query-budget.endpoints:}") String endpointBudgets,
+            @Value("${notebridge.query-budget.repeat-threshold:5}") int repeatThreshold) {
+        QueryBudgetFilter filter = new QueryBudgetFilter(defaultBudget, QueryBudgetFilter.parseBudgets(endpointBudgets),
+                repeatThreshold, meterRegistry);
+        FilterRegistrationBean<QueryBudgetFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        // Ahead of the security chain, so statements it runs count too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -1,12 +1,27 @@
 package com.notebridge.project.config;
 
+import com.notebridge.project.cache.CacheValueCodecs;
+import com.notebridge.project.cache.CacheCircuitBreaker;
+import com.notebridge.project.cache.CircuitBreakingCache;
+import com.notebridge.project.cache.CoalescingCache;
+import com.notebridge.project.cache.JitteredTtl;
+import com.notebridge.project.cache.RedisCacheLoadLock;
+import com.notebridge.project.cache.ResilientRedisCacheManager;
+import com.notebridge.project.cache.VersionedRedisSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -17,23 +32,94 @@ import java.util.Map;
 @Configuration
 public class RedisCacheConfig {
 
+    private final MeterRegistry meterRegistry;
+    private final String defaultCodec;
+    private final Map<String, String> codecsByCache;
+    private final int compressionThreshold;
+    private final double comparisonSampleRate;
+    private final int schemaVersion;
+    private final double ttlJitter;
+
+    public RedisCacheConfig(MeterRegistry meterRegistry,
+                            @Value("${notebridge.cache.codec.default:smile}") String defaultCodec,
+                            @Value("${notebridge.cache.codec.per-cache:}") String codecsByCache,
+                            @Value("${notebridge.cache.compression-threshold-bytes:1024}") int compressionThreshold,
+                            @Value("${notebridge.cache.codec.comparison-sample-rate:0.01}") double comparisonSampleRate,
+                            @Value("${notebridge.cache.schema-version:1}") int schemaVersion,
+                            @Value("${notebridge.cache.ttl-jitter:0.1}") double ttlJitter) {
+        this.meterRegistry = meterRegistry;
+        this.defaultCodec = defaultCodec;
+        this.codecsByCache = parseCodecs(codecsByCache);
+        this.compressionThreshold = compressionThreshold;
+        this.comparisonSampleRate = comparisonSampleRate;
+        this.schemaVersion = schemaVersion;
+        this.ttlJitter = ttlJitter;
+    }
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
-        // Default cache configuration
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, StringRedisTemplate redisTemplate,
+                                     @Value("${notebridge.cache.early-refresh-beta:1.0}") double earlyRefreshBeta,
+                                     @Value("${notebridge.cache.load-lock-ms:3000}") long loadLockMillis,
+                                     @Value("${notebridge.cache.refresh.workers:2}") int refreshWorkers,
+                                     @Value("${notebridge.cache.refresh.queue-capacity:100}") int refreshQueueCapacity,
+                                     @Value("${notebridge.cache.circuit.failure-threshold:5}") int failureThreshold,
+                                     @Value("${notebridge.cache.circuit.open-ms:10000}") long openMillis,
+                                     @Value("${notebridge.cache.fallback.max-entries:1000}") int fallbackMaxEntries,
+                                     @Value("${notebridge.cache.fallback.ttl-ms:30000}") long fallbackTtlMillis) {
+        // Default cache configuration. The schema version in the key prefix means a deploy that
+        // changes cached classes incompatibly starts on empty keys instead of reading old ones.
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(30))
+                .entryTtl(new JitteredTtl(Duration.ofMinutes(30), ttlJitter))
+                .computePrefixWith(cacheName -> cacheName + "::v" + schemaVersion + "::")
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
                 .disableCachingNullValues();
 
         // Configure specific cache TTLs
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-        cacheConfigurations.put("users", defaultConfig.entryTtl(Duration.ofMinutes(60)));
-        cacheConfigurations.put("lessons", defaultConfig.entryTtl(Duration.ofMinutes(15)));
+        cacheConfigurations.put("users", withValueCodec(defaultConfig.entryTtl(new JitteredTtl(Duration.ofMinutes(60), ttlJitter)), "users"));
+        cacheConfigurations.put("lessons", withValueCodec(defaultConfig.entryTtl(new JitteredTtl(Duration.ofMinutes(15), ttlJitter)), "lessons"));
+
+        // Hit/miss/put counters per cache, exported as cache.gets and cache.puts
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory)
+                .withStatisticsCollector(CacheStatisticsCollector.create());
+
+        // Caches not listed above share the default serializer, so their codec meters are tagged cache=default
+        return new ResilientRedisCacheManager(cacheWriter, withValueCodec(defaultConfig, "default"), cacheConfigurations,
+                new RedisCacheLoadLock(redisTemplate), earlyRefreshBeta, Duration.ofMillis(loadLockMillis),
+                refreshWorkers, refreshQueueCapacity,
+                new CacheCircuitBreaker(failureThreshold, openMillis, meterRegistry), fallbackMaxEntries, fallbackTtlMillis,
+                meterRegistry);
+    }
+
+    // Boot only binds cache.gets/cache.puts for caches it recognises, so look through the wrappers
+    @Bean
+    public CacheMeterBinderProvider<CircuitBreakingCache> resilientCacheMeterBinderProvider() {
+        return (cache, tags) -> {
+            Cache inner = cache.getDelegate() instanceof CoalescingCache coalescing ? coalescing.getDelegate() : cache.getDelegate();
+            return inner instanceof RedisCache redisCache ? new RedisCacheMetrics(redisCache, tags) : null;
+        };
+    }
+
+    private RedisCacheConfiguration withValueCodec(RedisCacheConfiguration config, String cacheName) {
+        String codec = codecsByCache.getOrDefault(cacheName, defaultCodec);
+        VersionedRedisSerializer serializer = new VersionedRedisSerializer(cacheName, CacheValueCodecs.byName(codec),
+                compressionThreshold, comparisonSampleRate, meterRegistry);
+        return config.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+    }
 
-        return RedisCacheManager.builder(redisConnectionFactory)
-                .cacheDefaults(defaultConfig)
-                .withInitialCacheConfigurations(cacheConfigurations)
-                .build();
+    // "users=json, lessons=smile"
+    private static Map<String, String> parseCodecs(String value) {
+        Map<String, String> codecs = new HashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected cache=codec but got: " + entry.trim());
+            }
+            codecs.put(parts[0].trim(), parts[1].trim());
+        }
+        return codecs;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.notebridge.project.config;
+
+import com.notebridge.project.sql.ReadYourWritesFilter;
+import com.notebridge.project.sql.ReplicaRoutingDataSource;
+import com.notebridge.project.sql.ReplicaSet;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Read-only transactions go to the replicas in notebridge.datasource.replicas.urls. Boot still
+ * builds the primary pool from spring.datasource.*; replica pools copy its settings. Replicas
+ * lagging more than max-lag-ms are skipped until they catch up, and a user who just wrote
+ * something reads from the primary for sticky-ms.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notebridge.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    // Static so it's registered before the DataSource bean; ordered ahead of the query counting
+    // wrapper, which then wraps the routing proxy and counts each statement once
+    @Bean
+    public static BeanPostProcessor replicaRoutingDataSource(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new HighestPrecedenceBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource primary)) {
+                    return bean;
+                }
+                MeterRegistry registry = meterRegistry.getObject();
+                ReplicaSet replicaSet = new ReplicaSet(primary, createReplicaPools(primary, environment, registry),
+                        environment.getProperty("notebridge.datasource.replicas.max-lag-ms", Long.class, 3000L),
+                        environment.getProperty("notebridge.datasource.replicas.heartbeat-interval-ms", Long.class, 1000L),
+                        registry);
+                try {
+                    replicaSet.start();
+                } catch (SQLException e) {
+                    throw new BeanInitializationException("Failed to set up replication heartbeat", e);
+                }
+                return new ReplicaRoutingDataSource(primary, replicaSet);
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${notebridge.datasource.replicas.sticky-ms:5000}") long stickyMillis) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(stickyMillis));
+        registration.addUrlPatterns("/api/*");
+        // Ahead of the security chain, which loads the current user from the database
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    private static Map<String, DataSource> createReplicaPools(HikariDataSource primary, Environment environment,
+                                                              MeterRegistry meterRegistry) {
+        String[] urls = environment.getProperty("notebridge.datasource.replicas.urls", String[].class, new String[0]);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setPoolName("replica-" + (i + 1));
+            config.setJdbcUrl(urls[i].trim());
+            config.setUsername(environment.getProperty("notebridge.datasource.replicas.username", primary.getUsername()));
+            config.setPassword(environment.getProperty("notebridge.datasource.replicas.password", primary.getPassword()));
+            config.setReadOnly(true);
+            // A replica that's down at startup is just out of rotation, not a reason to fail
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return replicas;
+    }
+}
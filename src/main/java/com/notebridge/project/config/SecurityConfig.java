@@ -1,8 +1,12 @@
 package com.notebridge.project.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -12,7 +16,9 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.notebridge.project.service.BoundedPasswordEncoder;
 import com.notebridge.project.service.UserDetailsServiceImpl;
 
 @Configuration
@@ -23,15 +29,46 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Raising the strength is picked up for existing users on their next successful login
+    @Value("${notebridge.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // 0 means half the available cores, leaving the rest for request threads during a login storm
+    @Value("${notebridge.security.hashing.threads:0}")
+    private int hashingThreads;
+
+    @Value("${notebridge.security.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    // Where the management server (management.server.port) really listens, once it has started
+    private volatile int managementPort = -1;
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        if ("management".equals(event.getApplicationContext().getServerNamespace())) {
+            managementPort = event.getWebServer().getPort();
+        }
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests((requests) -> requests
-                        .requestMatchers("/", "/home", "/api/users/register").permitAll()
+                        .requestMatchers("/", "/home", "/api/users/register", "/api/csrf").permitAll()
+                        // Probed by the load balancer
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Scraped by Prometheus over the internal management port only, never the public one
+                        .requestMatchers(request -> request.getLocalPort() == managementPort
+                                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/api/files/**").authenticated()
                         .requestMatchers("/api/users/**").authenticated()
                         .requestMatchers("/api/lessons/**").authenticated()
                         .requestMatchers("/api/chats/**").authenticated()
+                        .requestMatchers("/api/sync/**").authenticated()
                         .anyRequest().authenticated()
                 )
                 .formLogin((form) -> form
@@ -39,6 +76,7 @@ public class SecurityConfig {
                         .permitAll()
                 )
                 .logout((logout) -> logout.permitAll())
+                .addFilterBefore(new HashingAdmissionFilter(), UsernamePasswordAuthenticationFilter.class)
                 .authenticationProvider(authenticationProvider());
 
         return http.build();
@@ -46,7 +84,9 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int threads = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), threads,
+                hashingQueueCapacity, meterRegistry);
     }
 
     @Bean
@@ -63,6 +103,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
         provider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes stored passwords whose BCrypt cost is below the configured strength
+        provider.setUserDetailsPasswordService(userDetailsService);
         return provider;
     }
 
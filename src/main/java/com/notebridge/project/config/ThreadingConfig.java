@@ -0,0 +1,52 @@
+package com.notebridge.project.config;
+
+import com.notebridge.project.storage.ConcurrencyLimitedStorageBackend;
+import com.notebridge.project.storage.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/*
+ * spring.threads.virtual.enabled=true switches Tomcat request handling, the MVC async executor
+ * (streamed downloads) and @Scheduled jobs to virtual threads. Blocking is then cheap, so the
+ * limits move to the downstream resources: the Hikari pool for the database and a permit
+ * limit in front of storage. CPU-bound pools (password hashing, image variants) stay on
+ * platform threads either way.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    // Static so it's registered before the storage backend beans; ordered so that the metrics
+    // wrapper from MetricsConfig sits outside it and includes time spent waiting for a permit
+    @Bean
+    public static BeanPostProcessor storageBackendConcurrencyLimit(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new HighestPrecedenceBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                int maxConcurrency = environment.getProperty("notebridge.storage.max-concurrency", Integer.class, 64);
+                if (bean instanceof StorageBackend backend && !(bean instanceof ConcurrencyLimitedStorageBackend)
+                        && maxConcurrency > 0) {
+                    long timeoutMillis = environment.getProperty("notebridge.storage.permit-timeout-ms", Long.class, 10_000L);
+                    return new ConcurrencyLimitedStorageBackend(backend, maxConcurrency, timeoutMillis, meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${notebridge.threads.pinning.threshold-ms:20}") long thresholdMillis) {
+        return new VirtualThreadPinningMonitor(Duration.ofMillis(thresholdMillis), meterRegistry);
+    }
+}
@@ -4,11 +4,16 @@ import com.notebridge.project.model.Chat;
 import com.notebridge.project.model.Message;
 import com.notebridge.project.model.User;
 import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.ChatView;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.response.ShardRebalanceReport;
 import com.notebridge.project.service.ChatService;
+import com.notebridge.project.shard.ChatShardRebalancer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
@@ -31,6 +36,9 @@ public class ChatController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ChatShardRebalancer chatShardRebalancer;
+    
     // Template for creating chat request
     public static class CreateChatRequest {
         @jakarta.validation.constraints.NotNull(message = "Teacher ID is required")
@@ -73,7 +81,7 @@ public class ChatController {
                 request.subject
             );
             
-            return ResponseEntity.status(HttpStatus.CREATED).body(chat);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ChatView.from(chat));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                                .body("Error creating chat: " + e.getMessage());
@@ -89,7 +97,7 @@ public class ChatController {
         try {
             User currentUser = getCurrentUser();
             List<Chat> chats = chatService.getUserChats(currentUser);
-            return ResponseEntity.ok(chats);
+            return ResponseEntity.ok(chats.stream().map(ChatView::from).toList());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                .body("Error retrieving chats: " + e.getMessage());
@@ -107,7 +115,7 @@ public class ChatController {
         try {
             User currentUser = getCurrentUser();
             Message message = chatService.sendMessage(chatId, currentUser, request.content);
-            return ResponseEntity.status(HttpStatus.CREATED).body(message);
+            return ResponseEntity.status(HttpStatus.CREATED).body(MessageView.from(message));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                                .body("Error sending message: " + e.getMessage());
@@ -125,7 +133,7 @@ public class ChatController {
             @RequestParam(defaultValue = "20") int size) {
         try {
             User currentUser = getCurrentUser();
-            Page<Message> messages = chatService.getChatMessages(chatId, currentUser, page, size);
+            Page<MessageView> messages = chatService.getChatMessages(chatId, currentUser, page, size);
             return ResponseEntity.ok(messages);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -165,6 +173,44 @@ public class ChatController {
         }
     }
     
+    /**
+     * Spread chats evenly over the shards, moving those still on the primary first
+     * POST /api/chats/admin/rebalance?maxMoves=1000
+     */
+    @PostMapping("/admin/rebalance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebalance(@RequestParam(defaultValue = "1000") int maxMoves) {
+        try {
+            ShardRebalanceReport report = chatShardRebalancer.rebalance(maxMoves);
+            return ResponseEntity.ok(report);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Move one chat, with its messages, to a shard
+     * POST /api/chats/admin/{chatId}/move?shard=1
+     */
+    @PostMapping("/admin/{chatId}/move")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> moveChat(@PathVariable Long chatId, @RequestParam int shard) {
+        try {
+            boolean moved = chatShardRebalancer.moveChat(chatId, shard);
+            return ResponseEntity.ok(Map.of("moved", moved, "chatsPerDatabase", chatShardRebalancer.chatsPerDatabase()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+    
     // Helper method to get current authenticated user
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -0,0 +1,26 @@
+package com.notebridge.project.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class CsrfController {
+
+    /**
+     * The CSRF token for the caller's session, for clients that don't render a form (e.g. the
+     * load-test harness). Send it back in the named header on every state-changing request, and
+     * fetch a new one after logging in, since login replaces the session.
+     * GET /api/csrf
+     */
+    @GetMapping("/api/csrf")
+    public ResponseEntity<Map<String, String>> csrfToken(CsrfToken token) {
+        return ResponseEntity.ok(Map.of(
+                "headerName", token.getHeaderName(),
+                "parameterName", token.getParameterName(),
+                "token", token.getToken()));
+    }
+}
@@ -1,12 +1,34 @@
 package com.notebridge.project.controller;
 
+import com.notebridge.project.response.FileDownload;
 import com.notebridge.project.response.FileResponse;
+import com.notebridge.project.response.ReconciliationReport;
+import com.notebridge.project.service.ChunkedUploadService;
+import com.notebridge.project.service.FileReconciliationService;
 import com.notebridge.project.service.FileStorageService;
+import com.notebridge.project.service.ImageVariantService;
+import com.notebridge.project.service.UploadJob;
+import com.notebridge.project.service.UploadJobService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/files")
@@ -15,12 +37,25 @@ public class FileStorageController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private UploadJobService uploadJobService;
+
+    @Autowired
+    private FileReconciliationService fileReconciliationService;
+
     @PostMapping("/upload/profile/{userId}")
     public ResponseEntity<String> uploadProfilePicture(
             @RequestParam MultipartFile file,
             @PathVariable Long userId) {
         try {
             String fileId = fileStorageService.uploadProfilePicture(file, userId);
+            imageVariantService.scheduleVariants(fileId);
             return ResponseEntity.ok(fileId);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -33,19 +68,253 @@ public class FileStorageController {
             @PathVariable Long lessonId) {
         try {
             String fileId = fileStorageService.uploadLessonPicture(file, lessonId);
+            imageVariantService.scheduleVariants(fileId);
             return ResponseEntity.ok(fileId);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
     }
 
+    // Optional ?size=thumbnail|card|full picks a resized variant of a picture
     @GetMapping("/retrieve/{fileId}")
-    public ResponseEntity<FileResponse> retrieveFile(@PathVariable String fileId) {
+    public ResponseEntity<FileResponse> retrieveFile(
+            @PathVariable String fileId,
+            @RequestParam(required = false) String size) {
         try {
-            FileResponse fileResponse = fileStorageService.retrieveFile(fileId);
+            FileResponse fileResponse = fileStorageService.retrieveFile(fileId, size);
             return ResponseEntity.ok(fileResponse);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * Raw bytes download with Range support for media seeking
+     * GET /api/files/download/{fileId}?size=card
+     */
+    @GetMapping("/download/{fileId}")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable String fileId,
+            @RequestParam(required = false) String size,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FileDownload download;
+        try {
+            download = fileStorageService.prepareDownload(fileId, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        // Uploaded objects never change, so the id is a strong validator and the response can be cached forever
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(download.getETag());
+        if (size != null && download.getVariant() == null) {
+            // Variant not generated yet: serve the original but don't let it be cached under this URL
+            headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        } else {
+            headers.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable());
+        }
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(download.getETag()) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        headers.setContentType(resolveContentType(download));
+        headers.setContentDisposition(ContentDisposition.inline().filename(download.getFileName()).build());
+
+        long total = download.getSize();
+        long start = 0;
+        long end = total - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        // A range of some other representation would corrupt the client's copy, so send it all.
+        // There is no Last-Modified, so only a strongly matching ETag keeps the range
+        if (rangeHeader != null && ifRange != null && !ifRange.trim().equals(download.getETag())) {
+            rangeHeader = null;
+        }
+
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multiple ranges are rare for media players; answering with the full body is allowed
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(total);
+                    end = ranges.get(0).getRangeEnd(total);
+                    // HttpRange accepts a first byte at or past the end, e.g. bytes=20- of 20 bytes
+                    if (start > end) {
+                        throw new IllegalArgumentException("Range starts past the end of the file");
+                    }
+                    status = HttpStatus.PARTIAL_CONTENT;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + total);
+                }
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + total);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+        }
+
+        long rangeStart = start;
+        long length = end - start + 1;
+        headers.setContentLength(length);
+
+        StreamingResponseBody body = out -> fileStorageService.streamFile(download, rangeStart, length, out);
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    private MediaType resolveContentType(FileDownload download) {
+        if (download.getContentType() != null) {
+            try {
+                return MediaType.parseMediaType(download.getContentType());
+            } catch (Exception e) {
+                // fall back to guessing from the file name
+            }
+        }
+        return MediaTypeFactory.getMediaType(download.getFileName()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    /**
+     * Start a resumable chunked upload
+     * POST /api/files/uploads?fileName=recital.mp4&totalSize=123456789&lessonId=1
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> startChunkedUpload(
+            @RequestParam String fileName,
+            @RequestParam long totalSize,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) Long lessonId) {
+        try {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            ChunkedUploadService.UploadSession session =
+                    chunkedUploadService.startUpload(username, fileName, contentType, totalSize, lessonId);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(Map.of("uploadId", session.getUploadId(), "receivedBytes", 0L));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Upload one chunk as the raw request body
+     * PUT /api/files/uploads/{uploadId}?offset=0
+     */
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            long received = chunkedUploadService.appendChunk(uploadId, username, offset, body);
+            return ResponseEntity.ok(Map.of("uploadId", uploadId, "receivedBytes", received));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * How many bytes have been received, so an interrupted client knows where to resume
+     * GET /api/files/uploads/{uploadId}
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getChunkedUploadStatus(@PathVariable String uploadId) {
+        try {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            long received = chunkedUploadService.getReceivedBytes(uploadId, username);
+            return ResponseEntity.ok(Map.of("uploadId", uploadId, "receivedBytes", received));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Finish the upload and push it to storage
+     * POST /api/files/uploads/{uploadId}/complete
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<String> completeChunkedUpload(@PathVariable String uploadId) {
+        try {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            String fileId = chunkedUploadService.completeUpload(uploadId, username);
+            return ResponseEntity.ok(fileId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<String> abortChunkedUpload(@PathVariable String uploadId) {
+        try {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            chunkedUploadService.abortUpload(uploadId, username);
+            return ResponseEntity.ok("Upload aborted");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Upload several files at once; returns immediately with a job id to poll
+     * POST /api/files/jobs (multipart "files", optional lessonId)
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitUploadJob(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) Long lessonId) {
+        try {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            UploadJob job = uploadJobService.submit(username, files, lessonId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (UploadJobService.UploadLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Per-file progress and status of an upload job
+     * GET /api/files/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String jobId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        UploadJob job = uploadJobService.getJob(jobId, username);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Find (and unless dryRun, delete) orphaned storage objects and file rows whose object is gone
+     * POST /api/files/reconcile?dryRun=true
+     */
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconcile(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            ReconciliationReport report = fileReconciliationService.reconcile(dryRun);
+            return ResponseEntity.ok(report);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -2,20 +2,26 @@ package com.notebridge.project.controller;
 
 import com.notebridge.project.model.Lesson;
 import com.notebridge.project.model.User;
+import com.notebridge.project.outbox.OutboxEventTypes;
+import com.notebridge.project.outbox.OutboxPublisher;
 import com.notebridge.project.repository.LessonRepository;
 import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.service.LessonCatalogueService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -43,12 +49,19 @@ public class LessonController {
     @Autowired
     private UserRepository userRepository;
 
+    // The catalogue reads go through the "lessons" cache
+    @Autowired
+    private LessonCatalogueService lessonCatalogueService;
+
+    // Lesson writes record their event in the same transaction as the change
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
     // GET ALL LESSONS - Available to all authenticated users
     @GetMapping
-    public ResponseEntity<List<Lesson>> getAllLessons() {
+    public ResponseEntity<List<LessonView>> getAllLessons() {
         try {
-            List<Lesson> lessons = lessonRepository.findByIsCancelledFalse();
-            return ResponseEntity.ok(lessons);
+            return ResponseEntity.ok(lessonCatalogueService.getActiveLessons());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -56,11 +69,11 @@ public class LessonController {
 
     // GET LESSON BY ID - Available to all authenticated users
     @GetMapping("/{id}")
-    public ResponseEntity<Lesson> getLessonById(@PathVariable Long id) {
+    public ResponseEntity<LessonView> getLessonById(@PathVariable Long id) {
         try {
-            Optional<Lesson> lesson = lessonRepository.findById(id);
+            Optional<Lesson> lesson = lessonRepository.findWithTeacherById(id);
             if (lesson.isPresent() && !lesson.get().isCancelled()) {
-                return ResponseEntity.ok(lesson.get());
+                return ResponseEntity.ok(LessonView.from(lesson.get()));
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -71,12 +84,12 @@ public class LessonController {
 
     // GET LESSONS BY TEACHER - Available to all authenticated users
     @GetMapping("/teacher/{teacherId}")
-    public ResponseEntity<List<Lesson>> getLessonsByTeacher(@PathVariable Long teacherId) {
+    public ResponseEntity<List<LessonView>> getLessonsByTeacher(@PathVariable Long teacherId) {
         try {
             Optional<User> teacher = userRepository.findById(teacherId);
             if (teacher.isPresent() && teacher.get().getRole() == User.Role.TEACHER) {
                 List<Lesson> lessons = lessonRepository.findByTeacherAndIsCancelledFalse(teacher.get());
-                return ResponseEntity.ok(lessons);
+                return ResponseEntity.ok(toViews(lessons));
             } else {
                 return ResponseEntity.badRequest().build();
             }
@@ -87,10 +100,13 @@ public class LessonController {
 
     // GET UPCOMING LESSONS - Available to all authenticated users
     @GetMapping("/upcoming")
-    public ResponseEntity<List<Lesson>> getUpcomingLessons() {
+    public ResponseEntity<List<LessonView>> getUpcomingLessons() {
         try {
+            // Filtered from the cached catalogue, so a lesson drops out as soon as it starts
             LocalDateTime now = LocalDateTime.now();
-            List<Lesson> lessons = lessonRepository.findByStartTimeAfterAndIsCancelledFalse(now);
+            List<LessonView> lessons = lessonCatalogueService.getActiveLessons().stream()
+                    .filter(lesson -> lesson.startTime() != null && lesson.startTime().isAfter(now))
+                    .toList();
             return ResponseEntity.ok(lessons);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -100,6 +116,7 @@ public class LessonController {
     // CREATE LESSON - Only teachers and admins can create lessons
     @PostMapping
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    @Transactional
     public ResponseEntity<String> createLesson(@Valid @RequestBody Lesson lesson) {
         try {
             // Get current authenticated user
@@ -137,6 +154,8 @@ public class LessonController {
             lesson.setCancelled(false); // Ensure new lessons are not cancelled
 
             Lesson savedLesson = lessonRepository.save(lesson);
+            outboxPublisher.publish("lesson", savedLesson.getId(), OutboxEventTypes.LESSON_CREATED,
+                    Map.of("teacherId", savedLesson.getTeacher().getId()));
             return ResponseEntity.status(HttpStatus.CREATED)
                                .body("Lesson created successfully with ID: " + savedLesson.getId());
         } catch (Exception e) {
@@ -148,6 +167,7 @@ public class LessonController {
     // UPDATE LESSON - Only the teacher who created the lesson or admins can update it
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    @Transactional
     public ResponseEntity<String> updateLesson(@PathVariable Long id, @Valid @RequestBody Lesson updatedLesson) {
         try {
             User currentUser = getCurrentUser();
@@ -194,6 +214,8 @@ public class LessonController {
             }
 
             lessonRepository.save(existingLesson);
+            outboxPublisher.publish("lesson", id, OutboxEventTypes.LESSON_UPDATED,
+                    Map.of("teacherId", existingLesson.getTeacher().getId()));
             return ResponseEntity.ok("Lesson updated successfully");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -204,6 +226,7 @@ public class LessonController {
     // CANCEL LESSON - Only the teacher who created the lesson or admins can cancel it
     @PutMapping("/{id}/cancel")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    @Transactional
     public ResponseEntity<String> cancelLesson(@PathVariable Long id) {
         try {
             User currentUser = getCurrentUser();
@@ -228,6 +251,8 @@ public class LessonController {
 
             lesson.setCancelled(true);
             lessonRepository.save(lesson);
+            outboxPublisher.publish("lesson", id, OutboxEventTypes.LESSON_CANCELLED,
+                    Map.of("teacherId", lesson.getTeacher().getId()));
             return ResponseEntity.ok("Lesson cancelled successfully");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -238,6 +263,7 @@ public class LessonController {
     // REACTIVATE LESSON - Only the teacher who created the lesson or admins can reactivate it
     @PutMapping("/{id}/reactivate")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    @Transactional
     public ResponseEntity<String> reactivateLesson(@PathVariable Long id) {
         try {
             User currentUser = getCurrentUser();
@@ -262,6 +288,8 @@ public class LessonController {
 
             lesson.setCancelled(false);
             lessonRepository.save(lesson);
+            outboxPublisher.publish("lesson", id, OutboxEventTypes.LESSON_REACTIVATED,
+                    Map.of("teacherId", lesson.getTeacher().getId()));
             return ResponseEntity.ok("Lesson reactivated successfully");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -272,19 +300,19 @@ public class LessonController {
     // GET MY LESSONS - Teachers can see all their lessons, Admins can see all lessons
     @GetMapping("/my-lessons")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<List<Lesson>> getMyLessons() {
+    public ResponseEntity<List<LessonView>> getMyLessons() {
         try {
             User currentUser = getCurrentUser();
 
             List<Lesson> lessons;
             if (currentUser.getRole() == User.Role.ADMIN) {
                 // Admins can see all lessons (including cancelled ones)
-                lessons = lessonRepository.findAll();
+                lessons = lessonRepository.findAllWithTeacher();
             } else {
                 // Teachers see only their own lessons
                 lessons = lessonRepository.findByTeacher(currentUser);
             }
-            return ResponseEntity.ok(lessons);
+            return ResponseEntity.ok(toViews(lessons));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -293,10 +321,10 @@ public class LessonController {
     // GET ALL LESSONS INCLUDING CANCELLED - Only admins can access this
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Lesson>> getAllLessonsIncludingCancelled() {
+    public ResponseEntity<List<LessonView>> getAllLessonsIncludingCancelled() {
         try {
-            List<Lesson> lessons = lessonRepository.findAll();
-            return ResponseEntity.ok(lessons);
+            List<Lesson> lessons = lessonRepository.findAllWithTeacher();
+            return ResponseEntity.ok(toViews(lessons));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -305,6 +333,7 @@ public class LessonController {
     // DELETE LESSON PERMANENTLY - Only admins can permanently delete lessons
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
+    @Transactional
     public ResponseEntity<String> deleteLesson(@PathVariable Long id) {
         try {
             Optional<Lesson> lessonOpt = lessonRepository.findById(id);
@@ -313,6 +342,8 @@ public class LessonController {
             }
 
             lessonRepository.deleteById(id);
+            outboxPublisher.publish("lesson", id, OutboxEventTypes.LESSON_DELETED,
+                    Map.of("teacherId", lessonOpt.get().getTeacher().getId()));
             return ResponseEntity.ok("Lesson deleted permanently");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -320,6 +351,10 @@ public class LessonController {
         }
     }
 
+    private static List<LessonView> toViews(List<Lesson> lessons) {
+        return lessons.stream().map(LessonView::from).toList();
+    }
+
     // Helper method to get current authenticated user
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -0,0 +1,49 @@
+package com.notebridge.project.controller;
+
+import com.notebridge.project.model.User;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.SyncResponse;
+import com.notebridge.project.sync.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+    
+    @Autowired
+    private SyncService syncService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    /**
+     * Chats, messages, read states and lessons changed since the token, with tombstones for
+     * cancelled and deleted ones. Without a token, returns one to start from and asks for a full load.
+     * GET /api/sync?token=1234
+     */
+    @GetMapping
+    public ResponseEntity<?> sync(@RequestParam(required = false) String token) {
+        try {
+            User currentUser = getCurrentUser();
+            SyncResponse response = syncService.changesSince(currentUser, token);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                               .body("Error syncing: " + e.getMessage());
+        }
+    }
+    
+    // Helper method to get current authenticated user
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        return userRepository.findByUsername(username);
+    }
+}
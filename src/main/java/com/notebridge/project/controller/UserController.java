@@ -2,7 +2,11 @@ package com.notebridge.project.controller;
 
 import com.notebridge.project.model.User;
 import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.UserView;
+import com.notebridge.project.service.PasswordHashingRejectedException;
+import com.notebridge.project.service.RegistrationBloomFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -24,21 +28,24 @@ public class UserController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private RegistrationBloomFilter registrationBloomFilter;
+
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<UserView>> getAllUsers() {
         try {
             List<User> users = userRepository.findAll();
-            return ResponseEntity.ok(users);
+            return ResponseEntity.ok(users.stream().map(UserView::from).toList());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserView> getUserById(@PathVariable Long id) {
         try {
             Optional<User> user = userRepository.findById(id);
-            return user.map(ResponseEntity::ok)
+            return user.map(UserView::from).map(ResponseEntity::ok)
                       .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -59,13 +66,15 @@ public class UserController {
                 return ResponseEntity.badRequest().body("Password is required");
             }
 
-            // Check for duplicate username
-            if (userRepository.findByUsername(user.getUsername()) != null) {
+            // Check for duplicate username (only queried when the bloom filter can't rule it out)
+            if (registrationBloomFilter.mightContainUsername(user.getUsername())
+                    && userRepository.findByUsername(user.getUsername()) != null) {
                 return ResponseEntity.badRequest().body("Username already exists");
             }
 
             // Check for duplicate email
-            if (userRepository.findByEmail(user.getEmail()) != null) {
+            if (registrationBloomFilter.mightContainEmail(user.getEmail())
+                    && userRepository.findByEmail(user.getEmail()) != null) {
                 return ResponseEntity.badRequest().body("Email already exists");
             }
 
@@ -73,7 +82,15 @@ public class UserController {
             user.setPassword(passwordEncoder.encode(user.getPassword()));
             
             User savedUser = userRepository.save(user);
+            registrationBloomFilter.add(savedUser.getUsername(), savedUser.getEmail());
             return ResponseEntity.status(HttpStatus.CREATED).body("User created successfully with ID: " + savedUser.getId());
+        } catch (DataIntegrityViolationException e) {
+            // Lost a race with a concurrent registration; the unique constraints are the source of truth
+            return ResponseEntity.badRequest().body(duplicateMessage(user));
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header("Retry-After", "1")
+                                .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                 .body("Error creating user: " + e.getMessage());
@@ -84,4 +101,15 @@ public class UserController {
     public ResponseEntity<String> registerUser(@Valid @RequestBody User user) {
         return createUser(user);
     }
+
+    // Work out which unique constraint was hit after a failed insert
+    private String duplicateMessage(User user) {
+        if (userRepository.findByUsername(user.getUsername()) != null) {
+            return "Username already exists";
+        }
+        if (userRepository.findByEmail(user.getEmail()) != null) {
+            return "Email already exists";
+        }
+        return "Username or email already exists";
+    }
 }
@@ -2,10 +2,20 @@ package com.notebridge.project.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "chats")
+@NamedEntityGraph(name = "Chat.participants", attributeNodes = {
+        @NamedAttributeNode("teacher"),
+        @NamedAttributeNode("student")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "chats")
 @Data
 public class Chat {
     
@@ -13,11 +23,17 @@ public class Chat {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    // Associations are lazy; queries that need them say so with a graph or fetch join.
+    // Left out of toString/equals, which would otherwise initialize them
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "teacher_id", nullable = false)
     private User teacher;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "student_id", nullable = false)
     private User student;
     
@@ -0,0 +1,56 @@
+package com.notebridge.project.model;
+
+import jakarta.persistence.*;
+
+// Directory entry placing a chat on a shard. Lives on the primary and hands out chat ids, so
+// they stay unique across shards; -1 means the chat is still in the primary's own tables.
+@Entity
+@Table(name = "chat_shards", indexes = {
+        @Index(name = "uk_chat_shards_participants", columnList = "teacher_id, student_id", unique = true),
+        @Index(name = "idx_chat_shards_student", columnList = "student_id"),
+        @Index(name = "idx_chat_shards_shard", columnList = "shard")
+})
+public class ChatShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "shard", nullable = false)
+    private int shard;
+
+    @Column(name = "teacher_id", nullable = false)
+    private Long teacherId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    public ChatShard() {}
+
+    public ChatShard(int shard, Long teacherId, Long studentId) {
+        this.shard = shard;
+        this.teacherId = teacherId;
+        this.studentId = studentId;
+    }
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+}
@@ -1,34 +1,72 @@
 package com.notebridge.project.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Collate;
+
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        @Index(name = "uk_files_unique_id", columnList = "unique_id", unique = true),
+        @Index(name = "idx_files_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_files_object_name", columnList = "object_name")
+})
 public class FileMetaData {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @Column(name = "unique_id", nullable = false)
+    // Canonical 36-character UUID; every download looks files up by it
+    @Column(name = "unique_id", nullable = false, length = 36)
     private String uniqueId;
 
+    // Binary collation, so the index returns names in the order storage listings use
+    @Collate("utf8mb4_bin")
     @Column(name = "object_name", nullable = false)
     private String objectName;
 
     @Column(name = "upload_date", nullable = false)
     private LocalDateTime uploadDate;
 
+    // SHA-256 of the content; rows sharing a hash share one stored object, and the
+    // number of such rows is the object's reference count
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "size")
+    private Long size;
+
+    // Resized copies of pictures keyed by variant name (thumbnail, card, full), filled in
+    // asynchronously after upload
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "file_variants", joinColumns = @JoinColumn(name = "file_id"),
+            indexes = @Index(name = "idx_file_variants_object_name", columnList = "object_name"))
+    @MapKeyColumn(name = "variant", length = 20)
+    private Map<String, ImageVariant> variants = new HashMap<>();
+
     // “Map this User object to a column named user_id that stores the user's primary key (id)”.
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "lesson_id")
     private Lesson lesson;
 
+    // Set for a lesson's picture, as opposed to its materials, which share lesson_id. Null on
+    // rows from before the column existed, so those are never taken for a replaced picture
+    @Column(name = "lesson_picture")
+    private Boolean lessonPicture;
+
     public FileMetaData() {}
 
     public FileMetaData(Integer id, String uniqueId, String objectName, LocalDateTime uploadDate) {
@@ -72,6 +110,54 @@ public class FileMetaData {
         this.uploadDate = uploadDate;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Boolean getLessonPicture() {
+        return lessonPicture;
+    }
+
+    public void setLessonPicture(Boolean lessonPicture) {
+        this.lessonPicture = lessonPicture;
+    }
+
+    public Map<String, ImageVariant> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(Map<String, ImageVariant> variants) {
+        this.variants = variants;
+    }
+
     public User getUser() {
         return user;
     }
@@ -0,0 +1,49 @@
+package com.notebridge.project.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import org.hibernate.annotations.Collate;
+
+// A resized, re-encoded copy of an uploaded picture
+@Embeddable
+public class ImageVariant {
+
+    // Binary collation like FileMetaData.objectName
+    @Collate("utf8mb4_bin")
+    @Column(name = "object_name", nullable = false)
+    private String objectName;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "width", nullable = false)
+    private int width;
+
+    public ImageVariant() {}
+
+    public ImageVariant(String objectName, String contentType, long size, int width) {
+        this.objectName = objectName;
+        this.contentType = contentType;
+        this.size = size;
+        this.width = width;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
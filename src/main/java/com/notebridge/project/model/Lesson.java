@@ -2,10 +2,17 @@ package com.notebridge.project.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "lessons")
+@NamedEntityGraph(name = "Lesson.teacher", attributeNodes = @NamedAttributeNode("teacher"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "lessons")
 @Data
 public class Lesson {
 
@@ -13,7 +20,11 @@ public class Lesson {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    // Lazy; queries that need the teacher use the "Lesson.teacher" graph. Left out of
+    // toString/equals, which would otherwise initialize it
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "teacher_id", nullable = false)
     private User teacher;
 
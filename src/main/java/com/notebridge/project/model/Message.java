@@ -4,10 +4,13 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "messages")
+@NamedEntityGraph(name = "Message.sender", attributeNodes = @NamedAttributeNode("sender"))
 @Data
 public class Message {
     
@@ -15,11 +18,17 @@ public class Message {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    // Associations are lazy; queries that need them say so with a graph or fetch join.
+    // Left out of toString/equals, which would otherwise initialize them
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "chat_id", nullable = false)
     private Chat chat;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
     
@@ -0,0 +1,49 @@
+package com.notebridge.project.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Records that a handler has processed an outbox event, so a retry of the event (after another
+// handler failed, or after a relay crashed mid-batch) skips it
+@Entity
+@Table(name = "outbox_deliveries", uniqueConstraints =
+        @UniqueConstraint(name = "uk_outbox_deliveries_event_handler", columnNames = {"event_id", "handler"}))
+public class OutboxDelivery {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, length = 36)
+    private String eventId;
+
+    @Column(name = "handler", nullable = false, length = 100)
+    private String handler;
+
+    @Column(name = "delivered_at", nullable = false)
+    private LocalDateTime deliveredAt;
+
+    public OutboxDelivery() {}
+
+    public OutboxDelivery(String eventId, String handler, LocalDateTime deliveredAt) {
+        this.eventId = eventId;
+        this.handler = handler;
+        this.deliveredAt = deliveredAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public LocalDateTime getDeliveredAt() {
+        return deliveredAt;
+    }
+}
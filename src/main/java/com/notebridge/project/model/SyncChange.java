@@ -0,0 +1,89 @@
+package com.notebridge.project.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Something a user's devices need to fetch again, in the order given by seq. Only the entity is
+// recorded; the sync endpoint reads its current state, or returns a tombstone if it is gone
+@Entity
+@Table(name = "sync_changes", indexes = {
+        @Index(name = "uk_sync_changes_seq", columnList = "seq", unique = true),
+        @Index(name = "idx_sync_changes_user_seq", columnList = "user_id, seq")
+})
+public class SyncChange {
+
+    // User id for changes to the lesson catalogue, which every user sees
+    public static final long EVERYONE = 0L;
+
+    public enum EntityType {
+        CHAT, MESSAGE, READ_STATE, LESSON
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // From SyncSequence; the change token is the last seq a client has seen
+    @Column(name = "seq", nullable = false)
+    private long seq;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private EntityType entityType;
+
+    // For READ_STATE, the user who read the chat
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    // Set for chats, messages and read states
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public SyncChange() {}
+
+    public SyncChange(Long userId, EntityType entityType, Long entityId, Long chatId, LocalDateTime changedAt) {
+        this.userId = userId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.chatId = chatId;
+        this.changedAt = changedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,44 @@
+package com.notebridge.project.model;
+
+import jakarta.persistence.*;
+
+// The single row that hands out sync change numbers. Recording changes locks it until commit, so
+// changes become visible in seq order and a client can never skip one that commits late
+@Entity
+@Table(name = "sync_sequence")
+public class SyncSequence {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+
+    // Changes up to here may have been deleted; older tokens need a full resync
+    @Column(name = "pruned_through", nullable = false)
+    private long prunedThrough;
+
+    public SyncSequence() {}
+
+    public SyncSequence(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public void setLastSeq(long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+
+    public long getPrunedThrough() {
+        return prunedThrough;
+    }
+}
@@ -0,0 +1,38 @@
+package com.notebridge.project.outbox;
+
+import com.notebridge.project.model.OutboxEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops cached lesson data when a lesson changes. Lesson lists are cached as a whole, so any
+ * lesson event clears the cache rather than a single key.
+ */
+@Component
+public class LessonCacheInvalidationHandler implements OutboxEventHandler {
+
+    private final CacheManager cacheManager;
+
+    public LessonCacheInvalidationHandler(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return "lesson-cache-invalidation";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return eventType.startsWith("Lesson");
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Cache cache = cacheManager.getCache("lessons");
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
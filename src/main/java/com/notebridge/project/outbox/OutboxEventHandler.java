@@ -0,0 +1,23 @@
+package com.notebridge.project.outbox;
+
+import com.notebridge.project.model.OutboxEvent;
+
+/**
+ * In-process consumer of outbox events. Handlers run on the relay thread after the writing
+ * transaction has committed, so they can be slow or fail without affecting the request.
+ *
+ * Delivery is at least once: a handler whose success could not be recorded (crash, lost lease)
+ * sees the event again. Side effects outside this database should be keyed by
+ * {@link OutboxEvent#getEventId()}.
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * Stable name deliveries are recorded under; renaming a handler re-delivers pending events to it
+     */
+    String getName();
+
+    boolean handles(String eventType);
+
+    void handle(OutboxEvent event) throws Exception;
+}
@@ -0,0 +1,20 @@
+package com.notebridge.project.outbox;
+
+public final class OutboxEventTypes {
+
+    public static final String CHAT_CREATED = "ChatCreated";
+    public static final String CHAT_UPDATED = "ChatUpdated";
+    public static final String MESSAGE_SENT = "MessageSent";
+    public static final String MESSAGES_READ = "MessagesRead";
+
+    public static final String LESSON_CREATED = "LessonCreated";
+    public static final String LESSON_UPDATED = "LessonUpdated";
+    public static final String LESSON_CANCELLED = "LessonCancelled";
+    public static final String LESSON_REACTIVATED = "LessonReactivated";
+    public static final String LESSON_DELETED = "LessonDeleted";
+
+    public static final String FILE_UPLOADED = "FileUploaded";
+
+    private OutboxEventTypes() {
+    }
+}
@@ -0,0 +1,49 @@
+package com.notebridge.project.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notebridge.project.model.OutboxEvent;
+import com.notebridge.project.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records domain events in the outbox table. Must be called inside the transaction that makes
+ * the change, so the event is committed or rolled back together with it; {@link OutboxRelay}
+ * delivers it afterwards.
+ */
+@Service
+public class OutboxPublisher {
+
+    private final OutboxEventRepository repo;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public OutboxPublisher(OutboxEventRepository repo, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent publish(String aggregateType, Object aggregateId, String eventType, Map<String, ?> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload for " + eventType + " is not serializable", e);
+        }
+
+        OutboxEvent event = repo.save(new OutboxEvent(UUID.randomUUID().toString(), aggregateType,
+                String.valueOf(aggregateId), eventType, json, LocalDateTime.now()));
+        Counter.builder("notebridge.outbox.events.recorded").tag("type", eventType).register(meterRegistry).increment();
+        return event;
+    }
+}
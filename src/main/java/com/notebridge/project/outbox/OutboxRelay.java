@@ -0,0 +1,227 @@
+package com.notebridge.project.outbox;
+
+import com.notebridge.project.model.OutboxDelivery;
+import com.notebridge.project.model.OutboxEvent;
+import com.notebridge.project.repository.OutboxDeliveryRepository;
+import com.notebridge.project.repository.OutboxEventRepository;
+import com.notebridge.project.shard.ChatShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers committed outbox events to the {@link OutboxEventHandler}s.
+ *
+ * Each poll claims a batch of due events with SELECT ... FOR UPDATE SKIP LOCKED and leases them
+ * by pushing availableAt forward, then commits, so handlers run without holding row locks and
+ * other instances skip the batch. A handler's success is recorded per event (the event id is the
+ * idempotency key), so when one handler fails only the failed ones are retried, with exponential
+ * backoff, until the event is parked as FAILED after maxAttempts.
+ *
+ * With chat sharding on, chat events are written to the chat's shard, so every database is
+ * polled in turn.
+ *
+ * Throughput is the rate of notebridge.outbox.events.published; notebridge.outbox.lag is the
+ * time from the writing transaction to delivery.
+ */
+@Service
+@ConditionalOnProperty(name = "notebridge.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository repo;
+    private final OutboxDeliveryRepository deliveryRepo;
+    private final ChatShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OutboxEventHandler> handlers;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    private final AtomicLong oldestPendingAgeMillis = new AtomicLong();
+
+    public OutboxRelay(OutboxEventRepository repo, OutboxDeliveryRepository deliveryRepo,
+                       ChatShardRouter shardRouter, PlatformTransactionManager transactionManager, ObjectProvider<OutboxEventHandler> handlers,
+                       MeterRegistry meterRegistry,
+                       @Value("${notebridge.outbox.batch-size:100}") int batchSize,
+                       @Value("${notebridge.outbox.max-batches-per-poll:10}") int maxBatchesPerPoll,
+                       @Value("${notebridge.outbox.lease-ms:30000}") long leaseMillis,
+                       @Value("${notebridge.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${notebridge.outbox.backoff-ms:1000}") long backoffMillis,
+                       @Value("${notebridge.outbox.max-backoff-ms:300000}") long maxBackoffMillis) {
+        this.repo = repo;
+        this.deliveryRepo = deliveryRepo;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.handlers = handlers.orderedStream().toList();
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+
+        TimeGauge.builder("notebridge.outbox.pending.oldest.age", oldestPendingAgeMillis, TimeUnit.MILLISECONDS,
+                AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${notebridge.outbox.poll-interval-ms:200}",
+            initialDelayString = "${notebridge.outbox.poll-interval-ms:200}")
+    public void scheduledPoll() {
+        try {
+            poll();
+        } catch (Exception e) {
+            System.err.println("Outbox relay poll failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Relay due events until none are left or the per-poll batch limit is reached
+     *
+     * @return the number of events claimed
+     */
+    public int poll() {
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicLong oldestAge = new AtomicLong();
+        shardRouter.forEachDatabase(() -> {
+            for (int i = 0; i < maxBatchesPerPoll; i++) {
+                int batch = relayBatch();
+                claimed.addAndGet(batch);
+                if (batch < batchSize) {
+                    break;
+                }
+            }
+            oldestAge.accumulateAndGet(oldestPendingAge(), Math::max);
+        });
+        oldestPendingAgeMillis.set(oldestAge.get());
+        return claimed.get();
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> due = repo.findDueForUpdate(OutboxEvent.Status.PENDING, now, PageRequest.of(0, batchSize));
+            for (OutboxEvent event : due) {
+                event.setAvailableAt(now.plus(lease));
+            }
+            return due;
+        });
+
+        for (OutboxEvent event : batch) {
+            dispatch(event);
+        }
+        return batch.size();
+    }
+
+    private void dispatch(OutboxEvent event) {
+        Set<String> delivered = new HashSet<>(deliveryRepo.findHandlersByEventId(event.getEventId()));
+        Exception failure = null;
+
+        for (OutboxEventHandler handler : handlers) {
+            if (!handler.handles(event.getEventType()) || delivered.contains(handler.getName())) {
+                continue;
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                handler.handle(event);
+                recordDelivery(event, handler);
+                sample.stop(handlerTimer(handler, "success"));
+            } catch (Exception e) {
+                sample.stop(handlerTimer(handler, "failure"));
+                System.err.println("Outbox handler " + handler.getName() + " failed for " + event.getEventType()
+                        + " " + event.getEventId() + ": " + e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure == null) {
+            published(event);
+        } else {
+            failed(event, failure);
+        }
+    }
+
+    private void recordDelivery(OutboxEvent event, OutboxEventHandler handler) {
+        try {
+            deliveryRepo.save(new OutboxDelivery(event.getEventId(), handler.getName(), LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            // Another relay delivered it after our lease ran out; the handler saw it twice
+        }
+    }
+
+    private void published(OutboxEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        event.setStatus(OutboxEvent.Status.PUBLISHED);
+        event.setPublishedAt(now);
+        event.setLastError(null);
+        repo.save(event);
+
+        String type = event.getEventType();
+        Counter.builder("notebridge.outbox.events.published").tag("type", type).register(meterRegistry).increment();
+        Timer.builder("notebridge.outbox.lag").tag("type", type).register(meterRegistry)
+                .record(Duration.between(event.getCreatedAt(), now));
+    }
+
+    private void failed(OutboxEvent event, Exception failure) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String message = String.valueOf(failure.getMessage());
+        event.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+
+        String outcome;
+        if (attempts >= maxAttempts) {
+            // Parked for inspection; set it back to PENDING to retry
+            event.setStatus(OutboxEvent.Status.FAILED);
+            outcome = "abandoned";
+            System.err.println("Outbox event " + event.getEventId() + " abandoned after " + attempts + " attempts");
+        } else {
+            event.setAvailableAt(LocalDateTime.now().plus(Duration.ofMillis(backoff(attempts))));
+            outcome = "retried";
+        }
+        repo.save(event);
+        Counter.builder("notebridge.outbox.events.failed")
+                .tag("type", event.getEventType()).tag("outcome", outcome).register(meterRegistry).increment();
+    }
+
+    long backoff(int attempts) {
+        long delay = backoffMillis << Math.min(attempts - 1, 20);
+        return Math.min(delay, maxBackoffMillis);
+    }
+
+    private Timer handlerTimer(OutboxEventHandler handler, String result) {
+        return Timer.builder("notebridge.outbox.handler")
+                .tag("handler", handler.getName()).tag("result", result).register(meterRegistry);
+    }
+
+    private long oldestPendingAge() {
+        OutboxEvent oldest = repo.findFirstByStatusOrderByIdAsc(OutboxEvent.Status.PENDING);
+        return oldest == null ? 0 : Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis();
+    }
+}
@@ -2,10 +2,13 @@ package com.notebridge.project.repository;
 
 import com.notebridge.project.model.Chat;
 import com.notebridge.project.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,19 +16,32 @@ import java.util.Optional;
 public interface ChatRepository extends JpaRepository<Chat, Long> {
     
     // Find all chats for a user (teacher or student)
-    @Query("SELECT c FROM Chat c WHERE c.teacher = :user OR c.student = :user ORDER BY c.lastMessageAt DESC")
+    @Query("SELECT c FROM Chat c JOIN FETCH c.teacher JOIN FETCH c.student "
+            + "WHERE c.teacher = :user OR c.student = :user ORDER BY c.lastMessageAt DESC")
     List<Chat> findByUser(User user);
     
     // Find active chats for a user
-    @Query("SELECT c FROM Chat c WHERE (c.teacher = :user OR c.student = :user) AND c.isActive = true ORDER BY c.lastMessageAt DESC")
+    @Query("SELECT c FROM Chat c JOIN FETCH c.teacher JOIN FETCH c.student "
+            + "WHERE (c.teacher = :user OR c.student = :user) AND c.isActive = true ORDER BY c.lastMessageAt DESC")
     List<Chat> findActiveByUser(User user);
     
+    @EntityGraph("Chat.participants")
+    Optional<Chat> findWithParticipantsById(Long id);
+    
     // Find chat between specific teacher and student
     Optional<Chat> findByTeacherAndStudent(User teacher, User student);
     
     // Find chats for a teacher
+    @EntityGraph("Chat.participants")
     List<Chat> findByTeacherOrderByLastMessageAtDesc(User teacher);
     
     // Find chats for a student
+    @EntityGraph("Chat.participants")
     List<Chat> findByStudentOrderByLastMessageAtDesc(User student);
+    
+    // On a shard the id comes from the chat directory rather than the table's own counter
+    @Modifying
+    @Query(value = "INSERT INTO chats (id, teacher_id, student_id, subject, created_at, last_message_at, is_active) "
+            + "VALUES (:id, :teacherId, :studentId, :subject, :createdAt, :createdAt, true)", nativeQuery = true)
+    void insertWithId(Long id, Long teacherId, Long studentId, String subject, LocalDateTime createdAt);
 }
@@ -0,0 +1,48 @@
+package com.notebridge.project.repository;
+
+import com.notebridge.project.model.ChatShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatShardRepository extends JpaRepository<ChatShard, Long> {
+
+    Optional<ChatShard> findByTeacherIdAndStudentId(Long teacherId, Long studentId);
+
+    // Chat writes hold this (FOR SHARE) for their whole shard transaction, so a move, which
+    // takes the row FOR UPDATE, waits for them and they wait for it
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM ChatShard s WHERE s.chatId = :chatId")
+    Optional<ChatShard> findForWrite(Long chatId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ChatShard s WHERE s.chatId = :chatId")
+    Optional<ChatShard> findForMove(Long chatId);
+
+    @Query("SELECT s FROM ChatShard s WHERE s.teacherId = :userId OR s.studentId = :userId")
+    List<ChatShard> findByParticipant(Long userId);
+
+    @Query("SELECT s.shard, COUNT(s) FROM ChatShard s GROUP BY s.shard")
+    List<Object[]> countByShard();
+
+    @Query("SELECT s.chatId FROM ChatShard s WHERE s.shard = :shard ORDER BY s.chatId")
+    List<Long> findChatIdsByShard(int shard, Pageable pageable);
+
+    // Chats created before sharding was enabled stay on the primary until they are moved. MySQL
+    // moves the AUTO_INCREMENT past the copied ids, so new chats can't reuse them.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO chat_shards (chat_id, shard, teacher_id, student_id) " +
+            "SELECT c.id, -1, c.teacher_id, c.student_id FROM chats c " +
+            "WHERE NOT EXISTS (SELECT 1 FROM chat_shards s WHERE s.chat_id = c.id)", nativeQuery = true)
+    int registerUnplacedChats();
+}
@@ -1,13 +1,98 @@
 package com.notebridge.project.repository;
 
 import com.notebridge.project.model.FileMetaData;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface FileMetaDataRepository extends JpaRepository<FileMetaData, Integer> {
     FileMetaData findByUniqueId(String uniqueId);
+
+    // Same lookup with the variants fetched in the same query, usable outside a transaction
+    @EntityGraph(attributePaths = "variants")
+    @Query("SELECT f FROM FileMetaData f WHERE f.uniqueId = :uniqueId")
+    FileMetaData findWithVariantsByUniqueId(String uniqueId);
+
+    // Another file with the same content whose variants have already been generated
+    @Query(value = "SELECT f.unique_id FROM files f WHERE f.content_hash = :contentHash AND f.unique_id <> :uniqueId " +
+            "AND EXISTS (SELECT 1 FROM file_variants v WHERE v.file_id = f.id) LIMIT 1", nativeQuery = true)
+    String findUniqueIdWithVariantsByContentHash(String contentHash, String uniqueId);
+
+    // Reference count of a content-addressed object
+    long countByContentHash(String contentHash);
+
+    // The references to a content-addressed object, locked until the transaction ends
+    @Query(value = "SELECT id FROM files WHERE content_hash = :contentHash FOR UPDATE", nativeQuery = true)
+    List<Integer> lockIdsByContentHash(String contentHash);
+
     @Transactional
     int deleteByUniqueId(String uniqueId);
+
+    // Keyset pages of the object names referenced by files and by variants. object_name has a
+    // binary collation and an index on both tables, so each page is an index range scan in the
+    // order storage listings use; the service merges the two
+    @Query(value = "SELECT DISTINCT object_name FROM files WHERE object_name > :after " +
+            "ORDER BY object_name LIMIT :limit", nativeQuery = true)
+    List<String> findFileObjectNamesAfter(String after, int limit);
+
+    @Query(value = "SELECT DISTINCT object_name FROM file_variants WHERE object_name > :after " +
+            "ORDER BY object_name LIMIT :limit", nativeQuery = true)
+    List<String> findVariantObjectNamesAfter(String after, int limit);
+
+    // Collations of the object_name columns, which the keyset pages above rely on being binary
+    @Query(value = "SELECT collation_name FROM information_schema.columns WHERE table_schema = DATABASE() " +
+            "AND table_name IN ('files', 'file_variants') AND column_name = 'object_name'", nativeQuery = true)
+    List<String> findObjectNameCollations();
+
+    // Those of the names referenced by a file uploaded since the cutoff, or by one of its variants
+    @Query(value = "SELECT f.object_name FROM files f WHERE f.object_name IN (:objectNames) AND f.upload_date >= :cutoff " +
+            "UNION SELECT v.object_name FROM file_variants v JOIN files f ON f.id = v.file_id " +
+            "WHERE v.object_name IN (:objectNames) AND f.upload_date >= :cutoff", nativeQuery = true)
+    List<String> findObjectNamesReferencedSince(Collection<String> objectNames, LocalDateTime cutoff);
+
+    // Older profile pictures of users who have uploaded a newer one
+    @Query(value = "SELECT f.id FROM files f WHERE f.user_id IS NOT NULL AND f.id > :afterId " +
+            "AND EXISTS (SELECT 1 FROM files n WHERE n.user_id = f.user_id AND n.id > f.id) " +
+            "ORDER BY f.id LIMIT :limit", nativeQuery = true)
+    List<Integer> findSupersededProfilePictureIds(int afterId, int limit);
+
+    // Older pictures of lessons that have a newer one; lesson materials are left alone
+    @Query(value = "SELECT f.id FROM files f WHERE f.lesson_picture = TRUE AND f.id > :afterId " +
+            "AND EXISTS (SELECT 1 FROM files n WHERE n.lesson_id = f.lesson_id AND n.lesson_picture = TRUE AND n.id > f.id) " +
+            "ORDER BY f.id LIMIT :limit", nativeQuery = true)
+    List<Integer> findSupersededLessonPictureIds(int afterId, int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM file_variants WHERE object_name IN (:objectNames)", nativeQuery = true)
+    int deleteVariantsByObjectNames(Collection<String> objectNames);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM file_variants WHERE file_id IN (SELECT id FROM files WHERE object_name IN (:objectNames))",
+            nativeQuery = true)
+    int deleteVariantsOfFilesByObjectNames(Collection<String> objectNames);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM files WHERE object_name IN (:objectNames)", nativeQuery = true)
+    int deleteByObjectNames(Collection<String> objectNames);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM file_variants WHERE file_id IN (:ids)", nativeQuery = true)
+    int deleteVariantsByFileIds(Collection<Integer> ids);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM files WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(Collection<Integer> ids);
 }
@@ -2,15 +2,35 @@ package com.notebridge.project.repository;
 
 import com.notebridge.project.model.Lesson;
 import com.notebridge.project.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LessonRepository extends JpaRepository<Lesson, Long> {
+    // Finders behind the API load the teacher in the same query, since every LessonView shows it
+
+    @EntityGraph("Lesson.teacher")
+    Optional<Lesson> findWithTeacherById(Long id);
+
+    @EntityGraph("Lesson.teacher")
+    List<Lesson> findWithTeacherByIdIn(Collection<Long> ids);
+
+    @EntityGraph("Lesson.teacher")
+    @Query("SELECT l FROM Lesson l")
+    List<Lesson> findAllWithTeacher();
+
     // Find lessons by teacher
+    @EntityGraph("Lesson.teacher")
     List<Lesson> findByTeacher(User teacher);
 
     // Find lessons by location type
@@ -19,10 +39,16 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     // Find upcoming lessons for a teacher
     List<Lesson> findByTeacherAndStartTimeAfter(User teacher, LocalDateTime now);
 
-    // Find non-cancelled lessons
+    // Find non-cancelled lessons. Cached until the next write to lessons; the upcoming query
+    // below isn't, since its time parameter makes every call a new cache key
+    @EntityGraph("Lesson.teacher")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Lesson> findByIsCancelledFalse();
 
+    @EntityGraph("Lesson.teacher")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Lesson> findByTeacherAndIsCancelledFalse(User user);
 
+    @EntityGraph("Lesson.teacher")
     List<Lesson> findByStartTimeAfterAndIsCancelledFalse(LocalDateTime now);
 }
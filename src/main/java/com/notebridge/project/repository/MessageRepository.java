@@ -3,36 +3,59 @@ package com.notebridge.project.repository;
 import com.notebridge.project.model.Chat;
 import com.notebridge.project.model.Message;
 import com.notebridge.project.model.User;
+import com.notebridge.project.response.MessageView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     
     // Get messages for a chat (paginated)
+    @EntityGraph("Message.sender")
     Page<Message> findByChatOrderBySentAtDesc(Chat chat, Pageable pageable);
+
+    // The chat history endpoint: one flat query per page, no entities or persistence context
+    @Query(value = "SELECT new com.notebridge.project.response.MessageView(m.id, m.chat.id, s.id, s.username, "
+            + "m.content, m.sentAt, m.isRead) FROM Message m JOIN m.sender s WHERE m.chat = :chat ORDER BY m.sentAt DESC",
+            countQuery = "SELECT COUNT(m) FROM Message m WHERE m.chat = :chat")
+    Page<MessageView> findViewsByChat(Chat chat, Pageable pageable);
+    
+    // The same for the messages the sync endpoint returns
+    @Query("SELECT new com.notebridge.project.response.MessageView(m.id, m.chat.id, s.id, s.username, "
+            + "m.content, m.sentAt, m.isRead) FROM Message m JOIN m.sender s WHERE m.id IN :ids ORDER BY m.sentAt")
+    List<MessageView> findViewsByIdIn(Collection<Long> ids);
     
     // Get latest messages for a chat
+    @EntityGraph("Message.sender")
     List<Message> findTop50ByChatOrderBySentAtDesc(Chat chat);
     
     // Count unread messages for a user in a chat
     @Query("SELECT COUNT(m) FROM Message m WHERE m.chat = :chat AND m.sender != :user AND m.isRead = false")
     long countUnreadMessages(Chat chat, User user);
     
-    // Mark messages as read
-    @Modifying
+    // Mark messages as read. A bulk update bypasses the persistence context and the second-level
+    // cache, so flush pending changes first and clear afterwards; Hibernate bumps the messages
+    // table's update timestamp, which invalidates any cached query over it.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Transactional
     @Query("UPDATE Message m SET m.isRead = true WHERE m.chat = :chat AND m.sender != :user AND m.isRead = false")
-    void markMessagesAsRead(Chat chat, User user);
+    int markMessagesAsRead(Chat chat, User user);
     
     // Count total unread messages for a user
     @Query("SELECT COUNT(m) FROM Message m WHERE (m.chat.teacher = :user OR m.chat.student = :user) AND m.sender != :user AND m.isRead = false")
     long countTotalUnreadMessages(User user);
+    
+    // The same per chat, for summing across shards: [chat id, count]
+    @Query("SELECT m.chat.id, COUNT(m) FROM Message m WHERE (m.chat.teacher = :user OR m.chat.student = :user) "
+            + "AND m.sender != :user AND m.isRead = false GROUP BY m.chat.id")
+    List<Object[]> countUnreadMessagesByChat(User user);
 }
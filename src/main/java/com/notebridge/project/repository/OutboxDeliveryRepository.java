@@ -0,0 +1,15 @@
+package com.notebridge.project.repository;
+
+import com.notebridge.project.model.OutboxDelivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxDeliveryRepository extends JpaRepository<OutboxDelivery, Long> {
+
+    @Query("SELECT d.handler FROM OutboxDelivery d WHERE d.eventId = :eventId")
+    List<String> findHandlersByEventId(String eventId);
+}
@@ -0,0 +1,29 @@
+package com.notebridge.project.repository;
+
+import com.notebridge.project.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Oldest due events, locked FOR UPDATE SKIP LOCKED (lock timeout -2) so concurrent relays
+    // claim disjoint batches instead of queueing behind each other. Must run in a transaction.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status AND e.availableAt <= :now ORDER BY e.id")
+    List<OutboxEvent> findDueForUpdate(OutboxEvent.Status status, LocalDateTime now, Pageable pageable);
+
+    OutboxEvent findFirstByStatusOrderByIdAsc(OutboxEvent.Status status);
+
+    List<OutboxEvent> findByAggregateTypeAndAggregateIdOrderByIdAsc(String aggregateType, String aggregateId);
+}
@@ -0,0 +1,26 @@
+package com.notebridge.project.repository;
+
+import com.notebridge.project.model.SyncChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SyncChangeRepository extends JpaRepository<SyncChange, Long> {
+
+    // A user's changes plus the lesson catalogue's, after one token and up to another; both
+    // halves of the IN are ranges on (user_id, seq)
+    @Query("SELECT c FROM SyncChange c WHERE c.userId IN (:userId, " + SyncChange.EVERYONE + ") "
+            + "AND c.seq > :afterSeq AND c.seq <= :upToSeq ORDER BY c.seq")
+    List<SyncChange> findForUser(Long userId, long afterSeq, long upToSeq, Pageable pageable);
+
+    @Query("SELECT MAX(c.seq) FROM SyncChange c WHERE c.changedAt < :before")
+    Long findLastSeqBefore(LocalDateTime before);
+
+    @Query("SELECT c.id FROM SyncChange c WHERE c.seq <= :seq ORDER BY c.seq")
+    List<Long> findIdsThroughSeq(long seq, Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.notebridge.project.repository;
+
+import com.notebridge.project.model.SyncSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface SyncSequenceRepository extends JpaRepository<SyncSequence, Long> {
+
+    // Held until the recorded changes commit, which serializes the writers of sync_changes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SyncSequence s WHERE s.id = :id")
+    Optional<SyncSequence> findForUpdate(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SyncSequence s SET s.prunedThrough = :seq WHERE s.id = :id AND s.prunedThrough < :seq")
+    int advancePrunedThrough(Long id, long seq);
+}
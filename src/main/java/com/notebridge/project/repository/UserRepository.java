@@ -2,8 +2,14 @@ package com.notebridge.project.repository;
 
 import com.notebridge.project.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 //  By extending JpaRepository, you automatically get methods for:
 //
 //
@@ -19,6 +25,19 @@ import org.springframework.stereotype.Repository;
 //  delete(User entity) - deletes a User
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Every authenticated request resolves the current user by name; the query cache maps the name
+    // to the id and the entity comes from the second-level cache. Any write to users invalidates it.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     User findByUsername(String username);
     User findByEmail(String email);
+
+    // Streamed (must be consumed inside a transaction) so startup doesn't load every user row.
+    // MIN_VALUE fetch size makes MySQL Connector/J stream the result set row by row.
+    @Query("SELECT u.username FROM User u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<String> streamAllUsernames();
+
+    @Query("SELECT u.email FROM User u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<String> streamAllEmails();
 }
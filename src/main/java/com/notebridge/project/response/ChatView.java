@@ -0,0 +1,17 @@
+package com.notebridge.project.response;
+
+import com.notebridge.project.model.Chat;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat as returned by the API. Both participants must be loaded, e.g. via "Chat.participants".
+ */
+public record ChatView(Long id, UserSummary teacher, UserSummary student, String subject, LocalDateTime createdAt,
+                       LocalDateTime lastMessageAt, boolean active) {
+
+    public static ChatView from(Chat chat) {
+        return new ChatView(chat.getId(), UserSummary.from(chat.getTeacher()), UserSummary.from(chat.getStudent()),
+                chat.getSubject(), chat.getCreatedAt(), chat.getLastMessageAt(), chat.isActive());
+    }
+}
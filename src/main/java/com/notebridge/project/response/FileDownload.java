@@ -0,0 +1,51 @@
+package com.notebridge.project.response;
+
+/**
+ * Everything needed to answer a raw download request without holding the file content.
+ * Objects are immutable once uploaded, so the file id (plus variant) doubles as a strong ETag.
+ */
+public class FileDownload {
+    private final String fileId;
+    private final String variant;
+    private final String objectName;
+    private final String fileName;
+    private final String contentType;
+    private final long size;
+
+    public FileDownload(String fileId, String variant, String objectName, String fileName, String contentType, long size) {
+        this.fileId = fileId;
+        this.variant = variant;
+        this.objectName = objectName;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public String getVariant() {
+        return variant;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getETag() {
+        return "\"" + fileId + (variant != null ? "-" + variant : "") + "\"";
+    }
+}
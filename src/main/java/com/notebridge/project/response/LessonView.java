@@ -0,0 +1,19 @@
+package com.notebridge.project.response;
+
+import com.notebridge.project.model.Lesson;
+
+import java.time.LocalDateTime;
+
+/**
+ * A lesson as returned by the API. The teacher must be loaded, e.g. via the "Lesson.teacher" graph.
+ */
+public record LessonView(Long id, UserSummary teacher, String description, Lesson.LocationType location,
+                         LocalDateTime startTime, LocalDateTime endTime, String meetingLink, String physicalAddress,
+                         boolean cancelled) {
+
+    public static LessonView from(Lesson lesson) {
+        return new LessonView(lesson.getId(), UserSummary.from(lesson.getTeacher()), lesson.getDescription(),
+                lesson.getLocation(), lesson.getStartTime(), lesson.getEndTime(), lesson.getMeetingLink(),
+                lesson.getPhysicalAddress(), lesson.isCancelled());
+    }
+}
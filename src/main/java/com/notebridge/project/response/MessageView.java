@@ -0,0 +1,18 @@
+package com.notebridge.project.response;
+
+import com.notebridge.project.model.Message;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message as returned by the API. The chat is referenced by id only, and the sender
+ * by id and username, so a page of messages can be read with one flat query.
+ */
+public record MessageView(Long id, Long chatId, Long senderId, String senderUsername, String content,
+                          LocalDateTime sentAt, boolean read) {
+
+    public static MessageView from(Message message) {
+        return new MessageView(message.getId(), message.getChat().getId(), message.getSender().getId(),
+                message.getSender().getUsername(), message.getContent(), message.getSentAt(), message.isRead());
+    }
+}
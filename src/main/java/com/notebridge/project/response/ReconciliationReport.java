@@ -0,0 +1,126 @@
+package com.notebridge.project.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a storage/metadata reconciliation run. Sample lists are capped so the report
+ * stays small however many orphans are found.
+ */
+public class ReconciliationReport {
+
+    private static final int SAMPLE_LIMIT = 100;
+
+    private final boolean dryRun;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+    private long storageObjectsScanned;
+    private long referencedNamesScanned;
+    private long orphanedObjects;
+    private long orphanedObjectsDeleted;
+    private long missingObjects;
+    private long metadataRowsDeleted;
+    private long supersededProfilePictures;
+    private long supersededLessonPictures;
+    private final List<String> orphanedObjectSample = new ArrayList<>();
+    private final List<String> missingObjectSample = new ArrayList<>();
+
+    public ReconciliationReport(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public void storageObjectScanned() {
+        storageObjectsScanned++;
+    }
+
+    public void referencedNameScanned() {
+        referencedNamesScanned++;
+    }
+
+    public void orphanedObject(String objectName) {
+        orphanedObjects++;
+        if (orphanedObjectSample.size() < SAMPLE_LIMIT) {
+            orphanedObjectSample.add(objectName);
+        }
+    }
+
+    public void missingObject(String objectName) {
+        missingObjects++;
+        if (missingObjectSample.size() < SAMPLE_LIMIT) {
+            missingObjectSample.add(objectName);
+        }
+    }
+
+    public void orphanedObjectsDeleted(long count) {
+        orphanedObjectsDeleted += count;
+    }
+
+    public void metadataRowsDeleted(long count) {
+        metadataRowsDeleted += count;
+    }
+
+    public void supersededProfilePictures(long count) {
+        supersededProfilePictures += count;
+    }
+
+    public void supersededLessonPictures(long count) {
+        supersededLessonPictures += count;
+    }
+
+    public void finish() {
+        finishedAt = LocalDateTime.now();
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getStorageObjectsScanned() {
+        return storageObjectsScanned;
+    }
+
+    public long getReferencedNamesScanned() {
+        return referencedNamesScanned;
+    }
+
+    public long getOrphanedObjects() {
+        return orphanedObjects;
+    }
+
+    public long getOrphanedObjectsDeleted() {
+        return orphanedObjectsDeleted;
+    }
+
+    public long getMissingObjects() {
+        return missingObjects;
+    }
+
+    public long getMetadataRowsDeleted() {
+        return metadataRowsDeleted;
+    }
+
+    public long getSupersededProfilePictures() {
+        return supersededProfilePictures;
+    }
+
+    public long getSupersededLessonPictures() {
+        return supersededLessonPictures;
+    }
+
+    public List<String> getOrphanedObjectSample() {
+        return orphanedObjectSample;
+    }
+
+    public List<String> getMissingObjectSample() {
+        return missingObjectSample;
+    }
+}
@@ -0,0 +1,9 @@
+package com.notebridge.project.response;
+
+import java.util.Map;
+
+/**
+ * Outcome of a chat rebalance: chats moved, and chats per database afterwards (-1 is the primary)
+ */
+public record ShardRebalanceReport(int chatsMoved, Map<Integer, Long> chatsPerDatabase) {
+}
@@ -0,0 +1,33 @@
+package com.notebridge.project.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Everything that changed for a user since their change token. Entities are in their current
+ * state; a chat's lastMessageAt moves with its newest message, which is in messages. Clients
+ * store token and pass it to the next call, immediately again while hasMore is set.
+ *
+ * fullResyncRequired means the token was missing, unknown or too old: the client should reload
+ * its lists through the regular endpoints, after keeping the new token.
+ */
+public record SyncResponse(String token, boolean fullResyncRequired, boolean hasMore, List<ChatView> chats,
+                           List<MessageView> messages, List<ReadState> readStates, List<LessonView> lessons,
+                           List<Tombstone> tombstones) {
+
+    /**
+     * readerId has read every message the other participant sent before readAt
+     */
+    public record ReadState(Long chatId, Long readerId, LocalDateTime readAt) {
+    }
+
+    /**
+     * An entity to drop: type CHAT or LESSON, reason "cancelled", "inactive" or "deleted"
+     */
+    public record Tombstone(String type, Long id, String reason) {
+    }
+
+    public static SyncResponse fullResync(String token) {
+        return new SyncResponse(token, true, false, List.of(), List.of(), List.of(), List.of(), List.of());
+    }
+}
@@ -0,0 +1,15 @@
+package com.notebridge.project.response;
+
+import com.notebridge.project.model.User;
+
+/**
+ * Public profile fields shown wherever another user appears, e.g. a lesson's teacher
+ */
+public record UserSummary(Long id, String username, String firstName, String lastName, String instrument,
+                          User.Role role) {
+
+    public static UserSummary from(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getFirstName(), user.getLastName(),
+                user.getInstrument(), user.getRole());
+    }
+}
@@ -0,0 +1,15 @@
+package com.notebridge.project.response;
+
+import com.notebridge.project.model.User;
+
+/**
+ * A user as returned by the user endpoints: everything but the password hash
+ */
+public record UserView(Long id, String username, String email, User.Role role, String instrument, String bio,
+                       String firstName, String lastName, String phoneNumber) {
+
+    public static UserView from(User user) {
+        return new UserView(user.getId(), user.getUsername(), user.getEmail(), user.getRole(), user.getInstrument(),
+                user.getBio(), user.getFirstName(), user.getLastName(), user.getPhoneNumber());
+    }
+}
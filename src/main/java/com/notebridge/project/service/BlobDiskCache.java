@@ -0,0 +1,270 @@
+package com.notebridge.project.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Size-bounded LRU cache of storage objects on local disk, keyed by object name.
+ *
+ * Objects are immutable once uploaded (the unique id prefix guarantees a new name for new
+ * content), so entries never need invalidation, only eviction. Concurrent misses for the same
+ * object share one remote fetch. The index is rebuilt from the cache directory at startup,
+ * ordered by last access time, so a restart keeps the warm set.
+ */
+@Service
+@ConditionalOnProperty(name = "notebridge.blob-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class BlobDiskCache {
+
+    private static final String ENTRY_SUFFIX = ".blob";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Writes the full object content to the given file
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+        void fetchTo(Path target) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter bytesServed;
+
+    @Autowired
+    public BlobDiskCache(@Value("${notebridge.blob-cache.dir:${java.io.tmpdir}/notebridge-blob-cache}") String directory,
+                         @Value("${notebridge.blob-cache.max-size-bytes:1073741824}") long maxBytes,
+                         @Value("${notebridge.blob-cache.max-entry-bytes:52428800}") long maxEntryBytes,
+                         MeterRegistry meterRegistry) throws IOException {
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.maxBytes = maxBytes;
+        // An entry larger than the whole cache would evict everything and then itself
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+
+        this.hits = Counter.builder("notebridge.blob.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("notebridge.blob.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("notebridge.blob.cache.evictions").register(meterRegistry);
+        this.bytesServed = Counter.builder("notebridge.blob.cache.served").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("notebridge.blob.cache.size", this, BlobDiskCache::getTotalBytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("notebridge.blob.cache.entries", this, BlobDiskCache::getEntryCount).register(meterRegistry);
+        Gauge.builder("notebridge.blob.cache.hit.ratio", this, BlobDiskCache::getHitRatio).register(meterRegistry);
+
+        rebuildIndex();
+    }
+
+    public boolean isCacheable(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    /**
+     * Return the cached file for {@code objectName}, fetching it once if absent
+     */
+    public Path getOrFetch(String objectName, Fetcher fetcher) throws IOException {
+        String key = keyFor(objectName);
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+
+        synchronized (this) {
+            if (index.get(key) != null) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<Path> fill = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, fill);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            // Another fill may have finished between the index check and claiming the slot
+            synchronized (this) {
+                if (index.get(key) != null) {
+                    fill.complete(entry);
+                    return entry;
+                }
+            }
+
+            Path temp = directory.resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+            try {
+                fetcher.fetchTo(temp);
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            register(key, Files.size(entry));
+            fill.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            fill.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, fill);
+        }
+    }
+
+    /**
+     * Send part of a cached file to the response with FileChannel.transferTo
+     */
+    public void transferTo(Path entry, long start, long length, OutputStream out) throws IOException {
+        // An eviction racing with this read is harmless: the open channel keeps the unlinked file readable
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            bytesServed.increment(length - remaining);
+        }
+        touch(entry);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return index.size();
+    }
+
+    public double getHitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private void register(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = index.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+
+            // The new entry is the most recently used, so it only goes once everything older has
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+
+        for (String evictedKey : evicted) {
+            try {
+                Files.deleteIfExists(directory.resolve(evictedKey + ENTRY_SUFFIX));
+                evictions.increment();
+            } catch (IOException e) {
+                System.err.println("Failed to delete evicted cache entry " + evictedKey + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Keeps LRU order in memory, and on disk so the order survives a restart
+    private void touch(Path entry) {
+        String fileName = entry.getFileName().toString();
+        String key = fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length());
+        synchronized (this) {
+            index.get(key);
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Entry was evicted meanwhile
+        }
+    }
+
+    private void rebuildIndex() throws IOException {
+        List<Map.Entry<Path, BasicFileAttributes>> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    // Fill interrupted by a crash or shutdown
+                    Files.deleteIfExists(path);
+                } else if (fileName.endsWith(ENTRY_SUFFIX)) {
+                    entries.add(Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class)));
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing(e -> e.getValue().lastModifiedTime()));
+        for (Map.Entry<Path, BasicFileAttributes> entry : entries) {
+            String fileName = entry.getKey().getFileName().toString();
+            register(fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()), entry.getValue().size());
+        }
+        System.out.println("Blob disk cache loaded " + getEntryCount() + " entries (" + getTotalBytes() + " bytes)");
+    }
+
+    private static Path await(CompletableFuture<Path> fill) throws IOException {
+        try {
+            return fill.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for cache fill", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Cache fill failed", e.getCause());
+        }
+    }
+
+    // Object names contain user-supplied file names, so hash them into safe fixed-length file names
+    private static String keyFor(String objectName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectName.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -3,18 +3,24 @@ package com.notebridge.project.service;
 import com.notebridge.project.model.Chat;
 import com.notebridge.project.model.Message;
 import com.notebridge.project.model.User;
+import com.notebridge.project.outbox.OutboxEventTypes;
+import com.notebridge.project.outbox.OutboxPublisher;
 import com.notebridge.project.repository.ChatRepository;
 import com.notebridge.project.repository.MessageRepository;
 import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.shard.ChatShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -29,10 +35,17 @@ public class ChatService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+    
+    // Chats and their messages may live on a shard; all of it runs through the router, which
+    // also provides the transactions
+    @Autowired
+    private ChatShardRouter shardRouter;
+    
     /**
      * Create or get existing chat between teacher and student
      */
-    @Transactional
     public Chat createOrGetChat(Long teacherId, Long studentId, String subject) {
         User teacher = userRepository.findById(teacherId)
                 .orElseThrow(() -> new IllegalArgumentException("Teacher not found"));
@@ -47,96 +60,166 @@ public class ChatService {
             throw new IllegalArgumentException("User is not a student");
         }
         
-        // Check if chat already exists between these users
-        Optional<Chat> existingChat = chatRepository.findByTeacherAndStudent(teacher, student);
-        if (existingChat.isPresent()) {
-            // Update subject if different
-            Chat chat = existingChat.get();
-            if (!chat.getSubject().equals(subject)) {
-                chat.setSubject(subject);
-                return chatRepository.save(chat);
+        return shardRouter.writeChatBetween(teacherId, studentId, chatId -> {
+            // Check if chat already exists between these users
+            Optional<Chat> existingChat = chatRepository.findByTeacherAndStudent(teacher, student);
+            if (existingChat.isPresent()) {
+                // The participants were loaded outside this transaction; attach them so they
+                // can still be read once it has ended
+                Chat chat = existingChat.get();
+                chat.setTeacher(teacher);
+                chat.setStudent(student);
+                // Update subject if different
+                if (!chat.getSubject().equals(subject)) {
+                    chat.setSubject(subject);
+                    Chat saved = chatRepository.save(chat);
+                    publishChatEvent(saved, OutboxEventTypes.CHAT_UPDATED);
+                    return saved;
+                }
+                return chat;
             }
+            
+            // Create new chat
+            Chat chat = new Chat();
+            chat.setTeacher(teacher);
+            chat.setStudent(student);
+            chat.setSubject(subject);
+            if (chatId == null) {
+                chat = chatRepository.save(chat);
+            } else {
+                // Sharded: the id comes from the chat directory
+                chatRepository.insertWithId(chatId, teacherId, studentId, subject, chat.getCreatedAt());
+                chat.setId(chatId);
+                chat.setLastMessageAt(chat.getCreatedAt());
+            }
+            publishChatEvent(chat, OutboxEventTypes.CHAT_CREATED);
             return chat;
-        }
-        
-        // Create new chat
-        Chat chat = new Chat();
-        chat.setTeacher(teacher);
-        chat.setStudent(student);
-        chat.setSubject(subject);
-        
-        return chatRepository.save(chat);
+        });
+    }
+    
+    private void publishChatEvent(Chat chat, String eventType) {
+        outboxPublisher.publish("chat", chat.getId(), eventType, Map.of(
+                "teacherId", chat.getTeacher().getId(),
+                "studentId", chat.getStudent().getId()));
     }
     
     /**
      * Send a message in a chat
      */
-    @Transactional
     public Message sendMessage(Long chatId, User sender, String content) {
-        Chat chat = chatRepository.findById(chatId)
-                .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
-        
-        // Verify sender is part of the chat
-        if (!chat.getTeacher().getId().equals(sender.getId()) && 
-            !chat.getStudent().getId().equals(sender.getId())) {
-            throw new IllegalArgumentException("User is not part of this chat");
-        }
-        
-        // Create message
-        Message message = new Message();
-        message.setChat(chat);
-        message.setSender(sender);
-        message.setContent(content);
-        message.setSentAt(LocalDateTime.now());
-        
-        Message savedMessage = messageRepository.save(message);
-        
-        // Update chat's last message time
-        chat.setLastMessageAt(LocalDateTime.now());
-        chatRepository.save(chat);
-        
-        return savedMessage;
+        return shardRouter.writeChat(chatId, () -> {
+            Chat chat = chatRepository.findById(chatId)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+            
+            // Verify sender is part of the chat
+            if (!chat.getTeacher().getId().equals(sender.getId()) && 
+                !chat.getStudent().getId().equals(sender.getId())) {
+                throw new IllegalArgumentException("User is not part of this chat");
+            }
+            
+            // Create message
+            Message message = new Message();
+            message.setChat(chat);
+            message.setSender(sender);
+            message.setContent(content);
+            message.setSentAt(LocalDateTime.now());
+            
+            Message savedMessage = messageRepository.save(message);
+            
+            // Update chat's last message time
+            chat.setLastMessageAt(LocalDateTime.now());
+            chatRepository.save(chat);
+            
+            Long recipientId = chat.getTeacher().getId().equals(sender.getId())
+                    ? chat.getStudent().getId() : chat.getTeacher().getId();
+            outboxPublisher.publish("chat", chat.getId(), OutboxEventTypes.MESSAGE_SENT, Map.of(
+                    "messageId", savedMessage.getId(),
+                    "senderId", sender.getId(),
+                    "recipientId", recipientId));
+            
+            return savedMessage;
+        });
     }
     
     /**
      * Get user's chats
      */
     public List<Chat> getUserChats(User user) {
-        return chatRepository.findActiveByUser(user);
+        if (!shardRouter.isEnabled()) {
+            return shardRouter.readPrimary(() -> chatRepository.findActiveByUser(user));
+        }
+        
+        // Only the databases holding one of the user's chats are asked, all at once
+        Map<Long, Integer> placements = shardRouter.placementsOf(user.getId());
+        Map<Integer, List<Chat>> chatsByDatabase = shardRouter.gather("active-chats", new HashSet<>(placements.values()),
+                () -> chatRepository.findActiveByUser(user));
+        
+        // A chat whose move was interrupted can have a stale copy; only the directory's counts
+        return chatsByDatabase.entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream()
+                        .filter(chat -> entry.getKey().equals(placements.get(chat.getId()))))
+                .sorted(Comparator.comparing(Chat::getLastMessageAt).reversed())
+                .toList();
     }
     
     /**
      * Get chat messages (paginated)
      */
-    public Page<Message> getChatMessages(Long chatId, User user, int page, int size) {
-        Chat chat = chatRepository.findById(chatId)
-                .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
-        
-        // Verify user is part of the chat
-        if (!chat.getTeacher().getId().equals(user.getId()) && 
-            !chat.getStudent().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("User is not part of this chat");
-        }
-        
-        Pageable pageable = PageRequest.of(page, size);
-        return messageRepository.findByChatOrderBySentAtDesc(chat, pageable);
+    public Page<MessageView> getChatMessages(Long chatId, User user, int page, int size) {
+        return shardRouter.readChat(chatId, () -> {
+            Chat chat = chatRepository.findById(chatId)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+            
+            // Verify user is part of the chat
+            if (!chat.getTeacher().getId().equals(user.getId()) && 
+                !chat.getStudent().getId().equals(user.getId())) {
+                throw new IllegalArgumentException("User is not part of this chat");
+            }
+            
+            Pageable pageable = PageRequest.of(page, size);
+            return messageRepository.findViewsByChat(chat, pageable);
+        });
     }
     
     /**
      * Mark messages as read
      */
-    @Transactional
     public void markMessagesAsRead(Long chatId, User user) {
-        Chat chat = chatRepository.findById(chatId)
-                .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
-        
-        messageRepository.markMessagesAsRead(chat, user);
+        shardRouter.writeChat(chatId, () -> {
+            Chat chat = chatRepository.findById(chatId)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+            
+            // Only when something changed, since clients call this whenever a chat is opened
+            if (messageRepository.markMessagesAsRead(chat, user) > 0) {
+                outboxPublisher.publish("chat", chatId, OutboxEventTypes.MESSAGES_READ, Map.of(
+                        "readerId", user.getId(),
+                        "teacherId", chat.getTeacher().getId(),
+                        "studentId", chat.getStudent().getId()));
+            }
+            return null;
+        });
     }
     
     /**
      * Get unread message count for user
      */
     public long getUnreadMessageCount(User user) {
-        return messageRepository.countTotalUnreadMessages(user);
+        if (!shardRouter.isEnabled()) {
+            return shardRouter.readPrimary(() -> messageRepository.countTotalUnreadMessages(user));
+        }
+        
+        Map<Long, Integer> placements = shardRouter.placementsOf(user.getId());
+        Map<Integer, List<Object[]>> countsByDatabase = shardRouter.gather("unread-count",
+                new HashSet<>(placements.values()), () -> messageRepository.countUnreadMessagesByChat(user));
+        
+        long total = 0;
+        for (Map.Entry<Integer, List<Object[]>> entry : countsByDatabase.entrySet()) {
+            for (Object[] row : entry.getValue()) {
+                if (entry.getKey().equals(placements.get(((Number) row[0]).longValue()))) {
+                    total += ((Number) row[1]).longValue();
+                }
+            }
+        }
+        return total;
     }
-}
\ No newline at end of file
+}
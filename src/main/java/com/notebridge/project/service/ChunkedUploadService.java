@@ -0,0 +1,342 @@
+package com.notebridge.project.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Resumable chunked uploads for large lesson materials (recordings, sheet-music PDFs).
+ *
+ * Chunks are appended to a spool file on local disk through a fixed-size buffer, and the
+ * finished file is streamed to storage, so heap usage per upload doesn't depend on file size.
+ * Session state lives next to the spool file, so an interrupted client can ask for the
+ * received offset and continue from there, even across a restart. Sessions belong to the user
+ * who started them, and ones that see no chunk for the session TTL are deleted, at startup and
+ * then periodically.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final Path spoolDirectory;
+    private final long maxUploadSize;
+    private final long sessionTtlMillis;
+    private final ConcurrentHashMap<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ChunkedUploadService(FileStorageService fileStorageService,
+                                @Value("${notebridge.uploads.spool-dir:${java.io.tmpdir}/notebridge-uploads}") String spoolDirectory,
+                                @Value("${notebridge.uploads.max-size:5368709120}") long maxUploadSize,
+                                @Value("${notebridge.uploads.session-ttl-ms:86400000}") long sessionTtlMillis) throws IOException {
+        this.fileStorageService = fileStorageService;
+        this.spoolDirectory = Files.createDirectories(Paths.get(spoolDirectory));
+        this.maxUploadSize = maxUploadSize;
+        this.sessionTtlMillis = sessionTtlMillis;
+        // Uploads abandoned before a crash or restart have no session in memory, only their spool files
+        expireAbandonedUploads();
+    }
+
+    public static class UploadSession {
+        private final String uploadId;
+        private final String owner;
+        private final String fileName;
+        private final String contentType;
+        private final long totalSize;
+        private final Long lessonId;
+        // A lock rather than a monitor: the holder does file and storage I/O, which would pin
+        // a virtual thread to its carrier for the whole upload
+        private final ReentrantLock lock = new ReentrantLock();
+
+        UploadSession(String uploadId, String owner, String fileName, String contentType, long totalSize, Long lessonId) {
+            this.uploadId = uploadId;
+            this.owner = owner;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.totalSize = totalSize;
+            this.lessonId = lessonId;
+        }
+
+        public String getUploadId() {
+            return uploadId;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getTotalSize() {
+            return totalSize;
+        }
+
+        public Long getLessonId() {
+            return lessonId;
+        }
+    }
+
+    public UploadSession startUpload(String owner, String fileName, String contentType, long totalSize, Long lessonId) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("File name is required");
+        }
+        if (totalSize <= 0 || totalSize > maxUploadSize) {
+            throw new IllegalArgumentException("Total size must be between 1 and " + maxUploadSize + " bytes");
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), owner, fileName,
+                contentType != null ? contentType : "application/octet-stream", totalSize, lessonId);
+
+        Properties properties = new Properties();
+        properties.setProperty("owner", owner);
+        properties.setProperty("fileName", session.fileName);
+        properties.setProperty("contentType", session.contentType);
+        properties.setProperty("totalSize", Long.toString(session.totalSize));
+        if (lessonId != null) {
+            properties.setProperty("lessonId", lessonId.toString());
+        }
+        try (Writer writer = Files.newBufferedWriter(sessionFile(session.uploadId))) {
+            properties.store(writer, null);
+        }
+        Files.createFile(partFile(session.uploadId));
+
+        sessions.put(session.uploadId, session);
+        return session;
+    }
+
+    /**
+     * Write a chunk starting at {@code offset}. Re-sending an already received range is allowed
+     * (the spool file is truncated back to the offset); skipping ahead is not.
+     *
+     * @return total bytes received so far
+     */
+    public long appendChunk(String uploadId, String owner, long offset, InputStream chunk) throws IOException {
+        UploadSession session = getSession(uploadId, owner);
+
+        // One writer per session at a time
+        session.lock.lock();
+        try {
+            try (FileChannel channel = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+                long received = channel.size();
+                if (offset < 0 || offset > received) {
+                    throw new IllegalArgumentException("Expected offset " + received + " but got " + offset);
+                }
+                channel.truncate(offset);
+                channel.position(offset);
+
+                ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+                byte[] array = buffer.array();
+                long position = offset;
+                int read;
+                while ((read = chunk.read(array)) != -1) {
+                    position += read;
+                    if (position > session.totalSize) {
+                        channel.truncate(offset);
+                        throw new IllegalArgumentException("Chunk exceeds declared total size of " + session.totalSize + " bytes");
+                    }
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                return position;
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public long getReceivedBytes(String uploadId, String owner) throws IOException {
+        getSession(uploadId, owner);
+        return Files.size(partFile(uploadId));
+    }
+
+    /**
+     * Push the fully received file to storage and return its file id
+     */
+    public String completeUpload(String uploadId, String owner) throws IOException {
+        UploadSession session = getSession(uploadId, owner);
+
+        session.lock.lock();
+        try {
+            long received = Files.size(partFile(uploadId));
+            if (received != session.totalSize) {
+                throw new IllegalArgumentException("Upload incomplete: received " + received + " of " + session.totalSize + " bytes");
+            }
+
+            Path part = partFile(uploadId);
+            String fileId = fileStorageService.uploadStream(() -> Files.newInputStream(part),
+                    session.fileName, session.contentType, session.lessonId, null);
+            discard(uploadId);
+            return fileId;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public void abortUpload(String uploadId, String owner) throws IOException {
+        UploadSession session = getSession(uploadId, owner);
+        session.lock.lock();
+        try {
+            discard(uploadId);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Delete the spool files of uploads that haven't received a chunk within the session TTL
+     *
+     * @return how many uploads were removed
+     */
+    @Scheduled(fixedDelayString = "${notebridge.uploads.sweep-interval-ms:3600000}",
+            initialDelayString = "${notebridge.uploads.sweep-interval-ms:3600000}")
+    public int expireAbandonedUploads() {
+        Instant cutoff = Instant.now().minusMillis(sessionTtlMillis);
+
+        // Latest modification per upload id, over its .part and .properties files; every chunk
+        // touches the .part file. Anything else in the directory (multipart temp files, the job
+        // spool) is left alone.
+        Map<String, FileTime> lastActivity = new HashMap<>();
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                if (dot < 0 || !(name.endsWith(".part") || name.endsWith(".properties")) || !isUploadId(name.substring(0, dot))) {
+                    continue;
+                }
+                try {
+                    FileTime modified = Files.getLastModifiedTime(file);
+                    lastActivity.merge(name.substring(0, dot), modified, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+                } catch (IOException e) {
+                    // deleted by a concurrent complete or abort
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list upload spool directory " + spoolDirectory + ": " + e.getMessage());
+            return 0;
+        }
+
+        int expired = 0;
+        for (Map.Entry<String, FileTime> entry : lastActivity.entrySet()) {
+            if (entry.getValue().toInstant().isBefore(cutoff) && expire(entry.getKey())) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            System.out.println("Expired " + expired + " abandoned chunked upload(s)");
+        }
+        return expired;
+    }
+
+    private boolean expire(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        // A session that is busy right now isn't abandoned
+        if (session != null && !session.lock.tryLock()) {
+            return false;
+        }
+        try {
+            discard(uploadId);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to delete abandoned upload " + uploadId + ": " + e.getMessage());
+            return false;
+        } finally {
+            if (session != null) {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    // Someone else's upload is reported exactly like a missing one
+    private UploadSession getSession(String uploadId, String owner) throws IOException {
+        UploadSession session = loadSession(uploadId);
+        if (!session.owner.equals(owner)) {
+            throw new IllegalArgumentException("No upload found with ID: " + uploadId);
+        }
+        return session;
+    }
+
+    private UploadSession loadSession(String uploadId) throws IOException {
+        UploadSession session = sessions.get(uploadId);
+        if (session != null) {
+            return session;
+        }
+
+        // Not in memory (e.g. after a restart): reload it from the spool directory
+        Path sessionFile = sessionFile(uploadId);
+        if (!Files.exists(sessionFile)) {
+            throw new IllegalArgumentException("No upload found with ID: " + uploadId);
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(sessionFile)) {
+            properties.load(reader);
+        }
+        String lessonId = properties.getProperty("lessonId");
+        // Sessions written before owners were recorded belong to nobody and simply expire
+        UploadSession loaded = new UploadSession(uploadId, properties.getProperty("owner", ""), properties.getProperty("fileName"),
+                properties.getProperty("contentType"), Long.parseLong(properties.getProperty("totalSize")),
+                lessonId != null ? Long.valueOf(lessonId) : null);
+        UploadSession existing = sessions.putIfAbsent(uploadId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void discard(String uploadId) throws IOException {
+        sessions.remove(uploadId);
+        Files.deleteIfExists(partFile(uploadId));
+        Files.deleteIfExists(sessionFile(uploadId));
+    }
+
+    private Path partFile(String uploadId) {
+        return spoolDirectory.resolve(safeId(uploadId) + ".part");
+    }
+
+    private Path sessionFile(String uploadId) {
+        return spoolDirectory.resolve(safeId(uploadId) + ".properties");
+    }
+
+    private static boolean isUploadId(String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Upload ids come from the URL, so never let them escape the spool directory
+    private static String safeId(String uploadId) {
+        try {
+            return UUID.fromString(uploadId).toString();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("No upload found with ID: " + uploadId);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.notebridge.project.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.response.ReconciliationReport;
+import com.notebridge.project.storage.StorageBackend;
+import com.notebridge.project.storage.StoredObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Finds storage objects that no file row references, and file rows whose object is gone.
+ *
+ * Both sides are walked in binary name order and merge-joined: storage via the backend's lazy
+ * listing, the database via keyset pages of the names referenced by files and by variants,
+ * each an index range scan, merged here. Only the current pages and the pending delete batch
+ * are ever held in memory, so this scales to millions of objects. Deletes go out in batches
+ * through a rate limiter.
+ */
+@Service
+public class FileReconciliationService {
+
+    // Object names this application creates; anything else in the bucket is left alone
+    private static final Pattern LEGACY_OBJECT_NAME =
+            Pattern.compile("^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_.*");
+
+    private final StorageBackend storageBackend;
+    private final FileMetaDataRepository repo;
+    private final FileStorageService fileStorageService;
+    private final int batchSize;
+    private final double deletesPerSecond;
+    private final Duration gracePeriod;
+    private final boolean scheduledDryRun;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public FileReconciliationService(StorageBackend storageBackend, FileMetaDataRepository repo,
+                                     FileStorageService fileStorageService,
+                                     @Value("${notebridge.reconciliation.batch-size:500}") int batchSize,
+                                     @Value("${notebridge.reconciliation.deletes-per-second:100}") double deletesPerSecond,
+                                     @Value("${notebridge.reconciliation.grace-period-minutes:60}") long gracePeriodMinutes,
+                                     @Value("${notebridge.reconciliation.scheduled-dry-run:true}") boolean scheduledDryRun) {
+        this.storageBackend = storageBackend;
+        this.repo = repo;
+        this.fileStorageService = fileStorageService;
+        this.batchSize = batchSize;
+        this.deletesPerSecond = deletesPerSecond;
+        this.gracePeriod = Duration.ofMinutes(gracePeriodMinutes);
+        this.scheduledDryRun = scheduledDryRun;
+    }
+
+    // Disabled unless notebridge.reconciliation.cron is set
+    @Scheduled(cron = "${notebridge.reconciliation.cron:-}")
+    public void scheduledRun() {
+        try {
+            ReconciliationReport report = reconcile(scheduledDryRun);
+            System.out.println("File reconciliation finished: " + report.getOrphanedObjects() + " orphaned objects, "
+                    + report.getMissingObjects() + " missing objects, dry run = " + report.isDryRun());
+        } catch (Exception e) {
+            System.err.println("File reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    public ReconciliationReport reconcile(boolean dryRun) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A reconciliation run is already in progress");
+        }
+        try {
+            checkObjectNameCollation();
+            ReconciliationReport report = new ReconciliationReport(dryRun);
+            RateLimiter rateLimiter = RateLimiter.create(deletesPerSecond);
+
+            // Superseded pictures first, so their objects show up as orphans below
+            report.supersededProfilePictures(removeSupersededPictures(repo::findSupersededProfilePictureIds, report, rateLimiter));
+            report.supersededLessonPictures(removeSupersededPictures(repo::findSupersededLessonPictureIds, report, rateLimiter));
+            mergeStorageWithMetadata(report, rateLimiter);
+
+            if (!dryRun && report.getMetadataRowsDeleted() > 0) {
+                fileStorageService.invalidateDownloadLocations();
+            }
+
+            report.finish();
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Any other collation orders names differently from the storage listing, and the merge would
+    // take referenced objects for orphans
+    private void checkObjectNameCollation() {
+        for (String collation : repo.findObjectNameCollations()) {
+            if (collation != null && !collation.equalsIgnoreCase("utf8mb4_bin")) {
+                throw new IllegalStateException("object_name has collation " + collation
+                        + "; apply db/object-name-collation.sql before reconciling");
+            }
+        }
+    }
+
+    private long removeSupersededPictures(IdPageQuery query, ReconciliationReport report, RateLimiter rateLimiter) {
+        long found = 0;
+        int afterId = 0;
+        while (true) {
+            List<Integer> ids = query.find(afterId, batchSize);
+            if (ids.isEmpty()) {
+                return found;
+            }
+            found += ids.size();
+            afterId = ids.get(ids.size() - 1);
+
+            if (!report.isDryRun()) {
+                rateLimiter.acquire(ids.size());
+                repo.deleteVariantsByFileIds(ids);
+                report.metadataRowsDeleted(repo.deleteByIds(ids));
+            }
+        }
+    }
+
+    private void mergeStorageWithMetadata(ReconciliationReport report, RateLimiter rateLimiter) throws IOException {
+        Iterator<StoredObject> storedObjects = storageBackend.list();
+        ReferencedNames referencedNames = new ReferencedNames(
+                new NamePages(repo::findFileObjectNamesAfter), new NamePages(repo::findVariantObjectNamesAfter));
+        Instant graceCutoff = Instant.now().minus(gracePeriod);
+
+        List<String> orphanBatch = new ArrayList<>();
+        List<String> missingBatch = new ArrayList<>();
+
+        StoredObject stored = storedObjects.hasNext() ? storedObjects.next() : null;
+        String referenced = referencedNames.next();
+
+        while (stored != null || referenced != null) {
+            int comparison = stored == null ? 1 : referenced == null ? -1 : compareBinary(stored.getObjectName(), referenced);
+
+            if (comparison < 0) {
+                report.storageObjectScanned();
+                // Uploads write the object before the row, so skip anything young enough to be mid-upload
+                if (isManaged(stored.getObjectName())
+                        && stored.getUpdatedAt() != null && stored.getUpdatedAt().isBefore(graceCutoff)) {
+                    report.orphanedObject(stored.getObjectName());
+                    orphanBatch.add(stored.getObjectName());
+                    if (orphanBatch.size() >= batchSize) {
+                        deleteOrphanedObjects(orphanBatch, report, rateLimiter);
+                    }
+                }
+                stored = storedObjects.hasNext() ? storedObjects.next() : null;
+            } else if (comparison > 0) {
+                report.referencedNameScanned();
+                missingBatch.add(referenced);
+                if (missingBatch.size() >= batchSize) {
+                    deleteMissingReferences(missingBatch, report, rateLimiter);
+                }
+                referenced = referencedNames.next();
+            } else {
+                report.storageObjectScanned();
+                report.referencedNameScanned();
+                stored = storedObjects.hasNext() ? storedObjects.next() : null;
+                referenced = referencedNames.next();
+            }
+        }
+
+        deleteOrphanedObjects(orphanBatch, report, rateLimiter);
+        deleteMissingReferences(missingBatch, report, rateLimiter);
+    }
+
+    private void deleteOrphanedObjects(List<String> batch, ReconciliationReport report, RateLimiter rateLimiter) throws IOException {
+        if (!batch.isEmpty() && !report.isDryRun()) {
+            rateLimiter.acquire(batch.size());
+            long deleted = 0;
+            for (String objectName : batch) {
+                // Content may have been uploaded again since the listing; that is checked under a lock
+                boolean wasDeleted = objectName.startsWith(FileStorageService.CONTENT_PREFIX)
+                        ? fileStorageService.deleteContentIfUnreferenced(objectName.substring(FileStorageService.CONTENT_PREFIX.length()))
+                        : storageBackend.delete(objectName);
+                if (wasDeleted) {
+                    deleted++;
+                }
+            }
+            report.orphanedObjectsDeleted(deleted);
+        }
+        batch.clear();
+    }
+
+    // The listing is a single pass, so a row committed after it went by, or an object it skipped,
+    // only looks missing. Rows within the grace period are left alone and the rest are re-checked
+    // against storage one by one before their metadata is deleted.
+    private void deleteMissingReferences(List<String> batch, ReconciliationReport report, RateLimiter rateLimiter) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<String> recent = new HashSet<>(repo.findObjectNamesReferencedSince(batch, LocalDateTime.now().minus(gracePeriod)));
+        List<String> missing = new ArrayList<>();
+        for (String objectName : batch) {
+            if (!recent.contains(objectName) && storageBackend.stat(objectName) == null) {
+                report.missingObject(objectName);
+                missing.add(objectName);
+            }
+        }
+
+        if (!missing.isEmpty() && !report.isDryRun()) {
+            rateLimiter.acquire(missing.size());
+            repo.deleteVariantsByObjectNames(missing);
+            repo.deleteVariantsOfFilesByObjectNames(missing);
+            report.metadataRowsDeleted(repo.deleteByObjectNames(missing));
+        }
+        batch.clear();
+    }
+
+    private static boolean isManaged(String objectName) {
+        return objectName.startsWith(FileStorageService.CONTENT_PREFIX)
+                || objectName.startsWith("variants/")
+                || LEGACY_OBJECT_NAME.matcher(objectName).matches();
+    }
+
+    // Code point order, which matches the UTF-8 byte order used by storage listings and utf8mb4_bin
+    static int compareBinary(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    @FunctionalInterface
+    private interface IdPageQuery {
+        List<Integer> find(int afterId, int limit);
+    }
+
+    @FunctionalInterface
+    private interface NamePageQuery {
+        List<String> find(String after, int limit);
+    }
+
+    // Keyset-paged iterator over the names from one table
+    private class NamePages {
+        private final NamePageQuery query;
+        private List<String> page = List.of();
+        private int position;
+        private String lastName = "";
+        private boolean exhausted;
+
+        NamePages(NamePageQuery query) {
+            this.query = query;
+        }
+
+        String next() {
+            if (position >= page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = query.find(lastName, batchSize);
+                position = 0;
+                if (page.size() < batchSize) {
+                    exhausted = true;
+                }
+                if (page.isEmpty()) {
+                    return null;
+                }
+                lastName = page.get(page.size() - 1);
+            }
+            return page.get(position++);
+        }
+    }
+
+    // Referenced names from files and variants merged into one ordered stream without duplicates
+    private static class ReferencedNames {
+        private final NamePages files;
+        private final NamePages variants;
+        private String nextFile;
+        private String nextVariant;
+
+        ReferencedNames(NamePages files, NamePages variants) {
+            this.files = files;
+            this.variants = variants;
+            this.nextFile = files.next();
+            this.nextVariant = variants.next();
+        }
+
+        String next() {
+            if (nextFile == null && nextVariant == null) {
+                return null;
+            }
+            int comparison = nextFile == null ? 1 : nextVariant == null ? -1 : compareBinary(nextFile, nextVariant);
+            String name = comparison <= 0 ? nextFile : nextVariant;
+            if (comparison <= 0) {
+                nextFile = files.next();
+            }
+            if (comparison >= 0) {
+                nextVariant = variants.next();
+            }
+            return name;
+        }
+    }
+}
@@ -1,53 +1,98 @@
 package com.notebridge.project.service;
 
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
-import com.google.common.collect.Lists;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.notebridge.project.model.FileMetaData;
+import com.notebridge.project.model.ImageVariant;
 import com.notebridge.project.model.Lesson;
 import com.notebridge.project.model.User;
+import com.notebridge.project.outbox.OutboxEventTypes;
+import com.notebridge.project.outbox.OutboxPublisher;
 import com.notebridge.project.repository.FileMetaDataRepository;
 import com.notebridge.project.repository.LessonRepository;
 import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.FileDownload;
 import com.notebridge.project.response.FileResponse;
+import com.notebridge.project.storage.StorageBackend;
+import com.notebridge.project.storage.StoredObject;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.LongConsumer;
 
 @Service
 public class FileStorageService {
 
-    private final Storage storage;
+    // New uploads are stored under their SHA-256, so identical content is kept once.
+    // Files uploaded before content addressing keep their "<uniqueId>_<filename>" object names.
+    static final String CONTENT_PREFIX = "sha256/";
+
+    static final Duration DOWNLOAD_LOCATION_TTL = Duration.ofMinutes(10);
+
+    private final StorageBackend storageBackend;
     private final FileMetaDataRepository repo;
     private final UserRepository userRepository;
     private final LessonRepository lessonRepository;
-    private final String bucketName = "notebridge-8c9a0.firebasestorage.app";
+    private final OutboxPublisher outboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // Absent when notebridge.blob-cache.enabled=false
+    @Autowired(required = false)
+    private BlobDiskCache blobDiskCache;
+
+    // fileId (+ variant) -> download location. A file id always maps to the same object and a
+    // generated variant never changes, so entries only go stale when reconciliation deletes rows.
+    // That clears this instance's cache; the TTL bounds how long other instances keep serving a
+    // deleted file. Pending variants are not cached.
+    private final Cache<String, FileDownload> downloadLocations = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(DOWNLOAD_LOCATION_TTL)
+            .recordStats()
+            .build();
 
     @Autowired
-    public FileStorageService(FileMetaDataRepository repo, UserRepository userRepository,
-                              LessonRepository lessonRepository) throws IOException {
+    public FileStorageService(StorageBackend storageBackend, FileMetaDataRepository repo, UserRepository userRepository,
+                              LessonRepository lessonRepository, OutboxPublisher outboxPublisher,
+                              PlatformTransactionManager transactionManager) {
+        this.storageBackend = storageBackend;
         this.repo = repo;
         this.userRepository = userRepository;
         this.lessonRepository = lessonRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
-        ClassPathResource resource = new ClassPathResource("serviceAccountKey.json");
-        InputStream serviceAccount = resource.getInputStream();
-
-        GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount)
-                .createScoped(Lists.newArrayList("https://www.googleapis.com/auth/cloud-platform"));
+    @Autowired
+    void registerMetrics(MeterRegistry meterRegistry) {
+        GuavaCacheMetrics.monitor(meterRegistry, downloadLocations, "fileDownloadLocations");
+    }
 
-        this.storage = StorageOptions.newBuilder().setCredentials(credentials).build().getService();
+    public void invalidateDownloadLocations() {
+        downloadLocations.invalidateAll();
     }
 
     public String uploadFile(MultipartFile file) throws IOException {
@@ -55,40 +100,10 @@ public class FileStorageService {
             throw new IllegalArgumentException("File is empty. Please upload a valid file.");
         }
 
-        String uniqueID = UUID.randomUUID().toString();
-        String objectName = uniqueID + "_" + file.getOriginalFilename();
-        BlobId blobId = BlobId.of(bucketName, objectName);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
-
-        try {
-            // Upload to Firebase
-            storage.create(blobInfo, file.getBytes());
-
-            // Save metadata to MySQL
-            FileMetaData metaData = new FileMetaData();
-            metaData.setUniqueId(uniqueID);
-            metaData.setObjectName(objectName);
-            metaData.setUploadDate(LocalDateTime.now());
-            repo.save(metaData);
-
-            return uniqueID;
-        } catch (Exception e) {
-            System.err.println("Data saved failed: " + e.getMessage() +"\ntrying to clean up db and firebase");
-            try {
-                storage.delete(blobId);
-                int deleted = repo.deleteByUniqueId(uniqueID);
-                if (deleted == 0) {
-                    System.err.println("Warning: No records were deleted from the database for uniqueId: " + uniqueID);
-                } else {
-                    System.out.println("Successfully deleted " + deleted + " record(s) from database");
-                }
-            } catch (Exception ex) {
-                System.err.println("Failed to clean up resources after upload failure: " + ex.getMessage());
-            }
-            throw e; // Re-throw the original exception
-        }
+        FileMetaData metaData = storeContent(file, file.getOriginalFilename(), file.getContentType(), null);
+        return saveMetaData(metaData, file);
     }
-    @Transactional
+
     public String uploadProfilePicture(MultipartFile file, Long userId) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty. Please upload a valid file.");
@@ -98,31 +113,11 @@ public class FileStorageService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
 
-        String uniqueID = UUID.randomUUID().toString();
-        String objectName = uniqueID + "_" + file.getOriginalFilename();
-        BlobId blobId = BlobId.of(bucketName, objectName);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
-
-        try {
-            // Upload to Firebase
-            storage.create(blobInfo, file.getBytes());
-
-            // Save metadata to MySQL with user association
-            FileMetaData metaData = new FileMetaData();
-            metaData.setUniqueId(uniqueID);
-            metaData.setObjectName(objectName);
-            metaData.setUploadDate(LocalDateTime.now());
-            metaData.setUser(user);
-            repo.save(metaData);
-
-            return uniqueID;
-        } catch (Exception e) {
-            cleanupAfterFailedUpload(uniqueID, blobId, e);
-            throw e; // Re-throw the original exception
-        }
+        FileMetaData metaData = storeContent(file, file.getOriginalFilename(), file.getContentType(), null);
+        metaData.setUser(user);
+        return saveMetaData(metaData, file);
     }
 
-    @Transactional
     public String uploadLessonPicture(MultipartFile file, Long lessonId) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty. Please upload a valid file.");
@@ -132,61 +127,288 @@ public class FileStorageService {
         Lesson lesson = lessonRepository.findById(lessonId)
                 .orElseThrow(() -> new IllegalArgumentException("Lesson not found with ID: " + lessonId));
 
-        String uniqueID = UUID.randomUUID().toString();
-        String objectName = uniqueID + "_" + file.getOriginalFilename();
-        BlobId blobId = BlobId.of(bucketName, objectName);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
+        FileMetaData metaData = storeContent(file, file.getOriginalFilename(), file.getContentType(), null);
+        metaData.setLesson(lesson);
+        metaData.setLessonPicture(true);
+        return saveMetaData(metaData, file);
+    }
+
+    /**
+     * Upload already-spooled content (e.g. a completed chunked upload) and optionally attach it to a lesson
+     *
+     * @param content read twice: once to hash it, once more to store it unless it is already stored
+     * @param progress told the number of bytes written to storage as they go, may be null
+     */
+    public String uploadStream(InputStreamSource content, String originalFilename, String contentType,
+                               Long lessonId, LongConsumer progress) throws IOException {
+        Lesson lesson = null;
+        if (lessonId != null) {
+            lesson = lessonRepository.findById(lessonId)
+                    .orElseThrow(() -> new IllegalArgumentException("Lesson not found with ID: " + lessonId));
+        }
+
+        FileMetaData metaData = storeContent(content, originalFilename, contentType, progress);
+        metaData.setLesson(lesson);
+        return saveMetaData(metaData, content);
+    }
 
+    /**
+     * Hash the content, then write it to the backend unless an identical object is already
+     * stored. The content is read from its source again rather than copied to a temp file first.
+     */
+    private FileMetaData storeContent(InputStreamSource content, String originalFilename,
+                                      String contentType, LongConsumer progress) throws IOException {
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream hashing = new DigestInputStream(content.getInputStream(), digest)) {
+            size = hashing.transferTo(OutputStream.nullOutputStream());
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        String objectName = CONTENT_PREFIX + contentHash;
+
+        if (repo.countByContentHash(contentHash) == 0 || storageBackend.stat(objectName) == null) {
+            writeContent(objectName, contentType, content, progress);
+        }
+
+        FileMetaData metaData = new FileMetaData();
+        metaData.setUniqueId(UUID.randomUUID().toString());
+        metaData.setObjectName(objectName);
+        metaData.setContentHash(contentHash);
+        metaData.setOriginalFilename(originalFilename);
+        metaData.setContentType(contentType);
+        metaData.setSize(size);
+        metaData.setUploadDate(LocalDateTime.now());
+        return metaData;
+    }
+
+    private void writeContent(String objectName, String contentType, InputStreamSource content,
+                              LongConsumer progress) throws IOException {
+        try (InputStream in = progress != null
+                ? new ProgressInputStream(content.getInputStream(), progress) : content.getInputStream()) {
+            storageBackend.write(objectName, contentType, in);
+        }
+    }
+
+    // Only the row and its outbox event are written in a transaction: storing the content before
+    // it can take seconds, and would hold a pooled connection for all of that time
+    private String saveMetaData(FileMetaData metaData, InputStreamSource content) throws IOException {
         try {
-            // Upload to Firebase
-            storage.create(blobInfo, file.getBytes());
-
-            // Save metadata to MySQL with lesson association
-            FileMetaData metaData = new FileMetaData();
-            metaData.setUniqueId(uniqueID);
-            metaData.setObjectName(objectName);
-            metaData.setUploadDate(LocalDateTime.now());
-            metaData.setLesson(lesson);
-            repo.save(metaData);
-
-            return uniqueID;
-        } catch (Exception e) {
-            cleanupAfterFailedUpload(uniqueID, blobId, e);
+            transactionTemplate.executeWithoutResult(status -> {
+                // Save metadata to MySQL
+                repo.save(metaData);
+                outboxPublisher.publish("file", metaData.getUniqueId(), OutboxEventTypes.FILE_UPLOADED, uploadedPayload(metaData));
+            });
+        } catch (RuntimeException e) {
+            cleanupAfterFailedUpload(metaData, e);
             throw e; // Re-throw the original exception
         }
+
+        // A concurrent deleteContentIfUnreferenced may have removed the object after storeContent
+        // found it; the insert waited for it to finish, so the object is checked again now
+        if (storageBackend.stat(metaData.getObjectName()) == null) {
+            writeContent(metaData.getObjectName(), metaData.getContentType(), content, null);
+        }
+        return metaData.getUniqueId();
     }
 
-    private void cleanupAfterFailedUpload(String uniqueID, BlobId blobId, Exception e) {
-        System.err.println("Data saved failed: " + e.getMessage() + "\ntrying to clean up db and firebase");
+    /**
+     * Delete a content-addressed object unless a file still references it. The rows sharing its
+     * hash are locked while checking and deleting; on InnoDB that includes the index gap where a
+     * new reference would be inserted, so an upload adding one waits and then finds the object
+     * gone rather than referencing a deleted object.
+     *
+     * @return true if the object was deleted
+     */
+    public boolean deleteContentIfUnreferenced(String contentHash) throws IOException {
         try {
-            storage.delete(blobId);
-            int deleted = repo.deleteByUniqueId(uniqueID);
-            if (deleted == 0) {
-                System.err.println("Warning: No records were deleted from the database for uniqueId: " + uniqueID);
-            } else {
-                System.out.println("Successfully deleted " + deleted + " record(s) from database");
-            }
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (!repo.lockIdsByContentHash(contentHash).isEmpty()) {
+                    return false;
+                }
+                try {
+                    return storageBackend.delete(CONTENT_PREFIX + contentHash);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Map<String, Object> uploadedPayload(FileMetaData metaData) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("contentHash", metaData.getContentHash());
+        payload.put("contentType", metaData.getContentType());
+        payload.put("size", metaData.getSize());
+        if (metaData.getUser() != null) {
+            payload.put("userId", metaData.getUser().getId());
+        }
+        if (metaData.getLesson() != null) {
+            payload.put("lessonId", metaData.getLesson().getId());
+        }
+        return payload;
+    }
+
+    private void cleanupAfterFailedUpload(FileMetaData metaData, Exception e) {
+        System.err.println("Data saved failed: " + e.getMessage() + "\ntrying to clean up storage");
+        // The row was rolled back with the transaction. Shared content stays as long as another
+        // file still references it
+        try {
+            deleteContentIfUnreferenced(metaData.getContentHash());
         } catch (Exception ex) {
             System.err.println("Failed to clean up resources after upload failure: " + ex.getMessage());
         }
     }
 
-    public FileResponse retrieveFile(String fileId) {
-        FileMetaData fileMetadata = repo.findByUniqueId(fileId);
+    public FileResponse retrieveFile(String fileId) throws IOException {
+        return retrieveFile(fileId, null);
+    }
+
+    /**
+     * @param variant thumbnail, card or full; falls back to the original while variants are pending
+     */
+    public FileResponse retrieveFile(String fileId, String variant) throws IOException {
+        FileDownload download = loadDownload(fileId, variant);
+        String objectName = download.getObjectName();
+
+        if (blobDiskCache != null && blobDiskCache.isCacheable(download.getSize())) {
+            try {
+                Path cached = blobDiskCache.getOrFetch(objectName, target -> fetchToFile(objectName, target));
+                return new FileResponse(download.getFileName(), Files.readAllBytes(cached));
+            } catch (IOException | RuntimeException e) {
+                // Including a missing object, which the stat below reports as such
+                System.err.println("Blob cache unavailable for " + objectName + ", reading from storage: " + e.getMessage());
+            }
+        }
+
+        StoredObject stored = storageBackend.stat(objectName);
+
+        if (stored == null) {
+            throw new IllegalArgumentException("No file found with the given ID: " + fileId);
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) stored.getSize());
+        storageBackend.read(objectName, 0, stored.getSize(), content);
+        return new FileResponse(download.getFileName(), content.toByteArray());
+    }
+
+    /**
+     * Look up a file for raw download without fetching its content
+     */
+    public FileDownload prepareDownload(String fileId, String variant) throws IOException {
+        boolean variantRequested = variant != null && !variant.isBlank();
+        String cacheKey = variantRequested ? fileId + "|" + variant : fileId;
+        FileDownload cached = downloadLocations.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        FileDownload download = loadDownload(fileId, variant);
+        if (!variantRequested || download.getVariant() != null) {
+            downloadLocations.put(cacheKey, download);
+        }
+        return download;
+    }
+
+    private FileDownload loadDownload(String fileId, String variant) throws IOException {
+        FileMetaData fileMetadata = repo.findWithVariantsByUniqueId(fileId);
 
         if (fileMetadata == null) {
             throw new IllegalArgumentException("No file found with the given ID: " + fileId);
         }
 
         String objectName = fileMetadata.getObjectName();
-        BlobId blobId = BlobId.of(bucketName, objectName);
-        Blob blob = storage.get(blobId);
+        String fileName = fileMetadata.getOriginalFilename() != null ? fileMetadata.getOriginalFilename() : objectName;
+
+        ImageVariant imageVariant = findVariant(fileMetadata, variant);
+        if (imageVariant != null) {
+            return new FileDownload(fileId, variant, imageVariant.getObjectName(), fileName,
+                    imageVariant.getContentType(), imageVariant.getSize());
+        }
+
+        // Content-addressed uploads record size and type, so no storage round trip is needed
+        if (fileMetadata.getSize() != null) {
+            return new FileDownload(fileId, null, objectName, fileName, fileMetadata.getContentType(), fileMetadata.getSize());
+        }
+
+        StoredObject stored = storageBackend.stat(objectName);
 
-        if (blob == null || !blob.exists()) {
+        if (stored == null) {
             throw new IllegalArgumentException("No file found with the given ID: " + fileId);
         }
 
-        FileResponse fileResponse = new FileResponse(objectName, blob.getContent());
-        return fileResponse;
+        return new FileDownload(fileId, null, objectName, fileName, stored.getContentType(), stored.getSize());
+    }
+
+    /**
+     * Copy {@code length} bytes starting at {@code start} to the response through a small buffer
+     */
+    public void streamFile(FileDownload download, long start, long length, OutputStream out) throws IOException {
+        String objectName = download.getObjectName();
+
+        if (blobDiskCache != null && blobDiskCache.isCacheable(download.getSize())) {
+            try {
+                Path cached = blobDiskCache.getOrFetch(objectName, target -> fetchToFile(objectName, target));
+                blobDiskCache.transferTo(cached, start, length, out);
+                return;
+            } catch (NoSuchFileException e) {
+                // Evicted between lookup and open; fall through to a direct read
+            }
+        }
+
+        storageBackend.read(objectName, start, length, out);
+    }
+
+    private static ImageVariant findVariant(FileMetaData fileMetadata, String variant) {
+        if (variant == null || variant.isBlank()) {
+            return null;
+        }
+        if (!ImageVariantService.VARIANT_WIDTHS.containsKey(variant)) {
+            throw new IllegalArgumentException("Unknown size: " + variant);
+        }
+        return fileMetadata.getVariants().get(variant);
+    }
+
+    private void fetchToFile(String objectName, Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            storageBackend.read(objectName, 0, Long.MAX_VALUE, out);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Reports bytes as they are read, i.e. as the backend writes them
+    private static class ProgressInputStream extends FilterInputStream {
+        private final LongConsumer progress;
+
+        ProgressInputStream(InputStream in, LongConsumer progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                progress.accept(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                progress.accept(read);
+            }
+            return read;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package com.notebridge.project.service;
+
+import com.notebridge.project.model.FileMetaData;
+import com.notebridge.project.model.ImageVariant;
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.storage.StorageBackend;
+import com.notebridge.project.storage.StoredObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates resized, re-encoded variants of profile and lesson pictures in the background.
+ *
+ * Uploads return as soon as the original is stored; variants are produced on a small bounded
+ * pool after the upload transaction commits. Until they exist (or if the queue is full and the
+ * job is dropped) callers simply get the original.
+ */
+@Service
+public class ImageVariantService implements DisposableBean {
+
+    // Variant name -> maximum width in pixels, smallest first
+    public static final Map<String, Integer> VARIANT_WIDTHS = new LinkedHashMap<>();
+    static {
+        VARIANT_WIDTHS.put("thumbnail", 128);
+        VARIANT_WIDTHS.put("card", 480);
+        VARIANT_WIDTHS.put("full", 1600);
+    }
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final StorageBackend storageBackend;
+    private final FileMetaDataRepository repo;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final long maxSourceBytes;
+    private final long maxSourcePixels;
+
+    private final Timer processingTimer;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public ImageVariantService(StorageBackend storageBackend, FileMetaDataRepository repo,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${notebridge.images.workers:2}") int workers,
+                               @Value("${notebridge.images.queue-capacity:200}") int queueCapacity,
+                               @Value("${notebridge.images.max-source-bytes:26214400}") long maxSourceBytes,
+                               @Value("${notebridge.images.max-source-pixels:40000000}") long maxSourcePixels) {
+        this.storageBackend = storageBackend;
+        this.repo = repo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxSourceBytes = maxSourceBytes;
+        this.maxSourcePixels = maxSourcePixels;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.processingTimer = Timer.builder("notebridge.images.variants.processing").register(meterRegistry);
+        this.droppedCounter = Counter.builder("notebridge.images.variants.dropped").register(meterRegistry);
+        this.failedCounter = Counter.builder("notebridge.images.variants.failed").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("notebridge.images.variants.rejected").register(meterRegistry);
+        Gauge.builder("notebridge.images.variants.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue variant generation for an uploaded picture, after the surrounding transaction commits
+     */
+    public void scheduleVariants(String fileId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(fileId);
+                }
+            });
+        } else {
+            submit(fileId);
+        }
+    }
+
+    private void submit(String fileId) {
+        try {
+            executor.execute(() -> processingTimer.record(() -> generateVariants(fileId)));
+        } catch (RejectedExecutionException e) {
+            // Originals are still served; a later re-upload or backfill can produce the variants
+            droppedCounter.increment();
+            System.err.println("Image variant queue full, skipping variants for file " + fileId);
+        }
+    }
+
+    void generateVariants(String fileId) {
+        try {
+            FileMetaData metaData = repo.findByUniqueId(fileId);
+            if (metaData == null) {
+                return;
+            }
+
+            // Variants follow the content, so a deduplicated upload takes over those already made
+            if (metaData.getContentHash() != null) {
+                String sibling = repo.findUniqueIdWithVariantsByContentHash(metaData.getContentHash(), fileId);
+                if (sibling != null) {
+                    Map<String, ImageVariant> existing = repo.findWithVariantsByUniqueId(sibling).getVariants();
+                    if (existing.keySet().containsAll(VARIANT_WIDTHS.keySet())) {
+                        saveVariants(fileId, existing);
+                        return;
+                    }
+                }
+            }
+
+            StoredObject original = storageBackend.stat(metaData.getObjectName());
+            if (original == null || original.getSize() > maxSourceBytes) {
+                return;
+            }
+
+            ByteArrayOutputStream originalBytes = new ByteArrayOutputStream((int) original.getSize());
+            storageBackend.read(metaData.getObjectName(), 0, original.getSize(), originalBytes);
+            BufferedImage source = decode(fileId, originalBytes.toByteArray());
+            if (source == null) {
+                return;
+            }
+
+            boolean hasAlpha = source.getColorModel().hasAlpha();
+            String format = hasAlpha ? "png" : "jpg";
+            String contentType = hasAlpha ? "image/png" : "image/jpeg";
+            String prefix = "variants/" + (metaData.getContentHash() != null ? metaData.getContentHash() : metaData.getUniqueId());
+
+            Map<String, ImageVariant> variants = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : VARIANT_WIDTHS.entrySet()) {
+                int width = Math.min(entry.getValue(), source.getWidth());
+                byte[] encoded = encode(resize(source, width), format);
+
+                String objectName = prefix + "/" + entry.getKey() + "." + format;
+                storageBackend.write(objectName, contentType, new ByteArrayInputStream(encoded));
+                variants.put(entry.getKey(), new ImageVariant(objectName, contentType, encoded.length, width));
+            }
+            saveVariants(fileId, variants);
+        } catch (Exception e) {
+            failedCounter.increment();
+            System.err.println("Failed to generate image variants for file " + fileId + ": " + e.getMessage());
+        }
+    }
+
+    private void saveVariants(String fileId, Map<String, ImageVariant> variants) {
+        transactionTemplate.executeWithoutResult(status -> {
+            FileMetaData current = repo.findByUniqueId(fileId);
+            if (current != null) {
+                variants.forEach((name, variant) -> current.getVariants().put(name, new ImageVariant(
+                        variant.getObjectName(), variant.getContentType(), variant.getSize(), variant.getWidth())));
+                repo.save(current);
+            }
+        });
+    }
+
+    /**
+     * Decode the picture, reading its dimensions from the header first: a few kilobytes of
+     * compressed data can claim billions of pixels, and the decoder allocates them all up front
+     *
+     * @return null if ImageIO can't decode the format or the picture is too large
+     */
+    private BufferedImage decode(String fileId, byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                // Not a format ImageIO can decode; keep serving the original
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxSourcePixels) {
+                    rejectedCounter.increment();
+                    System.err.println("Picture " + fileId + " has " + pixels + " pixels, skipping variants");
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halve repeatedly, then do the final bilinear step; much better quality than one big jump
+    private static BufferedImage resize(BufferedImage source, int targetWidth) {
+        BufferedImage current = source;
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+
+            BufferedImage scaled = new BufferedImage(width, height, type);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+        } while (current.getWidth() > targetWidth);
+
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!"jpg".equals(format)) {
+            ImageIO.write(image, format, out);
+            return out.toByteArray();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
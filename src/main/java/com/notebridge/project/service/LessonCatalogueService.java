@@ -0,0 +1,32 @@
+package com.notebridge.project.service;
+
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.response.LessonView;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lesson catalogue every student opens, read through the "lessons" cache.
+ *
+ * When the entry expires, one caller reloads it while the others wait for that result instead
+ * of all querying the database (sync = true, see CoalescingCache). Lesson writes clear the
+ * cache through LessonCacheInvalidationHandler.
+ */
+@Service
+public class LessonCatalogueService {
+
+    private final LessonRepository lessonRepository;
+
+    public LessonCatalogueService(LessonRepository lessonRepository) {
+        this.lessonRepository = lessonRepository;
+    }
+
+    // A mutable list: the cache codecs can't instantiate the JDK's immutable ones
+    @Cacheable(cacheNames = "lessons", key = "'active'", sync = true)
+    public List<LessonView> getActiveLessons() {
+        return new ArrayList<>(lessonRepository.findByIsCancelledFalse().stream().map(LessonView::from).toList());
+    }
+}
@@ -0,0 +1,12 @@
+package com.notebridge.project.service;
+
+/**
+ * Thrown when the password hashing executor is saturated. Mapped to 503 so clients back off
+ * instead of piling more BCrypt work onto the server.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,125 @@
+package com.notebridge.project.service;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.notebridge.project.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filters over registered usernames and emails.
+ *
+ * A "no" answer is definite, so registration can skip the uniqueness queries for
+ * names that have never been seen. A "maybe" answer falls back to the database.
+ * Keys are lower-cased because the MySQL collation compares them case-insensitively.
+ *
+ * Sizing (Guava, optimal k): at 10M expected users and 1% false-positive rate each
+ * filter needs ~9.6 bits per entry, i.e. roughly 12 MB, so ~24 MB for both.
+ */
+@Service
+public class RegistrationBloomFilter {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${notebridge.registration.bloom.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notebridge.registration.bloom.expected-users:10000000}")
+    private long expectedUsers;
+
+    @Value("${notebridge.registration.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter<String> usernames;
+    private volatile BloomFilter<String> emails;
+
+    // Guards publishing new filters against concurrent adds
+    private final Object lock = new Object();
+    // Registrations made while a rebuild streams the users table, which it may not see; replayed
+    // into the new filters before they are published. Null when no rebuild is running.
+    private List<String[]> addsDuringRebuild;
+
+    // Build after startup so a large users table doesn't delay the context;
+    // until then every lookup answers "maybe" and goes to the database.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        BloomFilter<String> newUsernames = newFilter();
+        BloomFilter<String> newEmails = newFilter();
+        List<String[]> adds = new ArrayList<>();
+        synchronized (lock) {
+            addsDuringRebuild = adds;
+        }
+
+        try {
+            try (Stream<String> names = userRepository.streamAllUsernames()) {
+                names.forEach(name -> newUsernames.put(normalize(name)));
+            }
+            try (Stream<String> addresses = userRepository.streamAllEmails()) {
+                addresses.forEach(email -> newEmails.put(normalize(email)));
+            }
+
+            synchronized (lock) {
+                for (String[] add : adds) {
+                    newUsernames.put(add[0]);
+                    newEmails.put(add[1]);
+                }
+                this.usernames = newUsernames;
+                this.emails = newEmails;
+            }
+        } finally {
+            synchronized (lock) {
+                addsDuringRebuild = null;
+            }
+        }
+    }
+
+    public boolean mightContainUsername(String username) {
+        BloomFilter<String> filter = usernames;
+        return filter == null || filter.mightContain(normalize(username));
+    }
+
+    public boolean mightContainEmail(String email) {
+        BloomFilter<String> filter = emails;
+        return filter == null || filter.mightContain(normalize(email));
+    }
+
+    // Called after a successful insert. Registrations are rare enough that taking the lock is cheap.
+    public void add(String username, String email) {
+        String normalizedUsername = normalize(username);
+        String normalizedEmail = normalize(email);
+        synchronized (lock) {
+            if (addsDuringRebuild != null) {
+                addsDuringRebuild.add(new String[]{normalizedUsername, normalizedEmail});
+            }
+            if (usernames != null) {
+                usernames.put(normalizedUsername);
+            }
+            if (emails != null) {
+                emails.put(normalizedEmail);
+            }
+        }
+    }
+
+    private BloomFilter<String> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedUsers, falsePositiveRate);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,115 @@
+package com.notebridge.project.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a batch upload. Serialized as-is for the status endpoint.
+ */
+public class UploadJob {
+
+    public enum Status {
+        QUEUED,
+        UPLOADING,
+        DONE,
+        FAILED
+    }
+
+    private final String jobId;
+    private final String owner;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final List<FileEntry> files;
+
+    public UploadJob(String jobId, String owner, List<FileEntry> files) {
+        this.jobId = jobId;
+        this.owner = owner;
+        this.files = files;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<FileEntry> getFiles() {
+        return files;
+    }
+
+    public Status getStatus() {
+        if (files.stream().allMatch(f -> f.status == Status.QUEUED)) {
+            return Status.QUEUED;
+        }
+        if (!isFinished()) {
+            return Status.UPLOADING;
+        }
+        return files.stream().anyMatch(f -> f.status == Status.FAILED) ? Status.FAILED : Status.DONE;
+    }
+
+    boolean isFinished() {
+        return files.stream().allMatch(f -> f.status == Status.DONE || f.status == Status.FAILED);
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    public static class FileEntry {
+        private final String fileName;
+        private final long totalBytes;
+        private final AtomicLong uploadedBytes = new AtomicLong();
+        private volatile Status status = Status.QUEUED;
+        private volatile String fileId;
+        private volatile String error;
+
+        public FileEntry(String fileName, long totalBytes) {
+            this.fileName = fileName;
+            this.totalBytes = totalBytes;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getUploadedBytes() {
+            return uploadedBytes.get();
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getFileId() {
+            return fileId;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        void addUploadedBytes(long bytes) {
+            uploadedBytes.addAndGet(bytes);
+        }
+
+        void setStatus(Status status) {
+            this.status = status;
+        }
+
+        void complete(String fileId) {
+            this.fileId = fileId;
+            this.status = Status.DONE;
+        }
+
+        void fail(String error) {
+            this.error = error;
+            this.status = Status.FAILED;
+        }
+    }
+}
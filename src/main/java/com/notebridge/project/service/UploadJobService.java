@@ -0,0 +1,221 @@
+package com.notebridge.project.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch uploads that return immediately with a job id.
+ *
+ * The container's multipart temp file is moved into the spool directory on the request thread
+ * (a rename, no copy), then pushed to storage by a fixed pool, so total concurrency against
+ * storage is bounded by the pool size. Progress counts bytes as they are written to storage.
+ * Each user may have only a limited number of files queued or uploading at once. Jobs live only
+ * in memory, so spool files left behind by a crash or restart are deleted at startup.
+ *
+ * With spring.threads.virtual.enabled every file gets its own virtual thread instead, and a
+ * semaphore of the same size takes the place of the pool as the bound on storage concurrency.
+ */
+@Service
+public class UploadJobService implements DisposableBean {
+
+    private final FileStorageService fileStorageService;
+    private final Path spoolDirectory;
+    private final int maxFilesPerJob;
+    private final int maxPendingFilesPerUser;
+    private final long finishedJobRetentionMinutes;
+    private final ExecutorService executor;
+    // Only set in virtual thread mode
+    private final Semaphore uploadPermits;
+
+    private final ConcurrentHashMap<String, UploadJob> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> pendingFilesByUser = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UploadJobService(FileStorageService fileStorageService, MeterRegistry meterRegistry,
+                            @Value("${notebridge.uploads.spool-dir:${java.io.tmpdir}/notebridge-uploads}") String spoolDirectory,
+                            @Value("${notebridge.upload-jobs.workers:4}") int workers,
+                            @Value("${notebridge.upload-jobs.max-files-per-job:50}") int maxFilesPerJob,
+                            @Value("${notebridge.upload-jobs.max-pending-files-per-user:100}") int maxPendingFilesPerUser,
+                            @Value("${notebridge.upload-jobs.retention-minutes:60}") long finishedJobRetentionMinutes,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) throws IOException {
+        this.fileStorageService = fileStorageService;
+        this.spoolDirectory = Files.createDirectories(Paths.get(spoolDirectory, "jobs"));
+        deleteLeftoverSpoolFiles();
+        this.maxFilesPerJob = maxFilesPerJob;
+        this.maxPendingFilesPerUser = maxPendingFilesPerUser;
+        this.finishedJobRetentionMinutes = finishedJobRetentionMinutes;
+
+        if (virtualThreads) {
+            Semaphore permits = new Semaphore(workers, true);
+            this.uploadPermits = permits;
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upload-jobs-", 1).factory());
+            Gauge.builder("notebridge.upload.jobs.queue.depth", permits, Semaphore::getQueueLength).register(meterRegistry);
+            Gauge.builder("notebridge.upload.jobs.active", permits, p -> workers - p.availablePermits()).register(meterRegistry);
+        } else {
+            AtomicInteger threadCounter = new AtomicInteger();
+            // Unbounded queue is safe here: the per-user limit caps how much can be waiting
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "upload-jobs-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.uploadPermits = null;
+            this.executor = pool;
+            Gauge.builder("notebridge.upload.jobs.queue.depth", pool, e -> e.getQueue().size()).register(meterRegistry);
+            Gauge.builder("notebridge.upload.jobs.active", pool, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Thrown when a user already has too many files waiting to be uploaded
+     */
+    public static class UploadLimitExceededException extends RuntimeException {
+        public UploadLimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    public UploadJob submit(String owner, List<MultipartFile> files, Long lessonId) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("At least one file is required");
+        }
+        if (files.size() > maxFilesPerJob) {
+            throw new IllegalArgumentException("A job can contain at most " + maxFilesPerJob + " files");
+        }
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("File " + file.getOriginalFilename() + " is empty");
+            }
+        }
+
+        purgeFinishedJobs();
+
+        AtomicInteger pending = pendingFilesByUser.computeIfAbsent(owner, key -> new AtomicInteger());
+        if (pending.addAndGet(files.size()) > maxPendingFilesPerUser) {
+            pending.addAndGet(-files.size());
+            throw new UploadLimitExceededException("Too many pending uploads, please wait for earlier jobs to finish");
+        }
+
+        List<UploadJob.FileEntry> entries = new ArrayList<>();
+        List<Path> spooled = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                Path spool = Files.createTempFile(spoolDirectory, "job-", ".spool");
+                spooled.add(spool);
+                // The File overload lets the container rename its temp file; the Path one copies it
+                file.transferTo(spool.toFile());
+                entries.add(new UploadJob.FileEntry(file.getOriginalFilename(), file.getSize()));
+            }
+        } catch (IOException | RuntimeException e) {
+            pending.addAndGet(-files.size());
+            for (Path spool : spooled) {
+                Files.deleteIfExists(spool);
+            }
+            throw e;
+        }
+
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), owner, entries);
+        jobs.put(job.getJobId(), job);
+
+        for (int i = 0; i < entries.size(); i++) {
+            UploadJob.FileEntry entry = entries.get(i);
+            Path spool = spooled.get(i);
+            String contentType = files.get(i).getContentType();
+            executor.execute(() -> uploadOne(entry, spool, contentType, lessonId, pending));
+        }
+        return job;
+    }
+
+    /**
+     * @return the job, or null if it doesn't exist or belongs to someone else
+     */
+    public UploadJob getJob(String jobId, String owner) {
+        UploadJob job = jobs.get(jobId);
+        return job != null && job.getOwner().equals(owner) ? job : null;
+    }
+
+    private void uploadOne(UploadJob.FileEntry entry, Path spool, String contentType, Long lessonId, AtomicInteger pending) {
+        if (uploadPermits != null) {
+            try {
+                uploadPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.fail("Interrupted while waiting to upload");
+                finish(spool, pending);
+                return;
+            }
+        }
+        entry.setStatus(UploadJob.Status.UPLOADING);
+        try {
+            String fileId = fileStorageService.uploadStream(() -> Files.newInputStream(spool), entry.getFileName(),
+                    contentType, lessonId, entry::addUploadedBytes);
+            entry.complete(fileId);
+        } catch (Exception e) {
+            System.err.println("Upload job file " + entry.getFileName() + " failed: " + e.getMessage());
+            entry.fail(e.getMessage());
+        } finally {
+            if (uploadPermits != null) {
+                uploadPermits.release();
+            }
+            finish(spool, pending);
+        }
+    }
+
+    private static void finish(Path spool, AtomicInteger pending) {
+        pending.decrementAndGet();
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            System.err.println("Failed to delete spool file " + spool + ": " + e.getMessage());
+        }
+    }
+
+    // No job will ever pick these up again; the directory is ours alone, so everything in it goes
+    private void deleteLeftoverSpoolFiles() throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spoolDirectory)) {
+            for (Path leftover : leftovers) {
+                if (Files.deleteIfExists(leftover)) {
+                    deleted++;
+                }
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " upload job spool file(s) left from a previous run");
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(finishedJobRetentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getCreatedAt().isBefore(cutoff));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
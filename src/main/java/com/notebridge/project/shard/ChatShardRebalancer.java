@@ -0,0 +1,232 @@
+package com.notebridge.project.shard;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.notebridge.project.model.ChatShard;
+import com.notebridge.project.repository.ChatShardRepository;
+import com.notebridge.project.response.ShardRebalanceReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves chats, with their messages, between shards while the application keeps serving them.
+ *
+ * A move locks the chat's directory entry FOR UPDATE, which waits for writes in flight and
+ * holds off new ones; copies the rows to the target shard; points the entry at the target and
+ * commits. Other instances may keep reading the old copy until their cached directory entries
+ * expire, so the source rows are deleted only after that. An interrupted move leaves at most a
+ * stale copy the directory doesn't point at, which the next attempt replaces.
+ */
+@Service
+public class ChatShardRebalancer {
+
+    private static final String CHAT_COLUMNS = "id, teacher_id, student_id, subject, created_at, last_message_at, is_active";
+    private static final String MESSAGE_COLUMNS = "id, chat_id, sender_id, content, sent_at, is_read";
+
+    private record Move(Long chatId, int source) {
+    }
+
+    private final ChatShardRouter router;
+    private final ChatShardRepository directory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int copyBatchSize;
+    private final double movesPerSecond;
+    private final Counter movedCounter;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ChatShardRebalancer(ChatShardRouter router, ChatShardRepository directory, DataSource dataSource,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${notebridge.sharding.chats.rebalance.copy-batch-size:1000}") int copyBatchSize,
+                               @Value("${notebridge.sharding.chats.rebalance.moves-per-second:20}") double movesPerSecond) {
+        this.router = router;
+        this.directory = directory;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.copyBatchSize = copyBatchSize;
+        this.movesPerSecond = movesPerSecond;
+        this.movedCounter = Counter.builder("notebridge.sharding.chats.moved").register(meterRegistry);
+    }
+
+    /**
+     * Move one chat to a shard
+     *
+     * @return false if it was already there
+     */
+    public boolean moveChat(Long chatId, int targetShard) {
+        checkEnabled();
+        if (targetShard < 0 || targetShard >= router.getShardCount()) {
+            throw new IllegalArgumentException("No chat shard " + targetShard);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rebalance is already in progress");
+        }
+        try {
+            Integer source = relocate(chatId, targetShard);
+            if (source == null) {
+                return false;
+            }
+            router.evictPlacement(chatId);
+            awaitStaleReaders();
+            deleteChat(chatId, source);
+            return true;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Move chats still on the primary onto the shards, then even out the shards, up to maxMoves
+     * chats. Source rows are deleted once per run, after the last move.
+     */
+    public ShardRebalanceReport rebalance(int maxMoves) {
+        checkEnabled();
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rebalance is already in progress");
+        }
+        try {
+            Map<Integer, Long> counts = chatsPerDatabase();
+            RateLimiter rateLimiter = RateLimiter.create(movesPerSecond);
+            List<Move> moved = new ArrayList<>();
+
+            while (moved.size() < maxMoves) {
+                int target = router.getShards().stream()
+                        .min((a, b) -> Long.compare(counts.getOrDefault(a, 0L), counts.getOrDefault(b, 0L)))
+                        .orElseThrow();
+                int source = counts.getOrDefault(ChatShardRouter.PRIMARY, 0L) > 0 ? ChatShardRouter.PRIMARY
+                        : router.getShards().stream()
+                                .max((a, b) -> Long.compare(counts.getOrDefault(a, 0L), counts.getOrDefault(b, 0L)))
+                                .orElseThrow();
+                if (source != ChatShardRouter.PRIMARY && counts.getOrDefault(source, 0L) - counts.getOrDefault(target, 0L) <= 1) {
+                    break;
+                }
+                List<Long> candidates = directory.findChatIdsByShard(source, PageRequest.of(0, 1));
+                if (candidates.isEmpty()) {
+                    break;
+                }
+
+                rateLimiter.acquire();
+                Long chatId = candidates.get(0);
+                Integer from = relocate(chatId, target);
+                if (from != null) {
+                    router.evictPlacement(chatId);
+                    moved.add(new Move(chatId, from));
+                    counts.merge(from, -1L, Long::sum);
+                    counts.merge(target, 1L, Long::sum);
+                }
+            }
+
+            if (!moved.isEmpty()) {
+                awaitStaleReaders();
+                for (Move move : moved) {
+                    deleteChat(move.chatId(), move.source());
+                }
+            }
+            return new ShardRebalanceReport(moved.size(), chatsPerDatabase());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<Integer, Long> chatsPerDatabase() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (Object[] row : directory.countByShard()) {
+            counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Copy the chat to the target and point the directory at it
+     *
+     * @return the database it was moved from, or null if it was already on the target
+     */
+    private Integer relocate(Long chatId, int target) {
+        return transactionTemplate.execute(status -> {
+            ChatShard entry = directory.findForMove(chatId)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+            int source = entry.getShard();
+            if (source == target) {
+                return null;
+            }
+            copyChat(chatId, source, target);
+            entry.setShard(target);
+            directory.save(entry);
+            movedCounter.increment();
+            return source;
+        });
+    }
+
+    private void copyChat(Long chatId, int source, int target) {
+        router.inDatabase(target, false, () -> {
+            // Left over from an interrupted move
+            jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chatId);
+            jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chatId);
+
+            List<Object[]> chat = router.inDatabase(source, true, () -> jdbcTemplate.query(
+                    "SELECT " + CHAT_COLUMNS + " FROM chats WHERE id = ?", (rs, i) -> row(rs, 7), chatId));
+            if (chat.isEmpty()) {
+                // Allocated but never created; nothing to copy
+                return null;
+            }
+            jdbcTemplate.update("INSERT INTO chats (" + CHAT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)", chat.get(0));
+
+            long afterId = 0;
+            while (true) {
+                long from = afterId;
+                List<Object[]> messages = router.inDatabase(source, true, () -> jdbcTemplate.query(
+                        "SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE chat_id = ? AND id > ? ORDER BY id LIMIT ?",
+                        (rs, i) -> row(rs, 6), chatId, from, copyBatchSize));
+                if (messages.isEmpty()) {
+                    return null;
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO messages (" + MESSAGE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)", messages);
+                afterId = ((Number) messages.get(messages.size() - 1)[0]).longValue();
+            }
+        });
+    }
+
+    private void deleteChat(Long chatId, int database) {
+        router.inDatabase(database, false, () -> {
+            jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chatId);
+            return jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chatId);
+        });
+    }
+
+    private static Object[] row(ResultSet rs, int columns) throws SQLException {
+        Object[] row = new Object[columns];
+        for (int i = 0; i < columns; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+
+    private void awaitStaleReaders() {
+        try {
+            Thread.sleep(router.getDirectoryCacheTtlMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted before deleting moved chats from their old shards", e);
+        }
+    }
+
+    private void checkEnabled() {
+        if (!router.isEnabled()) {
+            throw new IllegalStateException("Chat sharding is disabled");
+        }
+    }
+}
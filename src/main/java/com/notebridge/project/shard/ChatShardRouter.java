@@ -0,0 +1,291 @@
+package com.notebridge.project.shard;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.notebridge.project.model.ChatShard;
+import com.notebridge.project.repository.ChatShardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Runs chat and message work on the database that holds the chat.
+ *
+ * With notebridge.sharding.chats.enabled=false everything runs on the primary, in a transaction
+ * that joins the caller's. With sharding on, the chat directory ({@link ChatShard}) on the
+ * primary says where each chat lives; chats created before sharding was enabled are on the
+ * primary (PRIMARY) until the rebalancer moves them. Work runs in its own transaction on that
+ * database, via {@link ShardContext}.
+ *
+ * Reads find the chat through a short-lived local copy of the directory. Writes read the
+ * directory entry FOR SHARE and keep it locked until the shard transaction commits, so they
+ * can't land on a shard a chat is being moved away from. Queries over all of a user's chats
+ * run in parallel on each database holding one of them.
+ */
+@Service
+public class ChatShardRouter implements DisposableBean {
+
+    public static final int PRIMARY = -1;
+
+    private final ChatShardRepository directory;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int shardCount;
+    private final long directoryCacheTtlMillis;
+    private final long scatterTimeoutMillis;
+
+    // Unsharded: join the caller's transaction, like the @Transactional service methods did
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    // Sharded: always a new transaction, since the connection depends on the shard
+    private final TransactionTemplate newReadTransaction;
+    private final TransactionTemplate newWriteTransaction;
+
+    private final Cache<Long, Integer> placements;
+    private final ThreadPoolExecutor scatterExecutor;
+
+    public ChatShardRouter(ChatShardRepository directory, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${notebridge.sharding.chats.enabled:false}") boolean enabled,
+                           @Value("${notebridge.sharding.chats.urls:}") String[] urls,
+                           @Value("${notebridge.sharding.chats.directory-cache-ttl-ms:5000}") long directoryCacheTtlMillis,
+                           @Value("${notebridge.sharding.chats.scatter.workers:8}") int scatterWorkers,
+                           @Value("${notebridge.sharding.chats.scatter.timeout-ms:2000}") long scatterTimeoutMillis) {
+        if (enabled && urls.length == 0) {
+            throw new IllegalStateException("notebridge.sharding.chats.urls must list the shards when chat sharding is enabled");
+        }
+        this.directory = directory;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.shardCount = urls.length;
+        this.directoryCacheTtlMillis = directoryCacheTtlMillis;
+        this.scatterTimeoutMillis = scatterTimeoutMillis;
+
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.newWriteTransaction = new TransactionTemplate(transactionManager);
+        this.newWriteTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.newReadTransaction = new TransactionTemplate(transactionManager);
+        this.newReadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.newReadTransaction.setReadOnly(true);
+
+        this.placements = CacheBuilder.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(directoryCacheTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        if (enabled) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            // When all workers are busy the request thread queries the shard itself
+            this.scatterExecutor = new ThreadPoolExecutor(scatterWorkers, scatterWorkers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(scatterWorkers * 4), runnable -> {
+                        Thread thread = new Thread(runnable, "chat-shards-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.scatterExecutor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * How long a moved chat may still be read from its old database by another instance
+     */
+    public long getDirectoryCacheTtlMillis() {
+        return directoryCacheTtlMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerUnplacedChats() {
+        if (enabled) {
+            int registered = directory.registerUnplacedChats();
+            if (registered > 0) {
+                System.out.println("Registered " + registered + " existing chats in the chat directory (on the primary)");
+            }
+        }
+    }
+
+    /**
+     * Read-only work on the primary, joining the caller's transaction if there is one
+     */
+    public <T> T readPrimary(Supplier<T> work) {
+        return readTransaction.execute(status -> work.get());
+    }
+
+    /**
+     * Read-only work on the database holding the chat
+     */
+    public <T> T readChat(Long chatId, Supplier<T> work) {
+        if (!enabled) {
+            return readTransaction.execute(status -> work.get());
+        }
+        Integer database = placements.getIfPresent(chatId);
+        if (database == null) {
+            database = directory.findById(chatId).map(ChatShard::getShard)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+            placements.put(chatId, database);
+        }
+        return inDatabase(database, true, work);
+    }
+
+    /**
+     * Read-write work on the database holding the chat
+     */
+    public <T> T writeChat(Long chatId, Supplier<T> work) {
+        if (!enabled) {
+            return writeTransaction.execute(status -> work.get());
+        }
+        return writeTransaction.execute(status -> {
+            ChatShard entry = directory.findForWrite(chatId)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+            placements.put(chatId, entry.getShard());
+            return inDatabase(entry.getShard(), false, work);
+        });
+    }
+
+    /**
+     * Read-write work on the database that holds, or will hold, the chat between two users.
+     * The work gets the chat's id to create it with if it doesn't exist there yet, or null
+     * when sharding is off and the table assigns ids.
+     */
+    public <T> T writeChatBetween(Long teacherId, Long studentId, Function<Long, T> work) {
+        if (!enabled) {
+            return writeTransaction.execute(status -> work.apply(null));
+        }
+        ChatShard entry = directory.findByTeacherIdAndStudentId(teacherId, studentId)
+                .orElseGet(() -> allocate(teacherId, studentId));
+        Long chatId = entry.getChatId();
+        return writeChat(chatId, () -> work.apply(chatId));
+    }
+
+    private ChatShard allocate(Long teacherId, Long studentId) {
+        int shard = Math.floorMod(Objects.hash(teacherId, studentId), shardCount);
+        try {
+            return directory.saveAndFlush(new ChatShard(shard, teacherId, studentId));
+        } catch (DataIntegrityViolationException e) {
+            // Another request created the chat first
+            return directory.findByTeacherIdAndStudentId(teacherId, studentId).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Where each of the user's chats lives: chat id to shard, or PRIMARY
+     */
+    public Map<Long, Integer> placementsOf(Long userId) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (ChatShard entry : directory.findByParticipant(userId)) {
+            result.put(entry.getChatId(), entry.getShard());
+        }
+        return result;
+    }
+
+    /**
+     * Run a read-only query on each of the databases in parallel
+     *
+     * @return each database's result
+     */
+    public <T> Map<Integer, T> gather(String queryName, Collection<Integer> databases, Supplier<T> query) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(scatterTimeoutMillis);
+        Map<Integer, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (Integer database : databases) {
+            futures.put(database, CompletableFuture.supplyAsync(() -> inDatabase(database, true, query), scatterExecutor));
+        }
+
+        Map<Integer, T> results = new HashMap<>();
+        try {
+            for (Map.Entry<Integer, CompletableFuture<T>> future : futures.entrySet()) {
+                results.put(future.getKey(), future.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying chat shards", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Chat shards did not answer within " + scatterTimeoutMillis + " ms");
+        } finally {
+            sample.stop(Timer.builder("notebridge.sharding.scatter").tag("query", queryName).register(meterRegistry));
+        }
+    }
+
+    /**
+     * Run work in a new transaction on one database
+     */
+    public <T> T inDatabase(int database, boolean readOnly, Supplier<T> work) {
+        Integer previous = ShardContext.current();
+        ShardContext.set(database == PRIMARY ? null : database);
+        try {
+            return (readOnly ? newReadTransaction : newWriteTransaction).execute(status -> work.get());
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    /**
+     * Run a task, without a transaction, once against the primary and once against each shard
+     */
+    public void forEachDatabase(Runnable task) {
+        task.run();
+        Integer previous = ShardContext.current();
+        try {
+            for (int shard = 0; enabled && shard < shardCount; shard++) {
+                ShardContext.set(shard);
+                task.run();
+            }
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public List<Integer> getShards() {
+        return IntStream.range(0, shardCount).boxed().toList();
+    }
+
+    void evictPlacement(Long chatId) {
+        placements.invalidate(chatId);
+    }
+
+    @Override
+    public void destroy() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.notebridge.project.shard;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the chat tables on a shard (db/chat-shard-schema.sql). Hibernate's schema update only
+ * looks at the primary.
+ */
+public final class ChatShardSchema {
+
+    private static final String SCRIPT = "db/chat-shard-schema.sql";
+
+    private ChatShardSchema() {
+    }
+
+    // Message ids of shard n start at (n + 1) * 2^40, far above anything the primary will reach
+    static long messageIdStart(int shard) {
+        return (shard + 1L) << 40;
+    }
+
+    public static void apply(DataSource shardDataSource, int shard) throws IOException, SQLException {
+        String script;
+        try (InputStream in = new ClassPathResource(SCRIPT).getInputStream()) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        script = script.replace("${message_id_start}", Long.toString(messageIdStart(shard)));
+
+        try (Connection connection = shardDataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8), SCRIPT)));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.notebridge.project.shard;
+
+/**
+ * The chat shard the current thread's next connection goes to; null means the primary
+ * database. Has to be set before a transaction starts, since the connection is taken then.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
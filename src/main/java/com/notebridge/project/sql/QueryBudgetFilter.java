@@ -0,0 +1,106 @@
+package com.notebridge.project.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements each request executes and flags requests that exceed their
+ * endpoint's budget or run the same statement many times (the usual N+1 signature).
+ *
+ * Budgets are keyed by method and route pattern, e.g. {@code GET /api/chats/{chatId}/messages}.
+ * The stats are left on the request under {@link #STATS_ATTRIBUTE} for tests to inspect.
+ */
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    public static final String STATS_ATTRIBUTE = QueryBudgetFilter.class.getName() + ".stats";
+
+    private final int defaultBudget;
+    private final Map<String, Integer> budgets;
+    private final int repeatThreshold;
+    private final MeterRegistry meterRegistry;
+
+    public QueryBudgetFilter(int defaultBudget, Map<String, Integer> budgets, int repeatThreshold, MeterRegistry meterRegistry) {
+        this.defaultBudget = defaultBudget;
+        this.budgets = budgets;
+        this.repeatThreshold = repeatThreshold;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Parse "GET /api/lessons=2, GET /api/chats/{chatId}/messages=4" into a budget map
+     */
+    public static Map<String, Integer> parseBudgets(String value) {
+        Map<String, Integer> budgets = new HashMap<>();
+        for (String entry : value.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator > 0) {
+                budgets.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+            }
+        }
+        return budgets;
+    }
+
+    public int getBudget(String endpoint) {
+        return budgets.getOrDefault(endpoint, defaultBudget);
+    }
+
+    public int getRepeatThreshold() {
+        return repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryCounter.Stats stats = QueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCounter.stop();
+            request.setAttribute(STATS_ATTRIBUTE, stats);
+            check(request, stats);
+        }
+    }
+
+    private void check(HttpServletRequest request, QueryCounter.Stats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            // Not handled by a controller (static resource, security redirect, 404)
+            return;
+        }
+        String endpoint = request.getMethod() + " " + pattern;
+
+        DistributionSummary.builder("notebridge.sql.statements")
+                .description("SQL statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern.toString())
+                .register(meterRegistry)
+                .record(stats.getTotal());
+
+        int budget = getBudget(endpoint);
+        if (stats.getTotal() > budget) {
+            Counter.builder("notebridge.sql.budget.exceeded").tag("method", request.getMethod()).tag("uri", pattern.toString())
+                    .register(meterRegistry).increment();
+            System.err.println("Query budget exceeded: " + endpoint + " ran " + stats.getTotal()
+                    + " statements (budget " + budget + ")");
+        }
+
+        Map.Entry<String, Integer> mostRepeated = stats.getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= repeatThreshold) {
+            Counter.builder("notebridge.sql.repeated.statements").tag("method", request.getMethod()).tag("uri", pattern.toString())
+                    .register(meterRegistry).increment();
+            System.err.println("Possible N+1 in " + endpoint + ": same statement ran " + mostRepeated.getValue()
+                    + " times: " + mostRepeated.getKey());
+        }
+    }
+}
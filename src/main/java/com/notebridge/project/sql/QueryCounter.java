@@ -0,0 +1,68 @@
+package com.notebridge.project.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements executed on the current thread between {@link #start()} and
+ * {@link #stop()}. Statements outside such a window (scheduled jobs, startup) are not counted.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<Stats> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static class Stats {
+        private int total;
+        // Prepared statement text -> executions; Hibernate binds parameters, so an N+1 shows up
+        // as the same text executed over and over
+        private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+        void record(String sql) {
+            total++;
+            executionsBySql.merge(sql, 1, Integer::sum);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public Map<String, Integer> getExecutionsBySql() {
+            return executionsBySql;
+        }
+
+        /**
+         * @return the statement executed most often, or null if nothing ran
+         */
+        public Map.Entry<String, Integer> getMostRepeated() {
+            Map.Entry<String, Integer> mostRepeated = null;
+            for (Map.Entry<String, Integer> entry : executionsBySql.entrySet()) {
+                if (mostRepeated == null || entry.getValue() > mostRepeated.getValue()) {
+                    mostRepeated = entry;
+                }
+            }
+            return mostRepeated;
+        }
+    }
+
+    public static Stats start() {
+        Stats stats = new Stats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static Stats stop() {
+        Stats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    static void record(String sql) {
+        Stats stats = CURRENT.get();
+        if (stats != null) {
+            stats.record(sql);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.notebridge.project.sql;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Wraps a DataSource so every executed statement is reported to {@link QueryCounter}.
+ *
+ * Plain JDK proxies over the JDBC interfaces: the per-statement overhead is one reflective
+ * call and a ThreadLocal read, and nothing at all is allocated when no request is being counted.
+ */
+public final class QueryCountingDataSource {
+
+    private QueryCountingDataSource() {
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Connection connection) {
+                return proxy(Connection.class, connection, QueryCountingDataSource::connectionCall);
+            }
+            return result;
+        });
+    }
+
+    private static Object connectionCall(Connection connection, Method method, Object[] args) throws Throwable {
+        Object result = invoke(connection, method, args);
+        return switch (method.getName()) {
+            case "prepareStatement" -> proxy(PreparedStatement.class, (PreparedStatement) result, preparedStatementCall((String) args[0]));
+            case "prepareCall" -> proxy(CallableStatement.class, (CallableStatement) result, preparedStatementCall((String) args[0]));
+            case "createStatement" -> proxy(Statement.class, (Statement) result, QueryCountingDataSource::statementCall);
+            default -> result;
+        };
+    }
+
+    // The SQL is known when the statement is prepared; count each execution
+    private static <T extends Statement> Handler<T> preparedStatementCall(String sql) {
+        return (statement, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                QueryCounter.record(sql);
+            }
+            return invoke(statement, method, args);
+        };
+    }
+
+    // Plain statements get their SQL with each execute call
+    private static Object statementCall(Statement statement, Method method, Object[] args) throws Throwable {
+        if (method.getName().startsWith("execute")) {
+            QueryCounter.record(args != null && args.length > 0 && args[0] instanceof String sql ? sql : "<batch>");
+        }
+        return invoke(statement, method, args);
+    }
+
+    @FunctionalInterface
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> switch (method.getName()) {
+            // Identity of the proxy itself; everything else (including unwrap, so pool metrics
+            // can still reach Hikari) goes to the real object
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> handler.handle(target, method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
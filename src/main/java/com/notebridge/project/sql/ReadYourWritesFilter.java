@@ -0,0 +1,60 @@
+package com.notebridge.project.sql;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Keeps a user's reads on the primary for a while after they changed something, so that e.g.
+ * the chat history fetched right after sending a message contains that message even when the
+ * replicas are a little behind.
+ *
+ * A successful non-GET request stamps the session; requests within the sticky window then
+ * bypass the replicas. Sessions are per node already, so the stamp needs no sharing.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String PRIMARY_UNTIL_ATTRIBUTE = ReadYourWritesFilter.class.getName() + ".primaryUntil";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final long stickyMillis;
+
+    public ReadYourWritesFilter(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        Object primaryUntil = session != null ? session.getAttribute(PRIMARY_UNTIL_ATTRIBUTE) : null;
+        if (primaryUntil instanceof Long until && until > System.currentTimeMillis()) {
+            PINNED.set(Boolean.TRUE);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PINNED.remove();
+        }
+
+        if (!SAFE_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+            // The request may have started or replaced the session, so look it up again
+            HttpSession current = request.getSession(false);
+            if (current != null) {
+                current.setAttribute(PRIMARY_UNTIL_ATTRIBUTE, System.currentTimeMillis() + stickyMillis);
+            }
+        }
+    }
+}
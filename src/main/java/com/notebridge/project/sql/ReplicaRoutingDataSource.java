@@ -0,0 +1,38 @@
+package com.notebridge.project.sql;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sends read-only transactions to a {@link ReplicaSet} and everything else to the primary.
+ *
+ * The physical connection is only fetched on the first statement, after the transaction
+ * manager has marked it read-only, so the choice follows @Transactional(readOnly = true) on
+ * services and the read-only default of Spring Data's own query methods.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final ReplicaSet replicaSet;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaSet replicaSet) {
+        super(primary);
+        setReadOnlyDataSource(replicaSet);
+        this.replicaSet = replicaSet;
+    }
+
+    public ReplicaSet getReplicaSet() {
+        return replicaSet;
+    }
+
+    // This replaces the primary pool's bean, so it has to close that pool too
+    @Override
+    public void close() throws IOException {
+        replicaSet.close();
+        if (obtainTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.notebridge.project.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read-only side of {@link ReplicaRoutingDataSource}. Hands out connections from the healthy
+ * replicas in turn, and from the primary when none is healthy or the current request has to
+ * read its own writes.
+ *
+ * Lag comes from a heartbeat row instead of SHOW REPLICA STATUS: the primary stamps it every
+ * interval and each replica is asked how old its copy is. That needs no replication privileges,
+ * includes apply delay, and works the same against any replication setup or a test stand-in.
+ */
+public class ReplicaSet extends AbstractDataSource implements Closeable {
+
+    static final String HEARTBEAT_TABLE = "replication_heartbeat";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final long heartbeatIntervalMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter replicaReads;
+    private final Counter fallbackReads;
+    private final Counter pinnedReads;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaSet(DataSource primary, Map<String, DataSource> replicas, long maxLagMillis,
+                      long heartbeatIntervalMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLagMillis = maxLagMillis;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("notebridge.datasource.replica.lag", replica, r -> r.lagMillis)
+                    .tag("replica", name).baseUnit("milliseconds").register(meterRegistry);
+        });
+
+        this.replicaReads = Counter.builder("notebridge.datasource.reads").tag("target", "replica").register(meterRegistry);
+        this.fallbackReads = Counter.builder("notebridge.datasource.reads").tag("target", "primary-fallback").register(meterRegistry);
+        this.pinnedReads = Counter.builder("notebridge.datasource.reads").tag("target", "primary-pinned").register(meterRegistry);
+    }
+
+    /**
+     * Create the heartbeat table, take a first measurement and start the heartbeat thread
+     */
+    public void start() throws SQLException {
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE
+                    + " (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        }
+        heartbeat();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (ReadYourWritesFilter.isPinnedToPrimary()) {
+            pinnedReads.increment();
+            return connect(primary, username, password);
+        }
+
+        int start = replicas.isEmpty() ? 0 : Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = connect(replica.dataSource, username, password);
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                // Down since the last check; skip it until a heartbeat sees it again
+                markUnhealthy(replica, "connection failed: " + e.getMessage());
+            }
+        }
+
+        fallbackReads.increment();
+        return connect(primary, username, password);
+    }
+
+    public boolean isHealthy(String replicaName) {
+        return replicas.stream().anyMatch(replica -> replica.name.equals(replicaName) && replica.healthy);
+    }
+
+    void heartbeat() {
+        try {
+            beat();
+        } catch (SQLException e) {
+            System.err.println("Failed to write replication heartbeat: " + e.getMessage());
+        }
+        checkReplicas();
+    }
+
+    void checkReplicas() {
+        long now = System.currentTimeMillis();
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement select = connection.prepareStatement(
+                         "SELECT beat_millis FROM " + HEARTBEAT_TABLE + " WHERE id = 1");
+                 ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next()) {
+                    markUnhealthy(replica, "no heartbeat row");
+                    continue;
+                }
+                replica.lagMillis = Math.max(0, now - resultSet.getLong(1));
+                if (replica.lagMillis > maxLagMillis) {
+                    markUnhealthy(replica, "lagging by " + replica.lagMillis + " ms");
+                } else if (!replica.healthy) {
+                    replica.healthy = true;
+                    System.out.println("Replica " + replica.name + " is back in rotation, lag " + replica.lagMillis + " ms");
+                }
+            } catch (SQLException e) {
+                markUnhealthy(replica, e.getMessage());
+            }
+        }
+    }
+
+    private void beat() throws SQLException {
+        long now = System.currentTimeMillis();
+        try (Connection connection = primary.getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE " + HEARTBEAT_TABLE + " SET beat_millis = ? WHERE id = 1")) {
+            update.setLong(1, now);
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO " + HEARTBEAT_TABLE + " (id, beat_millis) VALUES (1, ?)")) {
+                    insert.setLong(1, now);
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void markUnhealthy(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            System.err.println("Replica " + replica.name + " taken out of rotation: " + reason);
+        }
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+        return username != null ? dataSource.getConnection(username, password) : dataSource.getConnection();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class Replica {
+        final String name;
+        final DataSource dataSource;
+        // Out of rotation until the first heartbeat check proves it's caught up
+        volatile boolean healthy;
+        volatile long lagMillis = -1;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.notebridge.project.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of calls in flight against a backend. With virtual threads nothing else stops
+ * thousands of requests from hitting storage at once; callers past the limit wait for a permit,
+ * and fail with an IOException if none frees up in time.
+ */
+public class ConcurrencyLimitedStorageBackend implements StorageBackend {
+
+    private final StorageBackend delegate;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final Timer permitWait;
+
+    public ConcurrencyLimitedStorageBackend(StorageBackend delegate, int maxConcurrency, long timeoutMillis,
+                                            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeoutMillis = timeoutMillis;
+        this.permitWait = Timer.builder("notebridge.storage.permit.wait").register(meterRegistry);
+        Gauge.builder("notebridge.storage.in.flight", permits, p -> maxConcurrency - p.availablePermits()).register(meterRegistry);
+        Gauge.builder("notebridge.storage.waiting", permits, Semaphore::getQueueLength).register(meterRegistry);
+    }
+
+    @Override
+    public void write(String objectName, String contentType, InputStream content) throws IOException {
+        acquire();
+        try {
+            delegate.write(objectName, contentType, content);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public StoredObject stat(String objectName) throws IOException {
+        acquire();
+        try {
+            return delegate.stat(objectName);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // The permit covers opening the object and fetching the first bytes. It is released on the
+    // first write to the caller's stream, so a slow client draining a download doesn't hold it.
+    @Override
+    public void read(String objectName, long start, long length, OutputStream out) throws IOException {
+        acquire();
+        PermitReleasingOutputStream releasing = new PermitReleasingOutputStream(out);
+        try {
+            delegate.read(objectName, start, length, releasing);
+        } finally {
+            releasing.release();
+        }
+    }
+
+    @Override
+    public boolean delete(String objectName) throws IOException {
+        acquire();
+        try {
+            return delegate.delete(objectName);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Listing is a background job that fetches pages lazily; it isn't worth holding a permit for
+    @Override
+    public Iterator<StoredObject> list() throws IOException {
+        return delegate.list();
+    }
+
+    private final class PermitReleasingOutputStream extends FilterOutputStream {
+
+        private boolean released;
+
+        PermitReleasingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            release();
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            release();
+            out.write(b, off, len);
+        }
+
+        void release() {
+            if (!released) {
+                released = true;
+                permits.release();
+            }
+        }
+    }
+
+    private void acquire() throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Storage is busy, no permit within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a storage permit", e);
+        } finally {
+            permitWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
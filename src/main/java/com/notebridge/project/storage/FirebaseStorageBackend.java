@@ -0,0 +1,110 @@
+package com.notebridge.project.storage;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.StreamSupport;
+
+@Component
+@ConditionalOnProperty(name = "notebridge.storage.backend", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseStorageBackend implements StorageBackend {
+
+    // Content is copied through a buffer of this size; the channels hold at most one chunk,
+    // so heap per transfer stays constant no matter how large the file is.
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int CHUNK_SIZE = 1024 * 1024;
+    static final int LIST_PAGE_SIZE = 1000;
+
+    private final Storage storage;
+    private final String bucketName;
+
+    @Autowired
+    public FirebaseStorageBackend(Storage storage,
+                                  @Value("${notebridge.storage.firebase.bucket}") String bucketName) {
+        this.storage = storage;
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public void write(String objectName, String contentType, InputStream content) throws IOException {
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, objectName)).setContentType(contentType).build();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+        try (WriteChannel writer = storage.writer(blobInfo)) {
+            writer.setChunkSize(CHUNK_SIZE);
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                byteBuffer.clear().limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    writer.write(byteBuffer);
+                }
+            }
+        }
+    }
+
+    @Override
+    public StoredObject stat(String objectName) {
+        Blob blob = storage.get(BlobId.of(bucketName, objectName));
+        if (blob == null || !blob.exists()) {
+            return null;
+        }
+        return toStoredObject(blob);
+    }
+
+    @Override
+    public void read(String objectName, long start, long length, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+        try (ReadChannel reader = storage.reader(BlobId.of(bucketName, objectName))) {
+            reader.setChunkSize(CHUNK_SIZE);
+            reader.seek(start);
+
+            long remaining = length;
+            while (remaining > 0) {
+                byteBuffer.clear().limit((int) Math.min(buffer.length, remaining));
+                int read = reader.read(byteBuffer);
+                if (read == -1) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(String objectName) {
+        return storage.delete(BlobId.of(bucketName, objectName));
+    }
+
+    // GCS returns names in lexicographic order; iterateAll fetches one page at a time
+    @Override
+    public Iterator<StoredObject> list() {
+        Iterable<Blob> blobs = storage.list(bucketName, Storage.BlobListOption.pageSize(LIST_PAGE_SIZE)).iterateAll();
+        return StreamSupport.stream(blobs.spliterator(), false)
+                .map(FirebaseStorageBackend::toStoredObject)
+                .iterator();
+    }
+
+    private static StoredObject toStoredObject(Blob blob) {
+        Instant updatedAt = blob.getUpdateTimeOffsetDateTime() != null
+                ? blob.getUpdateTimeOffsetDateTime().toInstant() : null;
+        return new StoredObject(blob.getName(), blob.getContentType(), blob.getSize(), updatedAt);
+    }
+}
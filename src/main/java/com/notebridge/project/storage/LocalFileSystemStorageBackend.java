@@ -0,0 +1,170 @@
+package com.notebridge.project.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Stores objects as plain files under a root directory, for CI, local development and
+ * air-gapped installs. Content types aren't kept here; FileMetaData records them.
+ */
+@Component
+@ConditionalOnProperty(name = "notebridge.storage.backend", havingValue = "local")
+public class LocalFileSystemStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    @Autowired
+    public LocalFileSystemStorageBackend(@Value("${notebridge.storage.local.root:./storage}") String root) throws IOException {
+        this.root = Files.createDirectories(Paths.get(root).toAbsolutePath().normalize());
+    }
+
+    @Override
+    public void write(String objectName, String contentType, InputStream content) throws IOException {
+        Path target = resolve(objectName);
+        Files.createDirectories(target.getParent());
+
+        // Write beside the target and rename, so readers never see a partial object
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.copy(content, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public StoredObject stat(String objectName) throws IOException {
+        Path path = resolve(objectName);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        return new StoredObject(objectName, null, Files.size(path), Files.getLastModifiedTime(path).toInstant());
+    }
+
+    @Override
+    public void read(String objectName, long start, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(objectName), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = Math.min(length, channel.size() - start);
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(String objectName) throws IOException {
+        try {
+            return Files.deleteIfExists(resolve(objectName));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Depth-first walk that sorts each directory by the name as it appears inside a full object
+     * name (directories compare as "name/"), which yields global binary name order. Memory is
+     * proportional to the largest directory, not the whole tree.
+     */
+    @Override
+    public Iterator<StoredObject> list() throws IOException {
+        Deque<Iterator<Path>> stack = new ArrayDeque<>();
+        stack.push(sortedChildren(root));
+
+        return new Iterator<>() {
+            private StoredObject next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public StoredObject next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                StoredObject current = next;
+                next = advance();
+                return current;
+            }
+
+            private StoredObject advance() {
+                try {
+                    while (!stack.isEmpty()) {
+                        Iterator<Path> level = stack.peek();
+                        if (!level.hasNext()) {
+                            stack.pop();
+                            continue;
+                        }
+                        Path path = level.next();
+                        if (Files.isDirectory(path)) {
+                            stack.push(sortedChildren(path));
+                        } else if (!path.getFileName().toString().endsWith(".tmp")) {
+                            String objectName = root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                            return new StoredObject(objectName, null, Files.size(path),
+                                    Files.getLastModifiedTime(path).toInstant());
+                        }
+                    }
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static Iterator<Path> sortedChildren(Path directory) throws IOException {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(children::add);
+        }
+        children.sort(Comparator.comparing(path -> Files.isDirectory(path)
+                ? path.getFileName() + "/" : path.getFileName().toString()));
+        return children.iterator();
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid object name: " + objectName);
+        }
+        return path;
+    }
+}
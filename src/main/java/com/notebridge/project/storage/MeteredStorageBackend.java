@@ -0,0 +1,157 @@
+package com.notebridge.project.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latency per operation and bytes transferred for any backend. The meters are looked up
+ * once here, so the per-call cost is a clock read and a few atomic updates.
+ */
+public class MeteredStorageBackend implements StorageBackend {
+
+    private static final List<String> OPERATIONS = List.of("write", "stat", "read", "delete", "list");
+
+    private final StorageBackend delegate;
+    private final Map<String, Timer> successTimers = new HashMap<>();
+    private final Map<String, Timer> errorTimers = new HashMap<>();
+
+    private final DistributionSummary uploadedBytes;
+    private final DistributionSummary downloadedBytes;
+
+    public MeteredStorageBackend(StorageBackend delegate, String backendName, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        for (String operation : OPERATIONS) {
+            successTimers.put(operation, timer(meterRegistry, backendName, operation, "success"));
+            errorTimers.put(operation, timer(meterRegistry, backendName, operation, "error"));
+        }
+        this.uploadedBytes = DistributionSummary.builder("notebridge.storage.transfer")
+                .tag("backend", backendName).tag("direction", "upload").baseUnit("bytes").register(meterRegistry);
+        this.downloadedBytes = DistributionSummary.builder("notebridge.storage.transfer")
+                .tag("backend", backendName).tag("direction", "download").baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Override
+    public void write(String objectName, String contentType, InputStream content) throws IOException {
+        CountingInputStream counting = new CountingInputStream(content);
+        record("write", () -> {
+            delegate.write(objectName, contentType, counting);
+            return null;
+        });
+        uploadedBytes.record(counting.count);
+    }
+
+    @Override
+    public StoredObject stat(String objectName) throws IOException {
+        return record("stat", () -> delegate.stat(objectName));
+    }
+
+    @Override
+    public void read(String objectName, long start, long length, OutputStream out) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream(out);
+        try {
+            record("read", () -> {
+                delegate.read(objectName, start, length, counting);
+                return null;
+            });
+        } finally {
+            // Aborted downloads still moved bytes
+            downloadedBytes.record(counting.count);
+        }
+    }
+
+    @Override
+    public boolean delete(String objectName) throws IOException {
+        return record("delete", () -> delegate.delete(objectName));
+    }
+
+    // Only the first page is timed; the rest is fetched lazily while the caller iterates
+    @Override
+    public Iterator<StoredObject> list() throws IOException {
+        return record("list", delegate::list);
+    }
+
+    private <T> T record(String operation, Callable<T> call) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            Timer timer = success ? successTimers.get(operation) : errorTimers.get(operation);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String backendName, String operation, String outcome) {
+        return Timer.builder("notebridge.storage.requests")
+                .tag("backend", backendName)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        // FilterOutputStream would otherwise write byte by byte
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+}
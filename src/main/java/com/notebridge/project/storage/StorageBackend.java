@@ -0,0 +1,39 @@
+package com.notebridge.project.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Where uploaded file bytes live. Object names are opaque to the backend; callers treat
+ * stored objects as immutable and never overwrite a name with different content.
+ */
+public interface StorageBackend {
+
+    /**
+     * Store the stream under {@code objectName}, reading it to the end
+     */
+    void write(String objectName, String contentType, InputStream content) throws IOException;
+
+    /**
+     * @return size and content type, or null if there is no such object
+     */
+    StoredObject stat(String objectName) throws IOException;
+
+    /**
+     * Copy {@code length} bytes starting at {@code start} to {@code out}
+     */
+    void read(String objectName, long start, long length, OutputStream out) throws IOException;
+
+    /**
+     * @return true if an object was deleted
+     */
+    boolean delete(String objectName) throws IOException;
+
+    /**
+     * Lazily list every object in ascending (binary) name order, fetching pages as the iterator
+     * advances, so callers can walk millions of objects in bounded memory
+     */
+    Iterator<StoredObject> list() throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.notebridge.project.storage;
+
+import java.time.Instant;
+
+public class StoredObject {
+    private final String objectName;
+    private final String contentType;
+    private final long size;
+    private final Instant updatedAt;
+
+    public StoredObject(String objectName, String contentType, long size, Instant updatedAt) {
+        this.objectName = objectName;
+        this.contentType = contentType;
+        this.size = size;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,97 @@
+package com.notebridge.project.sync;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notebridge.project.model.OutboxEvent;
+import com.notebridge.project.model.SyncChange;
+import com.notebridge.project.model.SyncSequence;
+import com.notebridge.project.outbox.OutboxEventHandler;
+import com.notebridge.project.outbox.OutboxEventTypes;
+import com.notebridge.project.repository.SyncChangeRepository;
+import com.notebridge.project.repository.SyncSequenceRepository;
+import com.notebridge.project.shard.ChatShardRouter;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns chat and lesson events into numbered sync changes, one per user who should see them.
+ *
+ * Changes are recorded from the outbox rather than in the writing transaction, so only this
+ * handler takes the sequence lock and chat writes, which may run on a shard, never wait on it.
+ * A redelivered event records its changes twice, which clients can't tell apart from one.
+ */
+@Component
+public class SyncChangeRecorder implements OutboxEventHandler {
+
+    private static final Set<String> CHAT_EVENTS = Set.of(OutboxEventTypes.CHAT_CREATED, OutboxEventTypes.CHAT_UPDATED,
+            OutboxEventTypes.MESSAGE_SENT, OutboxEventTypes.MESSAGES_READ);
+
+    private final SyncChangeRepository changes;
+    private final SyncSequenceRepository sequences;
+    private final ChatShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+
+    public SyncChangeRecorder(SyncChangeRepository changes, SyncSequenceRepository sequences,
+                              ChatShardRouter shardRouter, ObjectMapper objectMapper) {
+        this.changes = changes;
+        this.sequences = sequences;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getName() {
+        return "sync-changes";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return CHAT_EVENTS.contains(eventType) || eventType.startsWith("Lesson");
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        JsonNode payload = objectMapper.readTree(event.getPayload());
+        Long aggregateId = Long.valueOf(event.getAggregateId());
+        LocalDateTime changedAt = event.getCreatedAt();
+
+        List<SyncChange> recorded = switch (event.getEventType()) {
+            case OutboxEventTypes.CHAT_CREATED, OutboxEventTypes.CHAT_UPDATED -> List.of(
+                    new SyncChange(payload.get("teacherId").asLong(), SyncChange.EntityType.CHAT, aggregateId, aggregateId, changedAt),
+                    new SyncChange(payload.get("studentId").asLong(), SyncChange.EntityType.CHAT, aggregateId, aggregateId, changedAt));
+            case OutboxEventTypes.MESSAGE_SENT -> {
+                long messageId = payload.get("messageId").asLong();
+                yield List.of(
+                        new SyncChange(payload.get("senderId").asLong(), SyncChange.EntityType.MESSAGE, messageId, aggregateId, changedAt),
+                        new SyncChange(payload.get("recipientId").asLong(), SyncChange.EntityType.MESSAGE, messageId, aggregateId, changedAt));
+            }
+            case OutboxEventTypes.MESSAGES_READ -> {
+                long readerId = payload.get("readerId").asLong();
+                yield List.of(
+                        new SyncChange(payload.get("teacherId").asLong(), SyncChange.EntityType.READ_STATE, readerId, aggregateId, changedAt),
+                        new SyncChange(payload.get("studentId").asLong(), SyncChange.EntityType.READ_STATE, readerId, aggregateId, changedAt));
+            }
+            default -> List.of(
+                    new SyncChange(SyncChange.EVERYONE, SyncChange.EntityType.LESSON, aggregateId, null, changedAt));
+        };
+        record(recorded);
+    }
+
+    private void record(List<SyncChange> recorded) {
+        // The relay may be working through a shard's events; the changes live on the primary
+        shardRouter.inDatabase(ChatShardRouter.PRIMARY, false, () -> {
+            // Created on first use; if two relays race to create it, the loser's event is retried
+            SyncSequence sequence = sequences.findForUpdate(SyncSequence.ID)
+                    .orElseGet(() -> sequences.saveAndFlush(new SyncSequence(SyncSequence.ID)));
+            long seq = sequence.getLastSeq();
+            for (SyncChange change : recorded) {
+                change.setSeq(++seq);
+            }
+            sequence.setLastSeq(seq);
+            return changes.saveAll(recorded);
+        });
+    }
+}
@@ -0,0 +1,216 @@
+package com.notebridge.project.sync;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.SyncChange;
+import com.notebridge.project.model.SyncSequence;
+import com.notebridge.project.model.User;
+import com.notebridge.project.repository.ChatRepository;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.repository.MessageRepository;
+import com.notebridge.project.repository.SyncChangeRepository;
+import com.notebridge.project.repository.SyncSequenceRepository;
+import com.notebridge.project.response.ChatView;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.response.SyncResponse;
+import com.notebridge.project.shard.ChatShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the changes recorded by {@link SyncChangeRecorder} to clients that keep a local copy
+ * of their chats, messages and the lesson catalogue.
+ *
+ * The change token is the last sequence number a client has seen. A call reads the sequence
+ * and the user's changes after the token in one transaction, collapses repeated changes to the
+ * same entity and loads each entity's current state, so a warm launch costs a few rows however
+ * large the user's lists are. Changes older than the retention period are pruned; tokens from
+ * before that get a full resync.
+ */
+@Service
+public class SyncService {
+
+    private final SyncChangeRepository changes;
+    private final SyncSequenceRepository sequences;
+    private final ChatShardRouter shardRouter;
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final LessonRepository lessonRepository;
+    private final int maxChanges;
+    private final Duration retention;
+    private final int pruneBatchSize;
+
+    public SyncService(SyncChangeRepository changes, SyncSequenceRepository sequences, ChatShardRouter shardRouter,
+                       ChatRepository chatRepository, MessageRepository messageRepository,
+                       LessonRepository lessonRepository,
+                       @Value("${notebridge.sync.max-changes:500}") int maxChanges,
+                       @Value("${notebridge.sync.retention-days:30}") long retentionDays,
+                       @Value("${notebridge.sync.prune-batch-size:1000}") int pruneBatchSize) {
+        this.changes = changes;
+        this.sequences = sequences;
+        this.shardRouter = shardRouter;
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.lessonRepository = lessonRepository;
+        this.maxChanges = maxChanges;
+        this.retention = Duration.ofDays(retentionDays);
+        this.pruneBatchSize = pruneBatchSize;
+    }
+
+    private record Window(long lastSeq, boolean fullResyncRequired, List<SyncChange> changes) {
+    }
+
+    /**
+     * What changed for the user since the token
+     *
+     * @param token from the previous response, or null on first launch
+     */
+    public SyncResponse changesSince(User user, String token) {
+        Long afterSeq = parseToken(token);
+        Window window = shardRouter.readPrimary(() -> {
+            Optional<SyncSequence> sequence = sequences.findById(SyncSequence.ID);
+            long lastSeq = sequence.map(SyncSequence::getLastSeq).orElse(0L);
+            long prunedThrough = sequence.map(SyncSequence::getPrunedThrough).orElse(0L);
+            if (afterSeq == null || afterSeq < prunedThrough || afterSeq > lastSeq) {
+                return new Window(lastSeq, true, List.of());
+            }
+            return new Window(lastSeq, false,
+                    changes.findForUser(user.getId(), afterSeq, lastSeq, PageRequest.of(0, maxChanges + 1)));
+        });
+        if (window.fullResyncRequired()) {
+            return SyncResponse.fullResync(String.valueOf(window.lastSeq()));
+        }
+
+        boolean hasMore = window.changes().size() > maxChanges;
+        List<SyncChange> page = hasMore ? window.changes().subList(0, maxChanges) : window.changes();
+        long nextSeq = hasMore ? page.get(page.size() - 1).getSeq() : window.lastSeq();
+
+        Set<Long> chatIds = new LinkedHashSet<>();
+        Map<Long, Set<Long>> messageIdsByChat = new LinkedHashMap<>();
+        Map<String, SyncResponse.ReadState> readStates = new LinkedHashMap<>();
+        Set<Long> lessonIds = new LinkedHashSet<>();
+        for (SyncChange change : page) {
+            switch (change.getEntityType()) {
+                case CHAT -> chatIds.add(change.getEntityId());
+                case MESSAGE -> messageIdsByChat.computeIfAbsent(change.getChatId(), id -> new LinkedHashSet<>())
+                        .add(change.getEntityId());
+                case READ_STATE -> readStates.merge(change.getChatId() + ":" + change.getEntityId(),
+                        new SyncResponse.ReadState(change.getChatId(), change.getEntityId(), change.getChangedAt()),
+                        (a, b) -> a.readAt().isAfter(b.readAt()) ? a : b);
+                case LESSON -> lessonIds.add(change.getEntityId());
+            }
+        }
+
+        List<SyncResponse.Tombstone> tombstones = new ArrayList<>();
+        return new SyncResponse(String.valueOf(nextSeq), false, hasMore, loadChats(chatIds, tombstones),
+                loadMessages(messageIdsByChat), new ArrayList<>(readStates.values()),
+                loadLessons(lessonIds, tombstones), tombstones);
+    }
+
+    // Chats are read one by one from wherever they live; a warm launch only touches a few
+    private List<ChatView> loadChats(Set<Long> chatIds, List<SyncResponse.Tombstone> tombstones) {
+        List<ChatView> views = new ArrayList<>();
+        for (Long chatId : chatIds) {
+            Optional<Chat> chat = shardRouter.readChat(chatId, () -> chatRepository.findWithParticipantsById(chatId));
+            if (chat.isEmpty()) {
+                tombstones.add(new SyncResponse.Tombstone("CHAT", chatId, "deleted"));
+            } else if (!chat.get().isActive()) {
+                tombstones.add(new SyncResponse.Tombstone("CHAT", chatId, "inactive"));
+            } else {
+                views.add(ChatView.from(chat.get()));
+            }
+        }
+        return views;
+    }
+
+    private List<MessageView> loadMessages(Map<Long, Set<Long>> messageIdsByChat) {
+        List<MessageView> views = new ArrayList<>();
+        messageIdsByChat.forEach((chatId, messageIds) ->
+                views.addAll(shardRouter.readChat(chatId, () -> messageRepository.findViewsByIdIn(messageIds))));
+        return views;
+    }
+
+    private List<LessonView> loadLessons(Set<Long> lessonIds, List<SyncResponse.Tombstone> tombstones) {
+        if (lessonIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Lesson> lessons = shardRouter.readPrimary(() -> lessonRepository.findWithTeacherByIdIn(lessonIds))
+                .stream().collect(Collectors.toMap(Lesson::getId, Function.identity()));
+
+        List<LessonView> views = new ArrayList<>();
+        for (Long lessonId : lessonIds) {
+            Lesson lesson = lessons.get(lessonId);
+            if (lesson == null) {
+                tombstones.add(new SyncResponse.Tombstone("LESSON", lessonId, "deleted"));
+            } else if (lesson.isCancelled()) {
+                tombstones.add(new SyncResponse.Tombstone("LESSON", lessonId, "cancelled"));
+            } else {
+                views.add(LessonView.from(lesson));
+            }
+        }
+        return views;
+    }
+
+    private static Long parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid change token");
+        }
+    }
+
+    // Disabled unless notebridge.sync.prune-cron is set
+    @Scheduled(cron = "${notebridge.sync.prune-cron:-}")
+    public void scheduledPrune() {
+        try {
+            long pruned = prune();
+            if (pruned > 0) {
+                System.out.println("Pruned " + pruned + " sync changes");
+            }
+        } catch (Exception e) {
+            System.err.println("Sync change pruning failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delete changes older than the retention period
+     *
+     * @return the number of changes deleted
+     */
+    public long prune() {
+        Long throughSeq = changes.findLastSeqBefore(LocalDateTime.now().minus(retention));
+        if (throughSeq == null) {
+            return 0;
+        }
+        // Before deleting, so clients holding older tokens are sent to a full resync from now on
+        sequences.advancePrunedThrough(SyncSequence.ID, throughSeq);
+
+        long pruned = 0;
+        while (true) {
+            List<Long> ids = changes.findIdsThroughSeq(throughSeq, PageRequest.of(0, pruneBatchSize));
+            if (ids.isEmpty()) {
+                return pruned;
+            }
+            changes.deleteAllByIdInBatch(ids);
+            pruned += ids.size();
+        }
+    }
+}
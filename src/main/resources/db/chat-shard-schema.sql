@@ -0,0 +1,58 @@
+-- Tables on each chat shard, created at startup when notebridge.sharding.chats.initialize-schema=true.
+--
+-- Chat ids come from the chat directory on the primary. Message ids start at a different
+-- offset on each shard (${message_id_start}), so a chat keeps its message ids when it moves.
+--
+-- Chats and messages refer to users by id, but queries join the users table for names, so a
+-- shard needs one: a view over the primary schema when the shards are schemas on the same
+-- server (CREATE VIEW users AS SELECT * FROM notebridge.users), otherwise a copy kept by
+-- replication (replicate-do-table=notebridge.users).
+
+CREATE TABLE IF NOT EXISTS chats (
+    id BIGINT NOT NULL PRIMARY KEY,
+    teacher_id BIGINT NOT NULL,
+    student_id BIGINT NOT NULL,
+    subject VARCHAR(200) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    last_message_at DATETIME(6) NOT NULL,
+    is_active BOOLEAN NOT NULL,
+    UNIQUE KEY uk_chats_participants (teacher_id, student_id),
+    KEY idx_chats_student (student_id)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    content VARCHAR(1000) NOT NULL,
+    sent_at DATETIME(6) NOT NULL,
+    is_read BOOLEAN NOT NULL,
+    KEY idx_messages_chat_sent (chat_id, sent_at),
+    CONSTRAINT fk_messages_chat FOREIGN KEY (chat_id) REFERENCES chats (id)
+) AUTO_INCREMENT = ${message_id_start};
+
+-- Events recorded by chat writes are committed on the shard and relayed from there
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    event_id VARCHAR(36) NOT NULL,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id VARCHAR(64) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload TEXT,
+    status VARCHAR(20) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    available_at DATETIME(6) NOT NULL,
+    attempts INT NOT NULL,
+    last_error VARCHAR(1000),
+    published_at DATETIME(6),
+    UNIQUE KEY uk_outbox_events_event_id (event_id),
+    KEY idx_outbox_events_status_available (status, available_at)
+);
+
+CREATE TABLE IF NOT EXISTS outbox_deliveries (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    event_id VARCHAR(36) NOT NULL,
+    handler VARCHAR(100) NOT NULL,
+    delivered_at DATETIME(6) NOT NULL,
+    UNIQUE KEY uk_outbox_deliveries_event_handler (event_id, handler)
+);
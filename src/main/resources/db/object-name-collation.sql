@@ -0,0 +1,8 @@
+-- Binary collation and indexes for object names, which file reconciliation pages through in
+-- storage listing order. Hibernate's schema update creates these for new tables but doesn't
+-- change an existing column, so run this once on a database created before them.
+
+ALTER TABLE files MODIFY object_name VARCHAR(255) COLLATE utf8mb4_bin NOT NULL;
+ALTER TABLE file_variants MODIFY object_name VARCHAR(255) COLLATE utf8mb4_bin NOT NULL;
+CREATE INDEX idx_files_object_name ON files (object_name);
+CREATE INDEX idx_file_variants_object_name ON file_variants (object_name);
@@ -2,8 +2,13 @@ package com.notebridge.project;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
+@ActiveProfiles("test")
+// The second-level cache is JVM-wide, see SecondLevelCacheTest
+@DirtiesContext
 class SbNotebridgeApplicationTests {
 
 	@Test
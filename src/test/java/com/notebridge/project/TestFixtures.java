@@ -0,0 +1,44 @@
+package com.notebridge.project;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Unsaved entities for seeding the @SpringBootTest databases
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    public static User user(String username, User.Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@notebridge.test");
+        user.setPassword("not-a-real-hash");
+        user.setRole(role);
+        return user;
+    }
+
+    // A week from now, so it shows up as upcoming
+    public static Lesson lesson(User teacher) {
+        Lesson lesson = new Lesson();
+        lesson.setTeacher(teacher);
+        lesson.setDescription("Piano for beginners");
+        lesson.setLocation(Lesson.LocationType.ONLINE);
+        lesson.setStartTime(LocalDateTime.now().plusDays(7));
+        lesson.setEndTime(LocalDateTime.now().plusDays(7).plusHours(1));
+        return lesson;
+    }
+
+    public static Chat chat(User teacher, User student) {
+        Chat chat = new Chat();
+        chat.setTeacher(teacher);
+        chat.setStudent(student);
+        chat.setSubject("Lessons");
+        return chat;
+    }
+}
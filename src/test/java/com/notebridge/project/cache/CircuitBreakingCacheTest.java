@@ -0,0 +1,128 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakingCacheTest {
+
+    private static final long OPEN_MILLIS = 100;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FlakyCache redis = new FlakyCache();
+    private final CacheCircuitBreaker circuitBreaker = new CacheCircuitBreaker(3, OPEN_MILLIS, meterRegistry);
+    private final CircuitBreakingCache cache = new CircuitBreakingCache(redis, circuitBreaker, 100, 60_000, meterRegistry);
+
+    @Test
+    void outageIsServedLocallyAndStopsHittingRedis() {
+        AtomicInteger loads = new AtomicInteger();
+        redis.down = true;
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("catalogue", cache.get("all", () -> {
+                loads.incrementAndGet();
+                return "catalogue";
+            }));
+        }
+
+        assertEquals(CacheCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        // One database load, then local hits; Redis only saw the calls that opened the circuit
+        assertEquals(1, loads.get());
+        assertEquals(3, redis.calls.get());
+    }
+
+    @Test
+    void halfOpenProbeClosesTheCircuitWhenRedisIsBack() throws Exception {
+        redis.down = true;
+        for (int i = 0; i < 3; i++) {
+            cache.get("key");
+        }
+        assertEquals(CacheCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // A failed probe opens it again
+        Thread.sleep(OPEN_MILLIS + 20);
+        cache.get("key");
+        assertEquals(CacheCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        redis.down = false;
+        Thread.sleep(OPEN_MILLIS + 20);
+        cache.get("key");
+        assertEquals(CacheCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void evictionsDuringOutageAreReplayed() throws Exception {
+        cache.put("lesson:1", "old description");
+        redis.down = true;
+        for (int i = 0; i < 3; i++) {
+            cache.evict("lesson:1");
+        }
+
+        redis.down = false;
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertNull(cache.get("lesson:1"), "Entry evicted during the outage came back from Redis");
+    }
+
+    @Test
+    void loaderFailuresDoNotCountAgainstRedis() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RuntimeException.class, () -> cache.get("all", () -> {
+                throw new IllegalStateException("database down");
+            }));
+        }
+        assertEquals(CacheCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    // Behaves like Redis through Spring's exception translation: down means a connection failure
+    private static class FlakyCache extends ConcurrentMapCache {
+        volatile boolean down;
+        final AtomicInteger calls = new AtomicInteger();
+
+        FlakyCache() {
+            super("lessons");
+        }
+
+        private void check() {
+            calls.incrementAndGet();
+            if (down) {
+                throw new RedisConnectionFailureException("Unable to connect to Redis");
+            }
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            check();
+            return super.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            check();
+            return super.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            check();
+            super.put(key, value);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            check();
+            return super.evictIfPresent(key);
+        }
+
+        @Override
+        public void evict(Object key) {
+            check();
+            super.evict(key);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.notebridge.project.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Stands in for Redis: one store and one lock table shared by every "instance"
+    private final ConcurrentMapCache sharedStore = new ConcurrentMapCache("lessons");
+    private final InMemoryLock sharedLock = new InMemoryLock();
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void concurrentMissesAcrossInstancesRunOneLoad() throws Exception {
+        List<CoalescingCache> instances = List.of(cache(0), cache(0), cache(0));
+        AtomicInteger loads = new AtomicInteger();
+        Callable<String> slowQuery = () -> {
+            loads.incrementAndGet();
+            Thread.sleep(200);
+            return "catalogue";
+        };
+
+        int requests = 48;
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                CoalescingCache instance = instances.get(i % instances.size());
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return instance.get("all", slowQuery);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("catalogue", result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void hitsServeTheCachedValueAndRefreshNearExpiry() throws Exception {
+        ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+        CoalescingCache cache = new CoalescingCache(sharedStore, new JitteredTtl(Duration.ofMinutes(15), 0.1), sharedLock,
+                refreshExecutor, 1, Duration.ofSeconds(5), clock, meterRegistry);
+        AtomicInteger version = new AtomicInteger();
+        Callable<Integer> query = version::incrementAndGet;
+
+        assertEquals(1, cache.get("all", query));
+        // Far from expiry, a hit only refreshes if the random draw is astronomically small
+        assertEquals(1, cache.get("all", query));
+
+        // At the expiry XFetch refreshes whatever the draw; the hit still returns the cached value
+        clock.advance(Duration.ofMinutes(17));
+        assertEquals(1, cache.get("all", query));
+        refreshExecutor.shutdown();
+        assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, version.get());
+        assertEquals(2, cache.get("all", Integer.class));
+    }
+
+    @Test
+    void expiriesAreSpreadByJitter() {
+        JitteredTtl ttl = new JitteredTtl(Duration.ofMinutes(15), 0.1);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long millis = ttl.next().toMillis();
+            assertTrue(millis >= Duration.ofMinutes(15).toMillis() * 0.9 && millis <= Duration.ofMinutes(15).toMillis() * 1.1);
+            min = Math.min(min, millis);
+            max = Math.max(max, millis);
+        }
+        assertTrue(max - min > Duration.ofMinutes(1).toMillis(), "Expiries not spread: " + min + ".." + max);
+    }
+
+    private CoalescingCache cache(double earlyRefreshBeta) {
+        return new CoalescingCache(sharedStore, new JitteredTtl(Duration.ofMinutes(15), 0.1), sharedLock, Runnable::run,
+                earlyRefreshBeta, Duration.ofSeconds(5), clock, meterRegistry);
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static class InMemoryLock implements CacheLoadLock {
+        private final ConcurrentHashMap<String, String> held = new ConcurrentHashMap<>();
+
+        @Override
+        public String tryLock(String lockKey, Duration ttl) {
+            String token = UUID.randomUUID().toString();
+            return held.putIfAbsent(lockKey, token) == null ? token : null;
+        }
+
+        @Override
+        public void unlock(String lockKey, String token) {
+            held.remove(lockKey, token);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.notebridge.project.cache;
+
+import com.notebridge.project.model.User;
+import com.notebridge.project.response.UserSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionedRedisSerializerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void smileRoundTripIsSmallerThanJson() {
+        VersionedRedisSerializer smile = serializer(CacheValueCodecs.SMILE, -1);
+        List<UserSummary> users = users(20);
+
+        byte[] stored = smile.serialize(users);
+        assertEquals(VersionedRedisSerializer.MAGIC, stored[0]);
+        assertEquals(CacheValueCodecs.SMILE.getId(), stored[1]);
+        assertEquals(users, smile.deserialize(stored));
+
+        byte[] json = new GenericJackson2JsonRedisSerializer().serialize(users);
+        assertTrue(stored.length < json.length, "smile " + stored.length + " bytes, json " + json.length + " bytes");
+    }
+
+    @Test
+    void compressesAboveThreshold() {
+        VersionedRedisSerializer compressing = serializer(CacheValueCodecs.SMILE, 256);
+        List<UserSummary> users = users(200);
+
+        byte[] stored = compressing.serialize(users);
+        assertEquals(VersionedRedisSerializer.FLAG_LZ4, stored[2] & VersionedRedisSerializer.FLAG_LZ4);
+        assertTrue(stored.length < serializer(CacheValueCodecs.SMILE, -1).serialize(users).length);
+        assertEquals(users, compressing.deserialize(stored));
+
+        UserSummary small = users.get(0);
+        assertEquals(0, compressing.serialize(small)[2] & VersionedRedisSerializer.FLAG_LZ4);
+    }
+
+    @Test
+    void readsValuesWrittenWithAnotherCodecOrBeforeTheHeader() {
+        VersionedRedisSerializer smile = serializer(CacheValueCodecs.SMILE, 1024);
+        VersionedRedisSerializer json = serializer(CacheValueCodecs.JSON, 1024);
+        List<UserSummary> users = users(3);
+
+        assertEquals(users, smile.deserialize(json.serialize(users)));
+        assertEquals(users, json.deserialize(smile.serialize(users)));
+
+        byte[] legacy = new GenericJackson2JsonRedisSerializer().serialize(users);
+        assertEquals(users, smile.deserialize(legacy));
+    }
+
+    @Test
+    void unreadableValuesAreMisses() {
+        VersionedRedisSerializer smile = serializer(CacheValueCodecs.SMILE, 1024);
+
+        byte[] fromNewerBuild = smile.serialize(users(1));
+        fromNewerBuild[1] = 42;
+        assertNull(smile.deserialize(fromNewerBuild));
+
+        byte[] stored = smile.serialize(users(1));
+        byte[] truncated = Arrays.copyOf(stored, stored.length / 2);
+        assertNull(smile.deserialize(truncated));
+
+        assertEquals(1, meterRegistry.get("notebridge.cache.value.discarded").tag("reason", "unknown-codec").counter().count());
+        assertEquals(1, meterRegistry.get("notebridge.cache.value.discarded").tag("reason", "decode-failure").counter().count());
+    }
+
+    private VersionedRedisSerializer serializer(CacheValueCodec codec, int compressionThreshold) {
+        return new VersionedRedisSerializer("test", codec, compressionThreshold, 0, meterRegistry);
+    }
+
+    private static List<UserSummary> users(int count) {
+        List<UserSummary> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new UserSummary((long) i, "teacher" + i, "Ada", "Lovelace", "Piano", User.Role.TEACHER));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,179 @@
+package com.notebridge.project.outbox;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.OutboxEvent;
+import com.notebridge.project.model.User;
+import com.notebridge.project.repository.ChatRepository;
+import com.notebridge.project.repository.OutboxEventRepository;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.service.ChatService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.notebridge.project.TestFixtures.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        // Polled by hand below; retries are due immediately
+        "notebridge.outbox.poll-interval-ms=3600000",
+        "notebridge.outbox.backoff-ms=0"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// The second-level cache is JVM-wide, see SecondLevelCacheTest
+@DirtiesContext
+class OutboxRelayTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RecordingHandler recordingHandler;
+
+    @Autowired
+    private FlakyHandler flakyHandler;
+
+    private User teacher;
+    private Chat chat;
+
+    @BeforeAll
+    void seed() {
+        teacher = userRepository.save(user("outbox-teacher", User.Role.TEACHER));
+        User student = userRepository.save(user("outbox-student", User.Role.STUDENT));
+
+        Chat newChat = new Chat();
+        newChat.setTeacher(teacher);
+        newChat.setStudent(student);
+        newChat.setSubject("Scales");
+        chat = chatRepository.save(newChat);
+    }
+
+    @Test
+    void eventIsRolledBackWithTheMessage() {
+        int before = chatEvents().size();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            chatService.sendMessage(chat.getId(), teacher, "Never sent");
+            status.setRollbackOnly();
+        });
+        assertEquals(before, chatEvents().size());
+
+        chatService.sendMessage(chat.getId(), teacher, "Sent");
+        List<OutboxEvent> after = chatEvents();
+        assertEquals(before + 1, after.size());
+        assertEquals(OutboxEventTypes.MESSAGE_SENT, after.get(after.size() - 1).getEventType());
+    }
+
+    @Test
+    void failedHandlersAreRetriedWithoutRedeliveringToTheOthers() {
+        // Nothing left over from other tests, so the first failure hits this event
+        relay.poll();
+        flakyHandler.failuresLeft.set(1);
+        chatService.sendMessage(chat.getId(), teacher, "Practice the G major scale");
+        List<OutboxEvent> events = chatEvents();
+        String eventId = events.get(events.size() - 1).getEventId();
+
+        relay.poll();
+        OutboxEvent retried = outboxEventRepository.findById(events.get(events.size() - 1).getId()).orElseThrow();
+        assertEquals(OutboxEvent.Status.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+
+        relay.poll();
+        OutboxEvent published = outboxEventRepository.findById(retried.getId()).orElseThrow();
+        assertEquals(OutboxEvent.Status.PUBLISHED, published.getStatus());
+        assertNotNull(published.getPublishedAt());
+
+        // Delivered once to the handler that succeeded the first time, twice to the flaky one
+        assertEquals(1, recordingHandler.eventIds.stream().filter(eventId::equals).count());
+        assertEquals(2, flakyHandler.calls.stream().filter(eventId::equals).count());
+    }
+
+    private List<OutboxEvent> chatEvents() {
+        return outboxEventRepository.findByAggregateTypeAndAggregateIdOrderByIdAsc("chat", String.valueOf(chat.getId()));
+    }
+
+    @TestConfiguration
+    static class Handlers {
+
+        @Bean
+        RecordingHandler recordingHandler() {
+            return new RecordingHandler();
+        }
+
+        @Bean
+        FlakyHandler flakyHandler() {
+            return new FlakyHandler();
+        }
+    }
+
+    static class RecordingHandler implements OutboxEventHandler {
+        final List<String> eventIds = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public boolean handles(String eventType) {
+            return OutboxEventTypes.MESSAGE_SENT.equals(eventType);
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            eventIds.add(event.getEventId());
+        }
+    }
+
+    static class FlakyHandler implements OutboxEventHandler {
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        final List<String> calls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getName() {
+            return "flaky";
+        }
+
+        @Override
+        public boolean handles(String eventType) {
+            return OutboxEventTypes.MESSAGE_SENT.equals(eventType);
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            calls.add(event.getEventId());
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("search index unavailable");
+            }
+        }
+    }
+}
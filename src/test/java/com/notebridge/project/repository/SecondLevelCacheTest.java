@@ -0,0 +1,120 @@
+package com.notebridge.project.repository;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.sql.QueryCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.notebridge.project.TestFixtures.lesson;
+import static com.notebridge.project.TestFixtures.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// Hibernate's second-level cache manager is one per JVM, shared by every open context and closed with
+// any of them; closing this context after the class keeps other test classes' entities out of it
+@DirtiesContext
+class SecondLevelCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User teacher;
+    private User student;
+    private Chat chat;
+
+    @BeforeAll
+    void seed() {
+        teacher = userRepository.save(user("cache-teacher", User.Role.TEACHER));
+        student = userRepository.save(user("cache-student", User.Role.STUDENT));
+        lessonRepository.save(lesson(teacher));
+        lessonRepository.save(lesson(teacher));
+
+        Chat newChat = new Chat();
+        newChat.setTeacher(teacher);
+        newChat.setStudent(student);
+        newChat.setSubject("Lessons");
+        chat = chatRepository.save(newChat);
+
+        Message message = new Message();
+        message.setChat(chat);
+        message.setSender(teacher);
+        message.setContent("Welcome");
+        messageRepository.save(message);
+    }
+
+    @Test
+    void warmUserLookupsRunNoSql() {
+        userRepository.findByUsername("cache-student");
+
+        User byName = countingStatements(0, () -> userRepository.findByUsername("cache-student"));
+        assertEquals(student.getId(), byName.getId());
+
+        User byId = countingStatements(0, () -> userRepository.findById(student.getId()).orElseThrow());
+        assertEquals("cache-student", byId.getUsername());
+    }
+
+    @Test
+    void lessonQueryCacheIsInvalidatedByWrites() {
+        int before = lessonRepository.findByIsCancelledFalse().size();
+        countingStatements(0, lessonRepository::findByIsCancelledFalse);
+
+        lessonRepository.save(lesson(teacher));
+
+        QueryCounter.start();
+        List<Lesson> after = lessonRepository.findByIsCancelledFalse();
+        assertTrue(QueryCounter.stop().getTotal() > 0, "Cached lesson list survived an insert into lessons");
+        assertEquals(before + 1, after.size());
+    }
+
+    @Test
+    void bulkMarkAsReadInvalidatesCachedQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long timestampPuts = statistics.getUpdateTimestampsCachePutCount();
+
+        messageRepository.markMessagesAsRead(chat, student);
+
+        assertTrue(statistics.getUpdateTimestampsCachePutCount() > timestampPuts,
+                "Bulk update did not touch the update timestamps region");
+    }
+
+    private static <T> T countingStatements(int expected, Supplier<T> call) {
+        QueryCounter.start();
+        T result;
+        QueryCounter.Stats stats;
+        try {
+            result = call.get();
+        } finally {
+            stats = QueryCounter.stop();
+        }
+        assertEquals(expected, stats.getTotal(), () -> "Statements ran: " + stats.getExecutionsBySql().keySet());
+        return result;
+    }
+}
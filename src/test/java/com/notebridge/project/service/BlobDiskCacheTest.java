@@ -0,0 +1,132 @@
+package com.notebridge.project.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobDiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentMissesShareOneFetch() throws Exception {
+        BlobDiskCache cache = cache(1000, 1000);
+        AtomicInteger fetches = new AtomicInteger();
+        BlobDiskCache.Fetcher slowFetch = target -> {
+            fetches.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Files.write(target, new byte[100]);
+        };
+
+        int requests = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Path>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.getOrFetch("sha256/etude", slowFetch);
+                }));
+            }
+            start.countDown();
+            Path entry = results.get(0).get();
+            for (Future<Path> result : results) {
+                assertEquals(entry, result.get());
+            }
+            assertEquals(100, Files.size(entry));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, fetches.get());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(100, cache.getTotalBytes());
+    }
+
+    @Test
+    void failedFetchLeavesNothingBehind() throws Exception {
+        BlobDiskCache cache = cache(1000, 1000);
+
+        assertThrows(IOException.class, () -> cache.getOrFetch("sha256/gone", target -> {
+            Files.write(target, new byte[10]);
+            throw new IOException("No such object");
+        }));
+
+        assertEquals(0, cache.getEntryCount());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        // The next request tries again
+        assertEquals(10, Files.size(cache.getOrFetch("sha256/gone", target -> Files.write(target, new byte[10]))));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        BlobDiskCache cache = cache(250, 250);
+        Path first = fill(cache, "sha256/first", 100);
+        Path second = fill(cache, "sha256/second", 100);
+        // A hit makes first the most recently used
+        cache.getOrFetch("sha256/first", target -> fail("Cached entry fetched again"));
+
+        Path third = fill(cache, "sha256/third", 100);
+
+        assertEquals(200, cache.getTotalBytes());
+        assertTrue(Files.exists(first));
+        assertFalse(Files.exists(second));
+        assertTrue(Files.exists(third));
+    }
+
+    @Test
+    void staysWithinItsSizeWhenEntriesAreLarge() throws Exception {
+        // max-entry-bytes above max-size-bytes is clamped, so the largest cacheable entry still fits
+        BlobDiskCache cache = cache(250, 1000);
+        assertTrue(cache.isCacheable(250));
+        assertFalse(cache.isCacheable(251));
+
+        fill(cache, "sha256/small", 100);
+        Path large = fill(cache, "sha256/large", 250);
+
+        assertEquals(250, cache.getTotalBytes());
+        assertEquals(1, cache.getEntryCount());
+        assertTrue(Files.exists(large));
+    }
+
+    @Test
+    void restartKeepsEntriesWithinTheNewSize() throws Exception {
+        BlobDiskCache cache = cache(1000, 1000);
+        fill(cache, "sha256/older", 300);
+        fill(cache, "sha256/newer", 300);
+
+        BlobDiskCache restarted = cache(400, 400);
+
+        assertEquals(1, restarted.getEntryCount());
+        assertEquals(300, restarted.getTotalBytes());
+    }
+
+    private BlobDiskCache cache(long maxBytes, long maxEntryBytes) throws IOException {
+        return new BlobDiskCache(directory.toString(), maxBytes, maxEntryBytes, new SimpleMeterRegistry());
+    }
+
+    private static Path fill(BlobDiskCache cache, String objectName, int size) throws IOException {
+        return cache.getOrFetch(objectName, target -> Files.write(target, new byte[size]));
+    }
+}
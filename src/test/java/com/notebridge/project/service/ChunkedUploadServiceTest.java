@@ -0,0 +1,145 @@
+package com.notebridge.project.service;
+
+import com.notebridge.project.outbox.OutboxPublisher;
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.storage.LocalFileSystemStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChunkedUploadServiceTest {
+
+    private static final long TTL_MILLIS = 60_000;
+
+    @TempDir
+    Path spoolDirectory;
+
+    @TempDir
+    Path storageRoot;
+
+    private ChunkedUploadService chunkedUploadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Local filesystem backend stands in for Firebase storage
+        FileStorageService fileStorageService = new FileStorageService(
+                new LocalFileSystemStorageBackend(storageRoot.toString()),
+                mock(FileMetaDataRepository.class), mock(UserRepository.class), mock(LessonRepository.class),
+                mock(OutboxPublisher.class), mock(PlatformTransactionManager.class));
+        chunkedUploadService = new ChunkedUploadService(fileStorageService, spoolDirectory.toString(), 1024 * 1024, TTL_MILLIS);
+    }
+
+    @Test
+    void chunksAreReassembledAndStreamedToStorage() throws Exception {
+        byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+
+        ChunkedUploadService.UploadSession session =
+                chunkedUploadService.startUpload("student0", "sonata.pdf", "application/pdf", content.length, null);
+        String uploadId = session.getUploadId();
+
+        assertEquals(100_000, chunkedUploadService.appendChunk(uploadId, "student0", 0, slice(content, 0, 100_000)));
+        // A client retrying the same chunk after a dropped connection is accepted
+        assertEquals(100_000, chunkedUploadService.appendChunk(uploadId, "student0", 0, slice(content, 0, 100_000)));
+        assertEquals(300_000, chunkedUploadService.appendChunk(uploadId, "student0", 100_000, slice(content, 100_000, 300_000)));
+
+        assertNotNull(chunkedUploadService.completeUpload(uploadId, "student0"));
+
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        Path stored = storageRoot.resolve(FileStorageService.CONTENT_PREFIX + hash);
+        assertArrayEquals(content, Files.readAllBytes(stored));
+        // Spool files are cleaned up once the upload is stored
+        try (var leftovers = Files.list(spoolDirectory)) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    void rejectsChunksThatSkipAhead() throws Exception {
+        ChunkedUploadService.UploadSession session =
+                chunkedUploadService.startUpload("student0", "recording.mp3", null, 10, null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> chunkedUploadService.appendChunk(session.getUploadId(), "student0", 5, slice(new byte[5], 0, 5)));
+        assertEquals(0, chunkedUploadService.getReceivedBytes(session.getUploadId(), "student0"));
+    }
+
+    @Test
+    void refusesToCompleteAnIncompleteUpload() throws Exception {
+        ChunkedUploadService.UploadSession session =
+                chunkedUploadService.startUpload("student0", "recording.mp3", null, 10, null);
+        chunkedUploadService.appendChunk(session.getUploadId(), "student0", 0, slice(new byte[4], 0, 4));
+
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.completeUpload(session.getUploadId(), "student0"));
+        try (var stored = Files.list(storageRoot)) {
+            assertEquals(0, stored.count());
+        }
+    }
+
+    @Test
+    void onlyTheOwnerCanUseAnUpload() throws Exception {
+        String uploadId = chunkedUploadService.startUpload("student0", "recording.mp3", null, 10, null).getUploadId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> chunkedUploadService.appendChunk(uploadId, "student1", 0, slice(new byte[10], 0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.getReceivedBytes(uploadId, "student1"));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.completeUpload(uploadId, "student1"));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.abortUpload(uploadId, "student1"));
+        assertEquals(0, chunkedUploadService.getReceivedBytes(uploadId, "student0"));
+    }
+
+    @Test
+    void abandonedUploadsExpire() throws Exception {
+        String abandoned = chunkedUploadService.startUpload("student0", "recording.mp3", null, 10, null).getUploadId();
+        chunkedUploadService.appendChunk(abandoned, "student0", 0, slice(new byte[4], 0, 4));
+        String active = chunkedUploadService.startUpload("student0", "sonata.pdf", null, 10, null).getUploadId();
+        FileTime longAgo = FileTime.from(Instant.now().minusMillis(2 * TTL_MILLIS));
+        for (String file : new String[]{abandoned + ".part", abandoned + ".properties"}) {
+            Files.setLastModifiedTime(spoolDirectory.resolve(file), longAgo);
+        }
+        // Not ours, e.g. a multipart temp file
+        Path unrelated = Files.createFile(spoolDirectory.resolve("upload_1234.tmp"));
+        Files.setLastModifiedTime(unrelated, longAgo);
+
+        assertEquals(1, chunkedUploadService.expireAbandonedUploads());
+
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.getReceivedBytes(abandoned, "student0"));
+        assertFalse(Files.exists(spoolDirectory.resolve(abandoned + ".part")));
+        assertEquals(0, chunkedUploadService.getReceivedBytes(active, "student0"));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void uploadsAbandonedBeforeARestartExpireAtStartup() throws Exception {
+        String uploadId = chunkedUploadService.startUpload("student0", "recording.mp3", null, 10, null).getUploadId();
+        FileTime longAgo = FileTime.from(Instant.now().minusMillis(2 * TTL_MILLIS));
+        Files.setLastModifiedTime(spoolDirectory.resolve(uploadId + ".part"), longAgo);
+        Files.setLastModifiedTime(spoolDirectory.resolve(uploadId + ".properties"), longAgo);
+
+        setUp();
+
+        try (var leftovers = Files.list(spoolDirectory)) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    private static ByteArrayInputStream slice(byte[] content, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+    }
+}
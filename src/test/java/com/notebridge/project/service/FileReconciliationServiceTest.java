@@ -0,0 +1,172 @@
+package com.notebridge.project.service;
+
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.response.ReconciliationReport;
+import com.notebridge.project.storage.StorageBackend;
+import com.notebridge.project.storage.StoredObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FileReconciliationServiceTest {
+
+    private final FileMetaDataRepository repo = mock(FileMetaDataRepository.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final List<String> fileNames = new ArrayList<>();
+    private final List<String> variantNames = new ArrayList<>();
+    private final InMemoryStorage storage = new InMemoryStorage();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Keyset pages in binary order, as MySQL returns them under utf8mb4_bin
+        when(repo.findFileObjectNamesAfter(anyString(), anyInt())).thenAnswer(invocation -> page(fileNames,
+                invocation.getArgument(0), invocation.getArgument(1)));
+        when(repo.findVariantObjectNamesAfter(anyString(), anyInt())).thenAnswer(invocation -> page(variantNames,
+                invocation.getArgument(0), invocation.getArgument(1)));
+        when(fileStorageService.deleteContentIfUnreferenced(anyString())).thenAnswer(invocation ->
+                storage.delete(FileStorageService.CONTENT_PREFIX + invocation.getArgument(0)));
+        when(repo.deleteByObjectNames(any())).thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+    }
+
+    @Test
+    void compareBinaryOrdersByCodePointNotUtf16Unit() {
+        // U+1F3B5 is a surrogate pair, which String.compareTo puts before U+FFFD
+        assertTrue("�".compareTo("🎵") > 0);
+        assertTrue(FileReconciliationService.compareBinary("�", "🎵") < 0);
+        assertTrue(FileReconciliationService.compareBinary("sha256-legacy", "sha256/a") < 0);
+        assertTrue(FileReconciliationService.compareBinary("sha256/a", "sha256/ab") < 0);
+        assertEquals(0, FileReconciliationService.compareBinary("sha256/🎵", "sha256/🎵"));
+    }
+
+    @Test
+    void mergeJoinFindsOrphansAndMissingObjects() throws Exception {
+        store("sha256-legacy", Duration.ofHours(2));
+        store("sha256/a", Duration.ofHours(2));
+        store("sha256/old-orphan", Duration.ofHours(2));
+        store("sha256/new-orphan", Duration.ZERO);
+        store("sha256/unlisted", Duration.ofHours(2));
+        store("sha256/🎵", Duration.ofHours(2));
+        store("sha256/�", Duration.ofHours(2));
+        storage.unlisted = "sha256/unlisted";
+        // Deduplicated uploads repeat a name, and a name may be referenced from both tables
+        fileNames.addAll(List.of("sha256/�", "sha256/a", "sha256/a", "sha256-legacy", "sha256/🎵",
+                "sha256/missing", "sha256/recent-upload", "sha256/unlisted"));
+        variantNames.addAll(List.of("sha256/🎵", "sha256/a", "sha256/missing"));
+        when(repo.findObjectNamesReferencedSince(any(), any())).thenReturn(List.of("sha256/recent-upload"));
+
+        ReconciliationReport report = service().reconcile(false);
+
+        // Matched names, including the ones String.compareTo would order differently, are neither
+        assertEquals(List.of("sha256/old-orphan"), report.getOrphanedObjectSample());
+        assertNull(storage.stat("sha256/old-orphan"));
+        assertNotNull(storage.stat("sha256/new-orphan"));
+        // Only the row whose object is really gone and that is older than the grace period
+        assertEquals(List.of("sha256/missing"), report.getMissingObjectSample());
+        verify(repo).deleteByObjectNames(List.of("sha256/missing"));
+        assertEquals(1, report.getMetadataRowsDeleted());
+    }
+
+    @Test
+    void supersededPicturesAreDeletedBeforeTheMerge() throws Exception {
+        when(repo.findSupersededProfilePictureIds(0, 2)).thenReturn(List.of(3));
+        when(repo.findSupersededLessonPictureIds(0, 2)).thenReturn(List.of(5, 8));
+        when(repo.findSupersededLessonPictureIds(8, 2)).thenReturn(List.of(9));
+        when(repo.deleteByIds(any())).thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+
+        ReconciliationReport report = service().reconcile(false);
+
+        assertEquals(1, report.getSupersededProfilePictures());
+        assertEquals(3, report.getSupersededLessonPictures());
+        verify(repo).deleteByIds(List.of(3));
+        verify(repo).deleteByIds(List.of(5, 8));
+        verify(repo).deleteByIds(List.of(9));
+        assertEquals(4, report.getMetadataRowsDeleted());
+    }
+
+    @Test
+    void refusesToRunOnANonBinaryCollation() {
+        when(repo.findObjectNameCollations()).thenReturn(List.of("utf8mb4_bin", "utf8mb4_0900_ai_ci"));
+
+        assertThrows(IllegalStateException.class, () -> service().reconcile(true));
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    void dryRunDeletesNothing() throws Exception {
+        store("sha256/old-orphan", Duration.ofHours(2));
+        fileNames.add("sha256/missing");
+
+        ReconciliationReport report = service().reconcile(true);
+
+        assertEquals(1, report.getOrphanedObjects());
+        assertEquals(1, report.getMissingObjects());
+        assertNotNull(storage.stat("sha256/old-orphan"));
+        verify(repo, never()).deleteByObjectNames(any());
+    }
+
+    private FileReconciliationService service() {
+        return new FileReconciliationService(storage, repo, fileStorageService, 2, 1000, 60, true);
+    }
+
+    private static List<String> page(List<String> names, String after, int limit) {
+        return names.stream()
+                .distinct()
+                .sorted(FileReconciliationService::compareBinary)
+                .filter(name -> FileReconciliationService.compareBinary(name, after) > 0)
+                .limit(limit)
+                .toList();
+    }
+
+    private void store(String objectName, Duration age) {
+        storage.objects.put(objectName, new StoredObject(objectName, null, 1, Instant.now().minus(age)));
+    }
+
+    // Lists in binary order like the real backends; names need not be valid on the local filesystem
+    private static class InMemoryStorage implements StorageBackend {
+        private final Map<String, StoredObject> objects = new TreeMap<>(FileReconciliationService::compareBinary);
+        // Left out of the listing but still in storage, like an object a paged listing skipped
+        private String unlisted;
+
+        @Override
+        public void write(String objectName, String contentType, InputStream content) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public StoredObject stat(String objectName) {
+            return objects.get(objectName);
+        }
+
+        @Override
+        public void read(String objectName, long start, long length, OutputStream out) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean delete(String objectName) {
+            return objects.remove(objectName) != null;
+        }
+
+        @Override
+        public Iterator<StoredObject> list() {
+            return objects.values().stream()
+                    .filter(object -> !object.getObjectName().equals(unlisted))
+                    .toList().iterator();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.notebridge.project.service;
+
+import com.google.cloud.storage.StorageException;
+import com.notebridge.project.model.FileMetaData;
+import com.notebridge.project.outbox.OutboxPublisher;
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.FileResponse;
+import com.notebridge.project.storage.LocalFileSystemStorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FileStorageServiceTest {
+
+    private static final byte[] SCORE = "%PDF-1.7 Etude in E minor".getBytes(StandardCharsets.UTF_8);
+    private static final String SCORE_HASH = sha256(SCORE);
+
+    @TempDir
+    Path storageRoot;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private final FileMetaDataRepository repo = mock(FileMetaDataRepository.class);
+    private final OutboxPublisher outboxPublisher = mock(OutboxPublisher.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    // Stands in for the files table: the rows saved so far
+    private final List<FileMetaData> rows = new ArrayList<>();
+    private final AtomicInteger storageWrites = new AtomicInteger();
+    private LocalFileSystemStorageBackend storage;
+    private BlobDiskCache blobDiskCache;
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Reads of a missing object fail the way the Firebase client does
+        storage = new LocalFileSystemStorageBackend(storageRoot.toString()) {
+            @Override
+            public void write(String objectName, String contentType, InputStream content) throws IOException {
+                storageWrites.incrementAndGet();
+                super.write(objectName, contentType, content);
+            }
+
+            @Override
+            public void read(String objectName, long start, long length, OutputStream out) throws IOException {
+                if (stat(objectName) == null) {
+                    throw new StorageException(404, "No such object: " + objectName);
+                }
+                super.read(objectName, start, length, out);
+            }
+        };
+        blobDiskCache = new BlobDiskCache(cacheDirectory.toString(), 1000, 100, new SimpleMeterRegistry());
+        fileStorageService = new FileStorageService(storage, repo, mock(UserRepository.class),
+                mock(LessonRepository.class), outboxPublisher, transactionManager);
+        ReflectionTestUtils.setField(fileStorageService, "blobDiskCache", blobDiskCache);
+
+        when(repo.save(any(FileMetaData.class))).thenAnswer(invocation -> {
+            FileMetaData row = invocation.getArgument(0);
+            row.setId(rows.size() + 1);
+            rows.add(row);
+            return row;
+        });
+        // Rolling back takes the row saved in the transaction with it
+        doAnswer(invocation -> rows.remove(rows.size() - 1)).when(transactionManager).rollback(any());
+        when(repo.countByContentHash(anyString())).thenAnswer(invocation -> (long) idsByContentHash(invocation.getArgument(0)).size());
+        when(repo.lockIdsByContentHash(anyString())).thenAnswer(invocation -> idsByContentHash(invocation.getArgument(0)));
+    }
+
+    @Test
+    void identicalUploadsShareOneStoredObject() throws Exception {
+        String first = fileStorageService.uploadFile(new MockMultipartFile("file", "etude.pdf", "application/pdf", SCORE));
+        String second = fileStorageService.uploadFile(new MockMultipartFile("file", "copy of etude.pdf", "application/pdf", SCORE));
+
+        assertNotEquals(first, second);
+        assertEquals(2, rows.size());
+        assertEquals(FileStorageService.CONTENT_PREFIX + SCORE_HASH, rows.get(0).getObjectName());
+        assertEquals(rows.get(0).getObjectName(), rows.get(1).getObjectName());
+        assertEquals(SCORE.length, rows.get(1).getSize());
+        assertEquals(1, storageWrites.get());
+        assertArrayEquals(SCORE, Files.readAllBytes(storageRoot.resolve(rows.get(0).getObjectName())));
+    }
+
+    @Test
+    void contentIsDeletedWithItsLastReference() throws Exception {
+        fileStorageService.uploadFile(new MockMultipartFile("file", "etude.pdf", "application/pdf", SCORE));
+        fileStorageService.uploadFile(new MockMultipartFile("file", "copy of etude.pdf", "application/pdf", SCORE));
+
+        rows.remove(0);
+        assertFalse(fileStorageService.deleteContentIfUnreferenced(SCORE_HASH));
+        assertNotNull(storage.stat(FileStorageService.CONTENT_PREFIX + SCORE_HASH));
+
+        rows.remove(0);
+        assertTrue(fileStorageService.deleteContentIfUnreferenced(SCORE_HASH));
+        assertNull(storage.stat(FileStorageService.CONTENT_PREFIX + SCORE_HASH));
+    }
+
+    @Test
+    void failedUploadOnlyRemovesContentNobodyElseReferences() throws Exception {
+        fileStorageService.uploadFile(new MockMultipartFile("file", "etude.pdf", "application/pdf", SCORE));
+        doThrow(new IllegalStateException("Outbox unavailable")).when(outboxPublisher).publish(any(), any(), any(), any());
+
+        assertThrows(IllegalStateException.class, () -> fileStorageService.uploadFile(
+                new MockMultipartFile("file", "copy of etude.pdf", "application/pdf", SCORE)));
+        assertNotNull(storage.stat(FileStorageService.CONTENT_PREFIX + SCORE_HASH));
+
+        rows.clear();
+        assertThrows(IllegalStateException.class, () -> fileStorageService.uploadFile(
+                new MockMultipartFile("file", "etude.pdf", "application/pdf", SCORE)));
+        assertNull(storage.stat(FileStorageService.CONTENT_PREFIX + SCORE_HASH));
+    }
+
+    @Test
+    void contentIsStoredBeforeTheTransactionStarts() throws Exception {
+        List<String> events = new ArrayList<>();
+        storage = spy(storage);
+        doAnswer(invocation -> {
+            events.add("write");
+            return invocation.callRealMethod();
+        }).when(storage).write(anyString(), any(), any());
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            events.add("begin");
+            return null;
+        });
+        fileStorageService = new FileStorageService(storage, repo, mock(UserRepository.class),
+                mock(LessonRepository.class), outboxPublisher, transactionManager);
+
+        fileStorageService.uploadFile(new MockMultipartFile("file", "etude.pdf", "application/pdf", SCORE));
+
+        assertEquals(List.of("write", "begin"), events);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void contentDeletedWhileUploadingIsWrittenAgain() throws Exception {
+        fileStorageService.uploadFile(new MockMultipartFile("file", "etude.pdf", "application/pdf", SCORE));
+        // The only other reference goes, and its content with it, after the upload found the object stored
+        when(repo.save(any(FileMetaData.class))).thenAnswer(invocation -> {
+            rows.clear();
+            assertTrue(fileStorageService.deleteContentIfUnreferenced(SCORE_HASH));
+            FileMetaData row = invocation.getArgument(0);
+            rows.add(row);
+            return row;
+        });
+
+        fileStorageService.uploadFile(new MockMultipartFile("file", "copy of etude.pdf", "application/pdf", SCORE));
+
+        assertEquals(2, storageWrites.get());
+        assertArrayEquals(SCORE, Files.readAllBytes(storageRoot.resolve(FileStorageService.CONTENT_PREFIX + SCORE_HASH)));
+    }
+
+    @Test
+    void retrievedFilesAreServedFromTheDiskCache() throws Exception {
+        store("sha256/scales", 50, "scales.pdf");
+
+        assertEquals(50, fileStorageService.retrieveFile("scales").getFileContent().length);
+        storage.delete("sha256/scales");
+        FileResponse cached = fileStorageService.retrieveFile("scales");
+
+        assertEquals("scales.pdf", cached.getFileName());
+        assertEquals(50, cached.getFileContent().length);
+        assertEquals(1, blobDiskCache.getEntryCount());
+    }
+
+    @Test
+    void filesAboveTheEntryLimitBypassTheDiskCache() throws Exception {
+        store("sha256/recital", 500, "recital.mp4");
+
+        assertEquals(500, fileStorageService.retrieveFile("recital").getFileContent().length);
+        assertEquals(0, blobDiskCache.getEntryCount());
+    }
+
+    @Test
+    void missingObjectIsReportedAsNoFileFound() throws Exception {
+        FileMetaData metaData = new FileMetaData(1, "lost", "sha256/lost", LocalDateTime.now());
+        metaData.setSize(10L);
+        when(repo.findWithVariantsByUniqueId("lost")).thenReturn(metaData);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> fileStorageService.retrieveFile("lost"));
+        assertTrue(e.getMessage().startsWith("No file found"));
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.retrieveFile("unknown"));
+        assertEquals(0, blobDiskCache.getEntryCount());
+    }
+
+    private List<Integer> idsByContentHash(String contentHash) {
+        return rows.stream().filter(row -> contentHash.equals(row.getContentHash())).map(FileMetaData::getId).toList();
+    }
+
+    private void store(String objectName, int size, String originalFilename) throws IOException {
+        storage.write(objectName, null, new ByteArrayInputStream(new byte[size]));
+        String fileId = objectName.substring(FileStorageService.CONTENT_PREFIX.length());
+        FileMetaData metaData = new FileMetaData(1, fileId, objectName, LocalDateTime.now());
+        metaData.setOriginalFilename(originalFilename);
+        metaData.setSize((long) size);
+        when(repo.findWithVariantsByUniqueId(fileId)).thenReturn(metaData);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
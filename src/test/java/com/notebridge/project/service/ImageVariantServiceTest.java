@@ -0,0 +1,132 @@
+package com.notebridge.project.service;
+
+import com.notebridge.project.model.FileMetaData;
+import com.notebridge.project.model.ImageVariant;
+import com.notebridge.project.repository.FileMetaDataRepository;
+import com.notebridge.project.storage.LocalFileSystemStorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path storageRoot;
+
+    private final FileMetaDataRepository repo = mock(FileMetaDataRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LocalFileSystemStorageBackend storage;
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new LocalFileSystemStorageBackend(storageRoot.toString());
+        imageVariantService = new ImageVariantService(storage, repo, mock(PlatformTransactionManager.class), meterRegistry,
+                1, 10, 1024 * 1024, 40_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.destroy();
+    }
+
+    @Test
+    void everyVariantIsGeneratedAndRecorded() throws Exception {
+        FileMetaData picture = picture("portrait", "abc", png(600, 400, BufferedImage.TYPE_INT_RGB));
+
+        imageVariantService.generateVariants("portrait");
+
+        Map<String, ImageVariant> variants = picture.getVariants();
+        assertEquals(ImageVariantService.VARIANT_WIDTHS.keySet(), variants.keySet());
+        assertEquals(128, variants.get("thumbnail").getWidth());
+        // Never upscaled
+        assertEquals(600, variants.get("full").getWidth());
+
+        ImageVariant thumbnail = variants.get("thumbnail");
+        assertEquals("variants/abc/thumbnail.jpg", thumbnail.getObjectName());
+        assertEquals("image/jpeg", thumbnail.getContentType());
+        BufferedImage stored = ImageIO.read(storageRoot.resolve(thumbnail.getObjectName()).toFile());
+        assertEquals(128, stored.getWidth());
+        assertEquals(85, stored.getHeight());
+    }
+
+    @Test
+    void picturesClaimingTooManyPixelsAreNotDecoded() throws Exception {
+        // A valid 1x1 PNG whose header claims 100000 x 100000 pixels, which would need 40 GB decoded
+        byte[] bomb = withDimensions(png(1, 1, BufferedImage.TYPE_INT_RGB), 100_000, 100_000);
+        FileMetaData picture = picture("bomb", "def", bomb);
+
+        imageVariantService.generateVariants("bomb");
+
+        assertTrue(picture.getVariants().isEmpty());
+        assertFalse(Files.exists(storageRoot.resolve("variants")));
+        assertEquals(1, meterRegistry.counter("notebridge.images.variants.rejected").count());
+        assertEquals(0, meterRegistry.counter("notebridge.images.variants.failed").count());
+    }
+
+    @Test
+    void deduplicatedPicturesReuseTheVariantsOfTheirContent() throws Exception {
+        FileMetaData first = picture("first", "abc", png(600, 400, BufferedImage.TYPE_INT_ARGB));
+        imageVariantService.generateVariants("first");
+        FileMetaData second = picture("second", "abc", null);
+        when(repo.findUniqueIdWithVariantsByContentHash("abc", "second")).thenReturn("first");
+        when(repo.findWithVariantsByUniqueId("first")).thenReturn(first);
+        Files.delete(storageRoot.resolve("sha256/abc"));
+
+        imageVariantService.generateVariants("second");
+
+        assertEquals(first.getVariants().keySet(), second.getVariants().keySet());
+        first.getVariants().forEach((name, variant) -> {
+            assertEquals(variant.getObjectName(), second.getVariants().get(name).getObjectName());
+            assertNotSame(variant, second.getVariants().get(name));
+        });
+        assertEquals("variants/abc/card.png", second.getVariants().get("card").getObjectName());
+        assertEquals(0, meterRegistry.counter("notebridge.images.variants.failed").count());
+    }
+
+    private FileMetaData picture(String fileId, String contentHash, byte[] content) throws IOException {
+        String objectName = FileStorageService.CONTENT_PREFIX + contentHash;
+        if (content != null) {
+            storage.write(objectName, "image/png", new ByteArrayInputStream(content));
+        }
+        FileMetaData metaData = new FileMetaData(null, fileId, objectName, LocalDateTime.now());
+        metaData.setContentHash(contentHash);
+        when(repo.findByUniqueId(fileId)).thenReturn(metaData);
+        return metaData;
+    }
+
+    private static byte[] png(int width, int height, int type) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, type), "png", out);
+        return out.toByteArray();
+    }
+
+    // Rewrite the IHDR chunk, which follows the 8-byte signature, and its CRC
+    private static byte[] withDimensions(byte[] png, int width, int height) {
+        ByteBuffer buffer = ByteBuffer.wrap(png.clone());
+        buffer.putInt(16, width);
+        buffer.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 12, 17);
+        buffer.putInt(29, (int) crc.getValue());
+        return buffer.array();
+    }
+}
@@ -0,0 +1,56 @@
+package com.notebridge.project.service;
+
+import com.notebridge.project.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RegistrationBloomFilterTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private RegistrationBloomFilter bloomFilter;
+
+    @BeforeEach
+    void setUp() {
+        bloomFilter = new RegistrationBloomFilter();
+        ReflectionTestUtils.setField(bloomFilter, "userRepository", userRepository);
+        ReflectionTestUtils.setField(bloomFilter, "enabled", true);
+        ReflectionTestUtils.setField(bloomFilter, "expectedUsers", 1_000L);
+        ReflectionTestUtils.setField(bloomFilter, "falsePositiveRate", 0.001);
+    }
+
+    @Test
+    void answersMaybeUntilBuiltAndNoForUnknownNamesAfterwards() {
+        when(userRepository.streamAllUsernames()).thenReturn(Stream.of("Teacher0"));
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("teacher0@notebridge.test"));
+
+        assertTrue(bloomFilter.mightContainUsername("anyone"));
+
+        bloomFilter.rebuild();
+
+        assertTrue(bloomFilter.mightContainUsername("teacher0"));
+        assertTrue(bloomFilter.mightContainEmail(" TEACHER0@notebridge.test"));
+        assertFalse(bloomFilter.mightContainUsername("student0"));
+    }
+
+    @Test
+    void registrationsDuringARebuildAreKept() {
+        // Someone registers while the usernames are being streamed, after the snapshot was taken
+        when(userRepository.streamAllUsernames()).thenReturn(Stream.of("teacher0").peek(name ->
+                bloomFilter.add("student0", "student0@notebridge.test")));
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("teacher0@notebridge.test"));
+
+        bloomFilter.rebuild();
+
+        assertTrue(bloomFilter.mightContainUsername("student0"));
+        assertTrue(bloomFilter.mightContainEmail("student0@notebridge.test"));
+        // Registrations after the rebuild go straight into the published filters
+        bloomFilter.add("student1", "student1@notebridge.test");
+        assertTrue(bloomFilter.mightContainUsername("student1"));
+    }
+}
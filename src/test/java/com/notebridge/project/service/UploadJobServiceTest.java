@@ -0,0 +1,155 @@
+package com.notebridge.project.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UploadJobServiceTest {
+
+    @TempDir
+    Path spoolRoot;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private UploadJobService uploadJobService;
+
+    @AfterEach
+    void tearDown() {
+        if (uploadJobService != null) {
+            uploadJobService.destroy();
+        }
+    }
+
+    @Test
+    void limitsPendingFilesPerUser() throws Exception {
+        CountDownLatch storageBusy = new CountDownLatch(1);
+        when(fileStorageService.uploadStream(any(), anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            storageBusy.await(5, TimeUnit.SECONDS);
+            return "file-id";
+        });
+        uploadJobService = newService(2);
+
+        uploadJobService.submit("student0", List.of(file("a.pdf"), file("b.pdf")), null);
+
+        assertThrows(UploadJobService.UploadLimitExceededException.class,
+                () -> uploadJobService.submit("student0", List.of(file("c.pdf")), null));
+        // Other users have their own allowance
+        assertNotNull(uploadJobService.submit("student1", List.of(file("c.pdf")), null));
+
+        storageBusy.countDown();
+    }
+
+    @Test
+    void reportsStatusAndProgressPerFile() throws Exception {
+        when(fileStorageService.uploadStream(any(), anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            String fileName = invocation.getArgument(1);
+            if (fileName.equals("broken.pdf")) {
+                throw new IOException("Storage is busy");
+            }
+            // Progress is reported as the content is written to storage
+            InputStreamSource content = invocation.getArgument(0);
+            LongConsumer progress = invocation.getArgument(4);
+            try (InputStream in = content.getInputStream()) {
+                progress.accept(in.readAllBytes().length);
+            }
+            return "id-" + fileName;
+        });
+        uploadJobService = newService(10);
+
+        UploadJob job = uploadJobService.submit("student0", List.of(file("sonata.pdf"), file("broken.pdf")), 7L);
+        awaitFinished(job);
+
+        assertSame(job, uploadJobService.getJob(job.getJobId(), "student0"));
+        assertNull(uploadJobService.getJob(job.getJobId(), "student1"));
+        assertEquals(UploadJob.Status.FAILED, job.getStatus());
+
+        UploadJob.FileEntry sonata = job.getFiles().get(0);
+        assertEquals(UploadJob.Status.DONE, sonata.getStatus());
+        assertEquals("id-sonata.pdf", sonata.getFileId());
+        assertEquals(sonata.getTotalBytes(), sonata.getUploadedBytes());
+
+        UploadJob.FileEntry broken = job.getFiles().get(1);
+        assertEquals(UploadJob.Status.FAILED, broken.getStatus());
+        assertEquals("Storage is busy", broken.getError());
+        assertNull(broken.getFileId());
+
+        verify(fileStorageService).uploadStream(any(), eq("sonata.pdf"), eq("application/pdf"), eq(7L), any());
+    }
+
+    @Test
+    void spoolFilesAreDeletedWhenUploadsFail() throws Exception {
+        when(fileStorageService.uploadStream(any(), anyString(), any(), any(), any()))
+                .thenThrow(new IOException("Storage is down"));
+        uploadJobService = newService(10);
+
+        UploadJob job = uploadJobService.submit("student0", List.of(file("a.pdf"), file("b.pdf")), null);
+        awaitFinished(job);
+
+        assertEquals(UploadJob.Status.FAILED, job.getStatus());
+        // The spool file goes right after the file is marked failed
+        awaitSpoolEmpty();
+        // Failed files no longer count against the user's limit
+        assertNotNull(uploadJobService.submit("student0", List.of(file("c.pdf")), null));
+    }
+
+    @Test
+    void spoolFilesLeftByAPreviousRunAreDeletedAtStartup() throws Exception {
+        Files.createDirectories(spoolRoot.resolve("jobs"));
+        Files.write(spoolRoot.resolve("jobs").resolve("job-123.spool"), new byte[100]);
+
+        uploadJobService = newService(10);
+
+        assertSpoolEmpty();
+    }
+
+    private UploadJobService newService(int maxPendingFilesPerUser) throws IOException {
+        return new UploadJobService(fileStorageService, new SimpleMeterRegistry(), spoolRoot.toString(),
+                1, 10, maxPendingFilesPerUser, 60, false);
+    }
+
+    private static MultipartFile file(String name) {
+        return new MockMultipartFile("files", name, "application/pdf", ("Content of " + name).getBytes());
+    }
+
+    private static void awaitFinished(UploadJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!job.isFinished()) {
+            assertTrue(System.nanoTime() < deadline, "Upload job did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitSpoolEmpty() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (spoolFiles() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Spool files were not deleted");
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertSpoolEmpty() throws IOException {
+        assertEquals(0, spoolFiles());
+    }
+
+    private long spoolFiles() throws IOException {
+        try (var leftovers = Files.list(spoolRoot.resolve("jobs"))) {
+            return leftovers.count();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.notebridge.project.shard;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.repository.ChatShardRepository;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.service.ChatService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.notebridge.project.TestFixtures.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ChatShardingTest.PRIMARY_URL,
+        "notebridge.outbox.poll-interval-ms=3600000",
+        "notebridge.sharding.chats.enabled=true",
+        "notebridge.sharding.chats.urls=" + ChatShardingTest.SHARD_0_URL + "," + ChatShardingTest.SHARD_1_URL,
+        "notebridge.sharding.chats.username=sa",
+        "notebridge.sharding.chats.password=",
+        // Nothing else reads the directory, so moved chats can be deleted from their old shard at once
+        "notebridge.sharding.chats.directory-cache-ttl-ms=0"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// The second-level cache is JVM-wide, see SecondLevelCacheTest
+@DirtiesContext
+class ChatShardingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:sharding-primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String SHARD_0_URL = "jdbc:h2:mem:sharding-0;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1_URL = "jdbc:h2:mem:sharding-1;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final List<String> SHARD_URLS = List.of(SHARD_0_URL, SHARD_1_URL);
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatShardRebalancer rebalancer;
+
+    @Autowired
+    private ChatShardRepository directory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User teacher;
+    private User violinStudent;
+    private User celloStudent;
+    private User pianoStudent;
+
+    @BeforeAll
+    void seed() throws SQLException {
+        teacher = userRepository.save(user("shard-teacher", User.Role.TEACHER));
+        violinStudent = userRepository.save(user("shard-violin", User.Role.STUDENT));
+        celloStudent = userRepository.save(user("shard-cello", User.Role.STUDENT));
+        pianoStudent = userRepository.save(user("shard-piano", User.Role.STUDENT));
+
+        // Users stay on the primary; each shard sees them the way a view over the primary schema would.
+        // The source schema is named because H2 also has an INFORMATION_SCHEMA.USERS
+        for (String url : SHARD_URLS) {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE LINKED TABLE IF NOT EXISTS users('org.h2.Driver', '"
+                        + PRIMARY_URL + "', 'sa', '', 'PUBLIC', 'USERS')");
+            }
+        }
+    }
+
+    @Test
+    void inboxIsGatheredFromEveryShard() {
+        Chat violin = chatService.createOrGetChat(teacher.getId(), violinStudent.getId(), "Violin");
+        Chat cello = chatService.createOrGetChat(teacher.getId(), celloStudent.getId(), "Cello");
+        rebalancer.moveChat(violin.getId(), 0);
+        rebalancer.moveChat(cello.getId(), 1);
+
+        chatService.sendMessage(violin.getId(), violinStudent, "Is Tuesday still on?");
+        chatService.sendMessage(cello.getId(), celloStudent, "I'll bring the etudes");
+        chatService.sendMessage(cello.getId(), celloStudent, "And the new bow");
+
+        List<Long> chatIds = chatService.getUserChats(teacher).stream().map(Chat::getId).toList();
+        assertTrue(chatIds.containsAll(List.of(violin.getId(), cello.getId())));
+        // Most recent message first
+        assertTrue(chatIds.indexOf(cello.getId()) < chatIds.indexOf(violin.getId()));
+        assertEquals(List.of(cello.getId()), chatService.getUserChats(celloStudent).stream().map(Chat::getId).toList());
+
+        long unread = chatService.getUnreadMessageCount(teacher);
+        chatService.markMessagesAsRead(cello.getId(), teacher);
+        assertEquals(unread - 2, chatService.getUnreadMessageCount(teacher));
+
+        // The same chat comes back for the same participants
+        assertEquals(violin.getId(), chatService.createOrGetChat(teacher.getId(), violinStudent.getId(), "Violin").getId());
+    }
+
+    @Test
+    void movedChatKeepsItsMessagesAndLeavesNothingBehind() throws SQLException {
+        Chat piano = chatService.createOrGetChat(teacher.getId(), pianoStudent.getId(), "Piano");
+        for (int i = 1; i <= 3; i++) {
+            chatService.sendMessage(piano.getId(), pianoStudent, "Question " + i);
+        }
+        int source = directory.findById(piano.getId()).orElseThrow().getShard();
+        int target = 1 - source;
+        List<Long> messageIds = messageIds(piano.getId());
+
+        assertTrue(rebalancer.moveChat(piano.getId(), target));
+
+        assertEquals(target, directory.findById(piano.getId()).orElseThrow().getShard());
+        assertEquals(messageIds, messageIds(piano.getId()));
+        assertEquals(0, countRows(SHARD_URLS.get(source), "SELECT COUNT(*) FROM messages WHERE chat_id = ?", piano.getId()));
+        assertEquals(0, countRows(SHARD_URLS.get(source), "SELECT COUNT(*) FROM chats WHERE id = ?", piano.getId()));
+
+        // Writes follow the chat to its new shard
+        Message answer = chatService.sendMessage(piano.getId(), teacher, "Answer");
+        assertEquals(1, countRows(SHARD_URLS.get(target), "SELECT COUNT(*) FROM messages WHERE id = ?", answer.getId()));
+        assertFalse(rebalancer.moveChat(piano.getId(), target));
+    }
+
+    private List<Long> messageIds(Long chatId) {
+        return chatService.getChatMessages(chatId, teacher, 0, 20).getContent().stream()
+                .map(MessageView::id).sorted().toList();
+    }
+
+    private static long countRows(String url, String sql, Long id) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.notebridge.project.sql;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.repository.ChatRepository;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.repository.MessageRepository;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.service.FileStorageService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.notebridge.project.TestFixtures.chat;
+import static com.notebridge.project.TestFixtures.lesson;
+import static com.notebridge.project.TestFixtures.user;
+import static com.notebridge.project.sql.QueryCountAssertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement counts per endpoint against a small seeded data set. Raising a number here
+ * should be a deliberate decision, not a side effect of a mapping change.
+ *
+ * The budgets are maxima for a cold cache; the second-level cache, which runs as in production,
+ * can only lower them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// The second-level cache is JVM-wide, see SecondLevelCacheTest
+@DirtiesContext
+class QueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private User teacher;
+    private User student;
+    private Lesson lesson;
+    private Chat chat;
+    private String fileId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        List<User> teachers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User teacher = userRepository.save(user("teacher" + i, User.Role.TEACHER));
+            teachers.add(teacher);
+            for (int l = 0; l < 2; l++) {
+                lesson = lessonRepository.save(lesson(teacher));
+            }
+        }
+        teacher = teachers.get(0);
+        student = userRepository.save(user("student0", User.Role.STUDENT));
+
+        chat = chatRepository.save(chat(teachers.get(0), student));
+        chatRepository.save(chat(teachers.get(1), student));
+
+        // More than one page, so the count query runs too
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Message message = new Message();
+            message.setChat(chat);
+            message.setSender(i % 2 == 0 ? student : teachers.get(0));
+            message.setContent("Message " + i);
+            messages.add(message);
+        }
+        messageRepository.saveAll(messages);
+
+        fileId = fileStorageService.uploadStream(new ByteArrayResource(new byte[1024]), "notes.pdf", "application/pdf", null, null);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void lessonCatalogue() throws Exception {
+        // Teachers come with the lessons through the "Lesson.teacher" graph
+        MvcResult result = mockMvc.perform(get("/api/lessons"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].teacher.username").exists())
+                .andReturn();
+        assertQueryCount(result, 1);
+
+        // Served from the "lessons" cache, as are the upcoming lessons filtered from it
+        assertQueryCount(perform("/api/lessons"), 0);
+        assertQueryCount(perform("/api/lessons/upcoming"), 0);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void upcomingLessons() throws Exception {
+        assertQueryCount(perform("/api/lessons/upcoming"), 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void lessonsByTeacher() throws Exception {
+        MvcResult result = perform("/api/lessons/teacher/" + teacher.getId());
+        assertQueryCount(result, 2);
+        assertNoRepeatedStatements(result, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void lessonById() throws Exception {
+        assertQueryCount(perform("/api/lessons/" + lesson.getId()), 1);
+    }
+
+    @Test
+    @WithMockUser(username = "teacher0", roles = "TEACHER")
+    void myLessons() throws Exception {
+        MvcResult result = perform("/api/lessons/my-lessons");
+        assertQueryCount(result, 2);
+        assertNoRepeatedStatements(result, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void myChats() throws Exception {
+        // Current user, then the chats with both participants fetch-joined
+        MvcResult result = perform("/api/chats");
+        assertQueryCount(result, 2);
+        assertNoRepeatedStatements(result, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void chatMessagesPage() throws Exception {
+        // Current user, the chat, the page as MessageViews and its count
+        MvcResult result = perform("/api/chats/" + chat.getId() + "/messages?page=0&size=20");
+        assertQueryCount(result, 4);
+        assertNoRepeatedStatements(result, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void unreadCount() throws Exception {
+        MvcResult result = perform("/api/chats/unread-count");
+        assertQueryCount(result, 2);
+        assertNoRepeatedStatements(result, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void userById() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/users/" + student.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.password").doesNotExist())
+                .andReturn();
+        assertQueryCount(result, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "student0", roles = "STUDENT")
+    void fileDownload() throws Exception {
+        assertQueryCount(perform("/api/files/download/" + fileId), 2);
+    }
+
+    private MvcResult perform(String url) throws Exception {
+        return mockMvc.perform(get(url)).andExpect(status().is2xxSuccessful()).andReturn();
+    }
+}
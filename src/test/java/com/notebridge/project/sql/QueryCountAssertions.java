@@ -0,0 +1,42 @@
+package com.notebridge.project.sql;
+
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Assertions on the SQL statements a MockMvc request executed, as counted by {@link QueryBudgetFilter}
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    public static QueryCounter.Stats statsOf(MvcResult result) {
+        Object stats = result.getRequest().getAttribute(QueryBudgetFilter.STATS_ATTRIBUTE);
+        assertNotNull(stats, "No query stats on the request; is the query budget filter enabled?");
+        return (QueryCounter.Stats) stats;
+    }
+
+    public static void assertQueryCount(MvcResult result, int maxStatements) {
+        QueryCounter.Stats stats = statsOf(result);
+        assertTrue(stats.getTotal() <= maxStatements, () -> result.getRequest().getMethod() + " "
+                + result.getRequest().getRequestURI() + " ran " + stats.getTotal() + " statements, expected at most "
+                + maxStatements + ":\n" + describe(stats));
+    }
+
+    public static void assertNoRepeatedStatements(MvcResult result, int maxExecutionsPerStatement) {
+        QueryCounter.Stats stats = statsOf(result);
+        Map.Entry<String, Integer> mostRepeated = stats.getMostRepeated();
+        assertTrue(mostRepeated == null || mostRepeated.getValue() <= maxExecutionsPerStatement,
+                () -> "Possible N+1 in " + result.getRequest().getRequestURI() + ":\n" + describe(stats));
+    }
+
+    private static String describe(QueryCounter.Stats stats) {
+        StringBuilder description = new StringBuilder();
+        stats.getExecutionsBySql().forEach((sql, count) -> description.append("  ").append(count).append("x ").append(sql).append('\n'));
+        return description.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.notebridge.project.sql;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory H2 databases stand in for a primary and a replica; each holds a marker row
+ * naming it, so a query shows where it was routed.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private DriverManagerDataSource primary;
+    private DriverManagerDataSource replica;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = database("primary");
+        replica = database("replica");
+
+        ReplicaSet replicaSet = new ReplicaSet(primary, Map.of("replica-1", replica), 3000, 1000, new SimpleMeterRegistry());
+        replicaSet.start();
+        routing = new ReplicaRoutingDataSource(primary, replicaSet);
+
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routing.getReplicaSet().close();
+        new JdbcTemplate(primary).execute("SHUTDOWN");
+        new JdbcTemplate(replica).execute("SHUTDOWN");
+    }
+
+    @Test
+    void replicaOutOfRotationUntilItHasAHeartbeat() {
+        assertFalse(routing.getReplicaSet().isHealthy("replica-1"));
+        assertEquals("primary", readOnly.execute(status -> marker()));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToAnUpToDateReplica() {
+        replicateHeartbeat(System.currentTimeMillis());
+
+        assertEquals("replica", readOnly.execute(status -> marker()));
+        assertEquals("primary", readWrite.execute(status -> marker()));
+        // No transaction at all: treated as a write
+        assertEquals("primary", marker());
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        replicateHeartbeat(System.currentTimeMillis() - 10_000);
+
+        assertFalse(routing.getReplicaSet().isHealthy("replica-1"));
+        assertEquals("primary", readOnly.execute(status -> marker()));
+
+        replicateHeartbeat(System.currentTimeMillis());
+        assertEquals("replica", readOnly.execute(status -> marker()));
+    }
+
+    @Test
+    void readsAfterAWriteStayOnPrimary() throws Exception {
+        replicateHeartbeat(System.currentTimeMillis());
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(60_000);
+        MockHttpSession session = new MockHttpSession();
+
+        assertEquals("replica", readInRequest(filter, session, "GET"));
+
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/chats/1/messages");
+        write.setSession(session);
+        filter.doFilter(write, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals("primary", readInRequest(filter, session, "GET"));
+        assertEquals("replica", readInRequest(filter, new MockHttpSession(), "GET"));
+    }
+
+    private String readInRequest(ReadYourWritesFilter filter, MockHttpSession session, String method) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/chats/1/messages");
+        request.setSession(session);
+        AtomicReference<String> routedTo = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> routedTo.set(readOnly.execute(status -> marker())));
+        return routedTo.get();
+    }
+
+    // What replication would do: copy the primary's heartbeat row, possibly an old one
+    private void replicateHeartbeat(long beatMillis) {
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.update("DELETE FROM " + ReplicaSet.HEARTBEAT_TABLE);
+        replicaJdbc.update("INSERT INTO " + ReplicaSet.HEARTBEAT_TABLE + " (id, beat_millis) VALUES (1, ?)", beatMillis);
+        routing.getReplicaSet().checkReplicas();
+    }
+
+    private String marker() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:replica-test-" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE marker (name VARCHAR(20))");
+        jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS " + ReplicaSet.HEARTBEAT_TABLE + " (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        return dataSource;
+    }
+}
@@ -0,0 +1,85 @@
+package com.notebridge.project.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitedStorageBackendTest {
+
+    @TempDir
+    Path root;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConcurrencyLimitedStorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LocalFileSystemStorageBackend local = new LocalFileSystemStorageBackend(root.toString());
+        local.write("sha256/recital", "video/mp4", new ByteArrayInputStream(new byte[100_000]));
+        // A single permit, so anything still holding it makes the next call time out
+        backend = new ConcurrencyLimitedStorageBackend(local, 1, 200, meterRegistry);
+    }
+
+    @Test
+    void slowClientDoesNotHoldThePermit() throws Exception {
+        CountDownLatch receiving = new CountDownLatch(1);
+        CountDownLatch drained = new CountDownLatch(1);
+        OutputStream slowClient = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                receiving.countDown();
+                try {
+                    drained.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+        CompletableFuture<Void> download = CompletableFuture.runAsync(() -> {
+            try {
+                backend.read("sha256/recital", 0, 100_000, slowClient);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(receiving.await(5, TimeUnit.SECONDS));
+
+        assertEquals(100_000, backend.stat("sha256/recital").getSize());
+
+        drained.countDown();
+        download.get(5, TimeUnit.SECONDS);
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void failedReadReleasesThePermitOnce() throws Exception {
+        assertThrows(IOException.class, () -> backend.read("sha256/missing", 0, 10, new ByteArrayOutputStream()));
+        assertEquals(0, inFlight());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        backend.read("sha256/recital", 0, 10, out);
+        assertEquals(10, out.size());
+        assertEquals(0, inFlight());
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("notebridge.storage.in.flight").gauge().value();
+    }
+}
@@ -0,0 +1,63 @@
+package com.notebridge.project.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileSystemStorageBackendTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void writesReadsRangesAndDeletes() throws Exception {
+        LocalFileSystemStorageBackend backend = new LocalFileSystemStorageBackend(root.toString());
+        byte[] content = new byte[10_000];
+        new Random(7).nextBytes(content);
+
+        backend.write("sha256/abc", "image/png", new ByteArrayInputStream(content));
+
+        assertEquals(content.length, backend.stat("sha256/abc").getSize());
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        backend.read("sha256/abc", 100, 500, range);
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 600), range.toByteArray());
+
+        assertTrue(backend.delete("sha256/abc"));
+        assertNull(backend.stat("sha256/abc"));
+        assertFalse(backend.delete("sha256/abc"));
+    }
+
+    @Test
+    void listsObjectsInBinaryNameOrder() throws Exception {
+        LocalFileSystemStorageBackend backend = new LocalFileSystemStorageBackend(root.toString());
+        for (String name : List.of("variants/x/card.jpg", "sha256/b", "sha256/a", "sha256-legacy", "a_file")) {
+            backend.write(name, null, new ByteArrayInputStream(new byte[1]));
+        }
+
+        List<String> names = new ArrayList<>();
+        Iterator<StoredObject> iterator = backend.list();
+        iterator.forEachRemaining(object -> names.add(object.getObjectName()));
+
+        // "sha256-legacy" sorts before "sha256/..." because '-' < '/'
+        assertEquals(List.of("a_file", "sha256-legacy", "sha256/a", "sha256/b", "variants/x/card.jpg"), names);
+    }
+
+    @Test
+    void rejectsObjectNamesOutsideTheRoot() throws Exception {
+        LocalFileSystemStorageBackend backend = new LocalFileSystemStorageBackend(root.toString());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> backend.write("../escape", null, new ByteArrayInputStream(new byte[1])));
+    }
+}
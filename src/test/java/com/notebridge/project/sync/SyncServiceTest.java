@@ -0,0 +1,162 @@
+package com.notebridge.project.sync;
+
+import com.notebridge.project.model.Chat;
+import com.notebridge.project.model.Lesson;
+import com.notebridge.project.model.Message;
+import com.notebridge.project.model.User;
+import com.notebridge.project.outbox.OutboxEventTypes;
+import com.notebridge.project.outbox.OutboxPublisher;
+import com.notebridge.project.outbox.OutboxRelay;
+import com.notebridge.project.repository.LessonRepository;
+import com.notebridge.project.repository.UserRepository;
+import com.notebridge.project.response.ChatView;
+import com.notebridge.project.response.LessonView;
+import com.notebridge.project.response.MessageView;
+import com.notebridge.project.response.SyncResponse;
+import com.notebridge.project.service.ChatService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.notebridge.project.TestFixtures.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        // Relayed by hand below; pruning removes everything recorded so far
+        "notebridge.outbox.poll-interval-ms=3600000",
+        "notebridge.sync.prune-cron=-",
+        "notebridge.sync.retention-days=0"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// The second-level cache is JVM-wide, see SecondLevelCacheTest
+@DirtiesContext
+class SyncServiceTest {
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User teacher;
+    private User student;
+    private User otherStudent;
+
+    @BeforeAll
+    void seed() {
+        teacher = userRepository.save(user("sync-teacher", User.Role.TEACHER));
+        student = userRepository.save(user("sync-student", User.Role.STUDENT));
+        otherStudent = userRepository.save(user("sync-other", User.Role.STUDENT));
+    }
+
+    @Test
+    void warmLaunchGetsOnlyWhatChanged() {
+        SyncResponse first = syncService.changesSince(student, null);
+        assertTrue(first.fullResyncRequired());
+
+        Chat chat = chatService.createOrGetChat(teacher.getId(), student.getId(), "Harmony");
+        Message message = chatService.sendMessage(chat.getId(), teacher, "Chapter 3 for Thursday");
+        chatService.createOrGetChat(teacher.getId(), otherStudent.getId(), "Not for this student");
+        relay.poll();
+
+        SyncResponse changes = syncService.changesSince(student, first.token());
+        assertFalse(changes.fullResyncRequired());
+        assertFalse(changes.hasMore());
+        assertEquals(List.of(chat.getId()), changes.chats().stream().map(ChatView::id).toList());
+        assertEquals(List.of(message.getId()), changes.messages().stream().map(MessageView::id).toList());
+
+        // Nothing new
+        SyncResponse again = syncService.changesSince(student, changes.token());
+        assertEquals(changes.token(), again.token());
+        assertTrue(again.chats().isEmpty() && again.messages().isEmpty() && again.readStates().isEmpty());
+
+        // The teacher sees that the student has read the message
+        String teacherToken = syncService.changesSince(teacher, null).token();
+        chatService.markMessagesAsRead(chat.getId(), student);
+        chatService.markMessagesAsRead(chat.getId(), student);
+        relay.poll();
+        List<SyncResponse.ReadState> readStates = syncService.changesSince(teacher, teacherToken).readStates();
+        assertEquals(1, readStates.size());
+        assertEquals(chat.getId(), readStates.get(0).chatId());
+        assertEquals(student.getId(), readStates.get(0).readerId());
+    }
+
+    @Test
+    void cancelledAndDeletedLessonsComeBackAsTombstones() {
+        String token = syncService.changesSince(otherStudent, null).token();
+
+        Lesson kept = saveLesson("Sight reading", OutboxEventTypes.LESSON_CREATED);
+        Lesson cancelled = saveLesson("Ear training", OutboxEventTypes.LESSON_CREATED);
+        Lesson deleted = saveLesson("Counterpoint", OutboxEventTypes.LESSON_CREATED);
+        inTransaction(() -> {
+            cancelled.setCancelled(true);
+            lessonRepository.save(cancelled);
+            outboxPublisher.publish("lesson", cancelled.getId(), OutboxEventTypes.LESSON_CANCELLED,
+                    Map.of("teacherId", teacher.getId()));
+            lessonRepository.deleteById(deleted.getId());
+            outboxPublisher.publish("lesson", deleted.getId(), OutboxEventTypes.LESSON_DELETED,
+                    Map.of("teacherId", teacher.getId()));
+        });
+        relay.poll();
+
+        SyncResponse changes = syncService.changesSince(otherStudent, token);
+        assertEquals(List.of(kept.getId()), changes.lessons().stream().map(LessonView::id).toList());
+        assertTrue(changes.tombstones().contains(new SyncResponse.Tombstone("LESSON", cancelled.getId(), "cancelled")));
+        assertTrue(changes.tombstones().contains(new SyncResponse.Tombstone("LESSON", deleted.getId(), "deleted")));
+    }
+
+    @Test
+    void prunedTokensNeedAFullResync() {
+        String token = syncService.changesSince(teacher, null).token();
+        saveLesson("Rhythm", OutboxEventTypes.LESSON_CREATED);
+        relay.poll();
+
+        assertTrue(syncService.prune() > 0);
+        assertTrue(syncService.changesSince(teacher, token).fullResyncRequired());
+        assertThrows(IllegalArgumentException.class, () -> syncService.changesSince(teacher, "not-a-token"));
+    }
+
+    private Lesson saveLesson(String description, String eventType) {
+        Lesson lesson = new Lesson();
+        lesson.setTeacher(teacher);
+        lesson.setDescription(description);
+        lesson.setLocation(Lesson.LocationType.ONLINE);
+        lesson.setStartTime(LocalDateTime.now().plusDays(1));
+        lesson.setEndTime(LocalDateTime.now().plusDays(1).plusHours(1));
+        inTransaction(() -> {
+            lessonRepository.save(lesson);
+            outboxPublisher.publish("lesson", lesson.getId(), eventType, Map.of("teacherId", teacher.getId()));
+        });
+        return lesson;
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+}